@@ -0,0 +1,156 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.console;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.messages.MessageBusConnection;
+import io.flutter.utils.OpenApiUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Remembers which file a relative path printed in the console refers to, for one module.
+ * <p>
+ * Misses are remembered too, since most path-like text in verbose output doesn't name a file in the project. The cache is cleared when
+ * files under the module's content roots are created, deleted, moved or renamed, or when the module's roots change.
+ */
+class ConsolePathCache {
+  private static final Key<ConsolePathCache> KEY = Key.create("io.flutter.console.ConsolePathCache");
+
+  /**
+   * The number of paths remembered per module.
+   */
+  static final int MAX_ENTRIES = 512;
+
+  private final Map<String, VirtualFile> files = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, VirtualFile> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  /**
+   * Returns the cache shared by all consoles showing output for the given module.
+   */
+  @NotNull
+  static ConsolePathCache forModule(@NotNull Module module) {
+    final ConsolePathCache existing = module.getUserData(KEY);
+    if (existing != null) {
+      return existing;
+    }
+
+    final ConsolePathCache cache = module.putUserDataIfAbsent(KEY, new ConsolePathCache());
+    synchronized (cache) {
+      if (!cache.subscribed && !module.isDisposed()) {
+        cache.subscribe(module);
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Incremented whenever the cache is cleared, so a resolution that raced with a clear isn't stored.
+   */
+  private int generation;
+
+  private boolean subscribed;
+
+  private void subscribe(@NotNull Module module) {
+    subscribed = true;
+    final MessageBusConnection bus = module.getProject().getMessageBus().connect(module);
+    bus.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        final VirtualFile[] roots = OpenApiUtils.getContentRoots(module);
+        for (VFileEvent event : events) {
+          if (changesPathsUnder(event, roots)) {
+            clear();
+            return;
+          }
+        }
+      }
+    });
+    bus.subscribe(ModuleRootListener.TOPIC, new ModuleRootListener() {
+      @Override
+      public void rootsChanged(@NotNull ModuleRootEvent event) {
+        clear();
+      }
+    });
+  }
+
+  /**
+   * Returns whether the event creates, deletes, moves or renames a file under one of the given roots, so a path may now resolve
+   * differently. Edits don't change which files exist.
+   */
+  static boolean changesPathsUnder(@NotNull VFileEvent event, @NotNull VirtualFile[] roots) {
+    if (event instanceof VFileContentChangeEvent) {
+      return false;
+    }
+    if (event instanceof VFileMoveEvent move) {
+      return isUnder(move.getOldPath(), roots) || isUnder(move.getNewPath(), roots);
+    }
+    if (event instanceof VFilePropertyChangeEvent property) {
+      return property.isRename() && (isUnder(property.getOldPath(), roots) || isUnder(property.getNewPath(), roots));
+    }
+    return isUnder(event.getPath(), roots);
+  }
+
+  private static boolean isUnder(@NotNull String path, @NotNull VirtualFile[] roots) {
+    for (VirtualFile root : roots) {
+      if (root != null && FileUtil.isAncestor(root.getPath(), path, false)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the file for the given path, resolving it if it isn't cached or the cached file is no longer valid.
+   */
+  @Nullable
+  VirtualFile get(@NotNull String path, @NotNull Function<String, VirtualFile> resolve) {
+    final int resolvedGeneration;
+    synchronized (this) {
+      if (files.containsKey(path)) {
+        final VirtualFile file = files.get(path);
+        if (file == null || file.isValid()) {
+          return file;
+        }
+      }
+      resolvedGeneration = generation;
+    }
+
+    // Resolve outside the lock; a concurrent resolution of the same path gives the same answer.
+    final VirtualFile file = resolve.apply(path);
+    synchronized (this) {
+      if (generation == resolvedGeneration) {
+        files.put(path, file);
+      }
+    }
+    return file;
+  }
+
+  synchronized void clear() {
+    files.clear();
+    generation++;
+  }
+}
@@ -73,40 +73,55 @@ public class FlutterConsoleFilter implements Filter {
     }
   }
 
+  /**
+   * Matches compiler errors, e.g. "lib/registerC.dart:104:73: Error: Expected ';' after this."
+   */
+  private static final Pattern ERROR_LOCATION_PATTERN = Pattern.compile("(^.*?):(\\d+?):\\d+?:\\s*?Error");
+
+  private static final String FLUTTER_DOCTOR_PREFIX = "Run \"flutter doctor\" for information about installing additional components.";
+
   private final @NotNull Module module;
 
+  private final @NotNull ConsolePathCache pathCache;
+
   public FlutterConsoleFilter(@NotNull Module module) {
     this.module = module;
+    this.pathCache = ConsolePathCache.forModule(module);
   }
 
   @VisibleForTesting
   @Nullable
   public VirtualFile fileAtPath(@NotNull String pathPart) {
     // "lib/main.dart:6"
-    pathPart = pathPart.split(":")[0];
+    final int colon = pathPart.indexOf(':');
+    if (colon >= 0) {
+      pathPart = pathPart.substring(0, colon);
+    }
 
     // We require the pathPart reference to be a file reference, otherwise we'd match things like
     // "Build: Running build completed, took 191ms".
-    if (pathPart == null || pathPart.indexOf('.') == -1) {
+    if (pathPart.indexOf('.') == -1) {
       return null;
     }
 
+    return pathCache.get(pathPart, this::findFileInContentRoots);
+  }
+
+  private @Nullable VirtualFile findFileInContentRoots(@NotNull String pathPart) {
     final VirtualFile[] roots = OpenApiUtils.getContentRoots(module);
     for (VirtualFile root : roots) {
       if (root == null) continue;
-      if (!pathPart.isEmpty()) {
-        final String baseDirPath = root.getPath();
-        final String path = baseDirPath + "/" + pathPart;
-        VirtualFile file = findFile(path);
-        if (file == null) {
-          // check example dir too
-          // TODO(pq): remove when `example` is a content root: https://github.com/flutter/flutter-intellij/issues/2519
-          final String exampleDirRelativePath = baseDirPath + "/example/" + pathPart;
-          file = findFile(exampleDirRelativePath);
-        }
-        if (file != null) {
-          return file;
-        }
+      final String baseDirPath = root.getPath();
+      final String path = baseDirPath + "/" + pathPart;
+      VirtualFile file = findFile(path);
+      if (file == null) {
+        // check example dir too
+        // TODO(pq): remove when `example` is a content root: https://github.com/flutter/flutter-intellij/issues/2519
+        final String exampleDirRelativePath = baseDirPath + "/example/" + pathPart;
+        file = findFile(exampleDirRelativePath);
+      }
+      if (file != null) {
+        return file;
       }
     }
 
@@ -118,10 +133,13 @@ public class FlutterConsoleFilter implements Filter {
     return file != null && file.exists() ? file : null;
   }
 
+  /**
+   * Scans the line once, from left to right, without splitting it up.
+   */
   @Override
   @Nullable
   public Result applyFilter(final @NotNull String line, final int entireLength) {
-    if (line.startsWith("Run \"flutter doctor\" for information about installing additional components.")) {
+    if (line.startsWith(FLUTTER_DOCTOR_PREFIX)) {
       return getFlutterDoctorResult(line, entireLength - line.length());
     }
 
@@ -129,105 +147,96 @@ public class FlutterConsoleFilter implements Filter {
       TextAttributes attr = new TextAttributes(UIUtil.getErrorForeground(), null, null, EffectType.BOXED, Font.PLAIN);
       return new Result(entireLength - line.length(), entireLength, null, attr);
     }
+
+    // Everything else we link to is a file name with an extension, so most lines of verbose output can be skipped right away.
+    if (line.indexOf('.') < 0) {
+      return null;
+    }
+
+    final int lineOffset = entireLength - line.length();
     int lineNumber = 0;
-    String pathPart = line.trim();
+    String pathPart = null;
     VirtualFile file = null;
     int lineStart = -1;
     int highlightLength = 0;
 
+    // The part of the line to look for embedded paths in: the line without surrounding whitespace.
+    int scanStart = 0;
+    int scanEnd = line.length();
+    while (scanStart < scanEnd && line.charAt(scanStart) <= ' ') scanStart++;
+    while (scanEnd > scanStart && line.charAt(scanEnd - 1) <= ' ') scanEnd--;
+
     // Check for, e.g.,
     //   * "Launching lib/main.dart"
     //   * "open ios/Runner.xcworkspace"
-    if (pathPart.startsWith("Launching ") || pathPart.startsWith("open ")) {
-      final String[] parts = pathPart.split(" ");
-      if (parts.length > 1) {
-        pathPart = parts[1];
-        if (pathPart != null) {
-          file = fileAtPath(pathPart);
-          if (file != null) {
-            lineStart = entireLength - line.length() + line.indexOf(pathPart);
-            highlightLength = pathPart.length();
-          }
-        }
+    if (line.startsWith("Launching ", scanStart) || line.startsWith("open ", scanStart)) {
+      scanStart = line.indexOf(' ', scanStart) + 1;
+      scanEnd = tokenEnd(line, scanStart, scanEnd);
+      pathPart = line.substring(scanStart, scanEnd);
+      file = fileAtPath(pathPart);
+      if (file != null) {
+        lineStart = lineOffset + scanStart;
+        highlightLength = pathPart.length();
       }
     }
 
     // Check for embedded paths, e.g.,
     //    * "  • MyApp.xzzzz (lib/main.dart:6)"
     //    * "  • _MyHomePageState._incrementCounter (lib/main.dart:49)"
-    final String[] parts = pathPart.split(" ");
-    for (String part : parts) {
+    for (int tokenStart = scanStart; tokenStart < scanEnd; ) {
+      final int tokenEnd = tokenEnd(line, tokenStart, scanEnd);
+
       // "(lib/main.dart:49)"
-      if (part != null && part.startsWith("(") && part.endsWith(")")) {
-        part = part.substring(1, part.length() - 1);
+      if (tokenEnd - tokenStart >= 2 && line.charAt(tokenStart) == '(' && line.charAt(tokenEnd - 1) == ')') {
+        final String part = line.substring(tokenStart + 1, tokenEnd - 1);
         final String[] split = part.split(":");
         if (split.length == 2) {
-          try {
-            // Reconcile line number indexing.
-            //noinspection DataFlowIssue
-            lineNumber = Math.max(0, Integer.parseInt(split[1]) - 1);
-          }
-          catch (NumberFormatException e) {
-            // Ignored.
-          }
+          // Reconcile line number indexing.
+          lineNumber = Math.max(0, parseLineNumber(split[1]) - 1);
           pathPart = part;
-          lineStart = entireLength - line.length() + line.indexOf(pathPart);
-          highlightLength = pathPart.length();
+          lineStart = lineOffset + tokenStart + 1;
+          highlightLength = part.length();
           break;
         }
         else if (split.length == 4 && Objects.equals(split[0], "file")) {
           // part = file:///Users/user/AndroidStudioProjects/flutter_app/test/widget_test.dart:23:18
-          try {
-            // Reconcile line number indexing.
-            //noinspection DataFlowIssue
-            lineNumber = Math.max(0, Integer.parseInt(split[2]) - 1);
-          }
-          catch (NumberFormatException e) {
-            // Ignored.
-          }
+          // Reconcile line number indexing.
+          lineNumber = Math.max(0, parseLineNumber(split[2]) - 1);
           pathPart = findRelativePath(split[1]);
           if (pathPart == null) {
             return null;
           }
-          lineStart = entireLength - line.length() + line.indexOf(part);
+          lineStart = lineOffset + tokenStart + 1;
           highlightLength = part.length();
           break;
         }
       }
+
+      tokenStart = tokenEnd + 1;
     }
 
     if (lineStart < 0) {
       // lib/registerC.dart:104:73: Error: Expected ';' after this.
-      final String filePathAndLineNumberExpr = "(^.*?):(\\d+?):\\d+?:\\s*?Error";
-      final Pattern pattern = Pattern.compile(filePathAndLineNumberExpr);
-      final Matcher matcher = pattern.matcher(line);
-      final boolean found = matcher.find();
-      if (found) {
-        final String filePathExpr = "((?:[^/]*/)*)(.*)";
-        final Pattern pathPattern = Pattern.compile(filePathExpr);
-        //noinspection DataFlowIssue
-        final Matcher pathMatcher = pathPattern.matcher(matcher.group(1));
-        if (pathMatcher.find()) {
-          final String path = pathMatcher.group(1) + pathMatcher.group(2);
-          file = fileAtPath(path);
-          if (file == null) {
-            return null;
-          }
-          //noinspection DataFlowIssue
-          lineNumber = Integer.parseInt(matcher.group(2));
-          lineStart = entireLength - line.length();
-          highlightLength = path.length();
-        }
-        else {
-          return null;
-        }
+      if (line.indexOf(':') < 0 || !line.contains("Error")) {
+        return null;
       }
-      else {
+      final Matcher matcher = ERROR_LOCATION_PATTERN.matcher(line);
+      if (!matcher.find()) {
         return null;
       }
+      pathPart = matcher.group(1);
+      //noinspection DataFlowIssue
+      file = fileAtPath(pathPart);
+      if (file == null) {
+        return null;
+      }
+      //noinspection DataFlowIssue
+      lineNumber = Integer.parseInt(matcher.group(2));
+      lineStart = lineOffset;
+      highlightLength = pathPart.length();
     }
 
-    if (file == null) {
+    if (file == null && pathPart != null) {
       file = fileAtPath(pathPart);
     }
 
@@ -243,6 +252,23 @@ public class FlutterConsoleFilter implements Filter {
     return null;
   }
 
+  /**
+   * Returns the end of the space-separated token starting at the given index.
+   */
+  private static int tokenEnd(@NotNull String line, int tokenStart, int end) {
+    final int space = line.indexOf(' ', tokenStart);
+    return space < 0 || space > end ? end : space;
+  }
+
+  private static int parseLineNumber(@NotNull String text) {
+    try {
+      return Integer.parseInt(text);
+    }
+    catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
   private @Nullable String findRelativePath(@Nullable String threeSlashFileName) {
     if (threeSlashFileName == null) return null;
     final VirtualFile[] roots = OpenApiUtils.getContentRoots(module);
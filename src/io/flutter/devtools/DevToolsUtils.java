@@ -62,6 +62,11 @@ public class DevToolsUtils {
       @Override
       public void connectionOpened() { }
 
+      @Override
+      public boolean isInterestedIn(String streamId) {
+        return "ToolEvent".equals(streamId);
+      }
+
       @Override
       public void received(String streamId, Event event) {
         if (streamId != null) {
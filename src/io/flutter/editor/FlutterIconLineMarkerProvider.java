@@ -14,21 +14,21 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.markup.GutterIconRenderer;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.SimpleModificationTracker;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.LocalFileSystem;
-import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.openapi.vfs.VirtualFileVisitor;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.impl.source.tree.AstBufferUtil;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.jetbrains.lang.dart.DartTokenTypes;
 import com.jetbrains.lang.dart.psi.*;
 import com.jetbrains.lang.dart.psi.impl.DartCallExpressionImpl;
 import com.jetbrains.lang.dart.util.DartPsiImplUtil;
 import com.jetbrains.lang.dart.util.DartResolveUtil;
-import info.debatty.java.stringsimilarity.JaroWinkler;
 import io.flutter.FlutterBundle;
 import io.flutter.logging.PluginLogger;
 import io.flutter.sdk.FlutterSdk;
@@ -49,6 +49,10 @@ import static io.flutter.dart.DartPsiUtil.*;
 public class FlutterIconLineMarkerProvider extends LineMarkerProviderDescriptor {
 
   public static final Map<String, Set<String>> KnownPaths = new HashMap<>();
+  /**
+   * Incremented when a class is added to or removed from {@link #KnownPaths}, which changes which definitions are icons.
+   */
+  public static final SimpleModificationTracker KnownPathsTracker = new SimpleModificationTracker();
   private static final Map<String, String> BuiltInPaths = new HashMap<>();
   private static final @NotNull Logger LOG = PluginLogger.createLogger(FlutterIconLineMarkerProvider.class);
   private static final String MaterialRelativeAssetPath = "/bin/cache/artifacts/material_fonts/MaterialIcons-Regular.otf";
@@ -69,6 +73,7 @@ public class FlutterIconLineMarkerProvider extends LineMarkerProviderDescriptor
   }
 
   public static void initialize() {
+    KnownPathsTracker.incModificationCount();
     KnownPaths.clear();
     KnownPaths.put("Icons", new HashSet<>(Collections.singleton("packages/flutter/lib/src/material")));
     KnownPaths.put("IconData", new HashSet<>(Collections.singleton("packages/flutter/lib/src/widgets")));
@@ -317,9 +322,19 @@ public class FlutterIconLineMarkerProvider extends LineMarkerProviderDescriptor
     if (psiFile == null) {
       return null;
     }
-    final IconInfoVisitor visitor = new IconInfoVisitor(iconName);
-    psiFile.accept(visitor);
-    return visitor.info;
+    return getIconDefinitions(psiFile).get(iconName);
+  }
+
+  /**
+   * Returns the icons defined in the given file by name. They're found once per modification of the file, rather than once per icon.
+   */
+  @NotNull
+  static Map<String, IconInfo> getIconDefinitions(@NotNull PsiFile psiFile) {
+    return CachedValuesManager.getCachedValue(psiFile, () -> {
+      final IconInfoVisitor visitor = new IconInfoVisitor();
+      psiFile.accept(visitor);
+      return CachedValueProvider.Result.create(Collections.unmodifiableMap(visitor.icons), psiFile, KnownPathsTracker);
+    });
   }
 
   @Nullable
@@ -335,70 +350,36 @@ public class FlutterIconLineMarkerProvider extends LineMarkerProviderDescriptor
     if (parent == null) {
       return null;
     }
-    final List<VirtualFile> ttfFiles = new ArrayList<>();
-    VfsUtilCore.visitChildrenRecursively(parent, new VirtualFileVisitor<Void>() {
-      @Override
-      public boolean visitFile(@NotNull VirtualFile file) {
-        final String ext = file.getExtension();
-        if ("ttf".equals(ext)) {
-          ttfFiles.add(file);
-          return false;
-        }
-        else {
-          return super.visitFile(file);
-        }
-      }
-    });
-    double match = -1;
-    final String family = iconDef.familyName;
-    VirtualFile bestFileMatch = null;
-    if (family != null) {
-      for (VirtualFile file : ttfFiles) {
-        assert file != null;
-        final double n = findPattern(file.getNameWithoutExtension(), family);
-        if (n > match) {
-          match = n;
-          bestFileMatch = file;
-        }
-      }
-    } // If the family is null we could do a search for font files named similar to the package.
-    if (bestFileMatch != null) {
-      final IconPreviewGenerator generator = new IconPreviewGenerator(bestFileMatch.getPath());
-      final Icon icon = generator.convert(iconDef.codepoint);
-      if (icon != null) return icon;
+    final int codepoint;
+    try {
+      codepoint = IconPreviewGenerator.parseCodepoint(iconDef.codepoint);
     }
-    for (VirtualFile file : ttfFiles) {
+    catch (NumberFormatException ignored) {
+      return null;
+    }
+    // Try the font whose name best matches the family first, skipping fonts that don't have the glyph.
+    final IconFontIndex index = IconFontIndex.getInstance();
+    for (VirtualFile file : index.getFonts(parent, iconDef.familyName)) {
       assert file != null;
-      final IconPreviewGenerator generator = new IconPreviewGenerator(file.getPath());
-      final Icon icon = generator.convert(iconDef.codepoint);
+      if (!index.containsCodepoint(file, codepoint)) continue;
+      final Icon icon = new IconPreviewGenerator(file.getPath()).convert(codepoint);
       if (icon != null) return icon;
     }
     return null;
   }
 
-  public double findPattern(@NotNull String t, @NotNull String p) {
-    // This is from https://github.com/tdebatty/java-string-similarity
-    // It's MIT license file is: https://github.com/tdebatty/java-string-similarity/blob/master/LICENSE.md
-    final JaroWinkler jw = new JaroWinkler();
-    return jw.similarity(t, p);
-  }
-
   record IconInfo(@NotNull String className, @NotNull String iconName, @Nullable String familyName, @NotNull String codepoint) {
   }
 
   static class IconInfoVisitor extends DartRecursiveVisitor {
     final HashMap<String, String> staticVars = new HashMap<>();
-    final String iconName;
-    IconInfo info;
-
-    IconInfoVisitor(String iconName) {
-      this.iconName = iconName;
-    }
+    final HashMap<String, IconInfo> icons = new HashMap<>();
 
     @Nullable
     private String findFamilyName(@Nullable PsiElement expression, @Nullable DartType type) {
       if (expression == null && type != null) {
-        LOG.info("Check superclass constructor for font family: " + type.getName());
+        // Logged at debug level since this is checked for every icon in the file.
+        LOG.debug("Check superclass constructor for font family: " + type.getName());
         return null; // TODO Check superclass of <type> for a constructor that includes the family.
       }
       else if (expression instanceof DartStringLiteralExpression) {
@@ -422,66 +403,63 @@ public class FlutterIconLineMarkerProvider extends LineMarkerProviderDescriptor
 
     @Override
     public void visitVarAccessDeclaration(@NotNull DartVarAccessDeclaration o) {
-      if (Objects.requireNonNull(o.getComponentName().getText()).trim().equals(iconName)) {
-        assert o.getParent() != null;
-        final DartVarInit init = (DartVarInit)o.getParent().getLastChild();
-        assert init != null;
-        final DartExpression expression = init.getExpression();
-        String className = null;
-        DartArguments arguments = null;
-        DartType type = null;
-        if (expression instanceof DartNewExpression newExpr) {
-          type = newExpr.getType();
-          if (type != null) {
-            className = type.getText();
-            arguments = newExpr.getArguments();
-          }
-        }
-        else if (expression instanceof DartCallExpression) {
-          // The Dart parser sometimes generates a call expression where we expect a new expression.
-          final DartCallExpressionImpl callExpr = (DartCallExpressionImpl)expression;
-          arguments = callExpr.getArguments();
-          className = callExpr.getExpression().getText();
-        }
-        if (KnownPaths.containsKey(className)) {
-          if (arguments != null) {
-            final DartArgumentList argumentList = arguments.getArgumentList();
-            if (argumentList != null) {
-              final List<DartExpression> list = argumentList.getExpressionList();
-              if (!list.isEmpty()) {
-                final DartExpression dartExpression = list.get(0);
-                assert dartExpression != null;
-                final String codepoint = dartExpression.getText();
-                final PsiElement family = getNamedArgumentExpression(arguments, "fontFamily");
-                final String familyName = findFamilyName(family, type);
-                assert className != null;
-                assert codepoint != null;
-                info = new IconInfo(className, iconName, familyName, codepoint);
-              }
-            }
-          }
+      final String varName = Objects.requireNonNull(o.getComponentName().getText()).trim();
+      final PsiElement parent = o.getParent();
+      if (parent == null || !(parent.getLastChild() instanceof DartVarInit init)) return;
+      final DartExpression expression = init.getExpression();
+
+      final IconInfo info = createIconInfo(varName, expression);
+      if (info != null) {
+        icons.put(varName, info);
+        return;
+      }
+
+      final PsiElement firstChild = o.getFirstChild();
+      assert firstChild != null;
+      assert firstChild.getText() != null;
+      if (firstChild.getText().trim().equals("static")) {
+        // Fortunately, in all packages checked so far, static variables defining font family and
+        // package names appear at the beginning of the file. So this simple visitor works, but it
+        // will fail if the static variables are defined at the end of the file.
+        if (expression instanceof DartStringLiteralExpression) {
+          assert expression.getText() != null;
+          final Pair<String, TextRange> pair = DartPsiImplUtil.getUnquotedDartStringAndItsRange(expression.getText());
+          staticVars.put(varName, pair.first);
         }
       }
-      else {
-        final PsiElement firstChild = o.getFirstChild();
-        assert firstChild != null;
-        assert firstChild.getText() != null;
-        if (firstChild.getText().trim().equals("static")) {
-          // Fortunately, in all packages checked so far, static variables defining font family and
-          // package names appear at the beginning of the file. So this simple visitor works, but it
-          // will fail if the static variables are defined at the end of the file.
-          final String varName = Objects.requireNonNull(o.getComponentName().getText()).trim();
-          assert o.getParent() != null;
-          final DartVarInit init = (DartVarInit)o.getParent().getLastChild();
-          assert init != null;
-          final DartExpression expression = init.getExpression();
-          if (expression instanceof DartStringLiteralExpression) {
-            assert expression.getText() != null;
-            final Pair<String, TextRange> pair = DartPsiImplUtil.getUnquotedDartStringAndItsRange(expression.getText());
-            staticVars.put(varName, pair.first);
-          }
+    }
+
+    @Nullable
+    private IconInfo createIconInfo(@NotNull String iconName, @Nullable DartExpression expression) {
+      String className = null;
+      DartArguments arguments = null;
+      DartType type = null;
+      if (expression instanceof DartNewExpression newExpr) {
+        type = newExpr.getType();
+        if (type != null) {
+          className = type.getText();
+          arguments = newExpr.getArguments();
         }
       }
+      else if (expression instanceof DartCallExpression) {
+        // The Dart parser sometimes generates a call expression where we expect a new expression.
+        final DartCallExpressionImpl callExpr = (DartCallExpressionImpl)expression;
+        arguments = callExpr.getArguments();
+        className = callExpr.getExpression().getText();
+      }
+      if (!KnownPaths.containsKey(className) || arguments == null) return null;
+      final DartArgumentList argumentList = arguments.getArgumentList();
+      if (argumentList == null) return null;
+      final List<DartExpression> list = argumentList.getExpressionList();
+      if (list.isEmpty()) return null;
+      final DartExpression dartExpression = list.get(0);
+      assert dartExpression != null;
+      final String codepoint = dartExpression.getText();
+      final PsiElement family = getNamedArgumentExpression(arguments, "fontFamily");
+      final String familyName = findFamilyName(family, type);
+      assert className != null;
+      assert codepoint != null;
+      return new IconInfo(className, iconName, familyName, codepoint);
     }
   }
 
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.editor;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.VirtualFileVisitor;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import info.debatty.java.stringsimilarity.JaroWinkler;
+import io.flutter.utils.IconPreviewGenerator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * The font files in each pub package that has custom icons, so finding an icon's font doesn't walk the package for every gutter icon.
+ * <p>
+ * A package is walked the first time one of its icons is shown. After that its list is kept up to date from VFS events: font files that
+ * are created or deleted are added or removed, and anything else that could move fonts around (such as a directory being created or
+ * renamed) causes the package to be walked again the next time it's needed. The fonts that best match each icon family are remembered
+ * until the package's fonts change, and so is whether each font contains the codepoints it has been asked about.
+ */
+public final class IconFontIndex implements Disposable {
+  private static final String FONT_EXTENSION = "ttf";
+
+  /**
+   * Returns whether the font with the given path contains the given codepoint.
+   */
+  interface CodepointReader {
+    boolean contains(@NotNull String fontPath, int codepoint);
+  }
+
+  private static class Entry {
+    /**
+     * The package's font files, in the order they were found.
+     */
+    final List<VirtualFile> fonts = new ArrayList<>();
+
+    /**
+     * The package's font files for each family name, best match first.
+     */
+    final Map<String, List<VirtualFile>> byFamily = new HashMap<>();
+  }
+
+  /**
+   * A walk of a package that's in progress.
+   */
+  private static class Walk {
+    int walkers;
+
+    /**
+     * The number of events under the package since the first walker started.
+     */
+    long changes;
+  }
+
+  @NotNull private final CodepointReader codepointReader;
+
+  /**
+   * Indexed packages by the path of their root directory.
+   */
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  /**
+   * Packages being walked, by the path of their root directory.
+   */
+  private final Map<String, Walk> walks = new HashMap<>();
+
+  /**
+   * For each font path, whether the font contains each codepoint that has been looked up in it.
+   */
+  private final Map<String, Map<Integer, Boolean>> codepoints = new HashMap<>();
+
+  @NotNull
+  public static IconFontIndex getInstance() {
+    return Objects.requireNonNull(ApplicationManager.getApplication().getService(IconFontIndex.class));
+  }
+
+  public IconFontIndex() {
+    this((fontPath, codepoint) -> new IconPreviewGenerator(fontPath).canDisplay(codepoint));
+  }
+
+  IconFontIndex(@NotNull CodepointReader codepointReader) {
+    this.codepointReader = codepointReader;
+    ApplicationManager.getApplication().getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          if (event instanceof VFileContentChangeEvent) {
+            fontContentChanged(event.getPath());
+          }
+          else {
+            fileChanged(event);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Returns the font files in the package with the given root directory, ordered by how well their names match the given family; the
+   * best match is first and the rest are in the order they were found. If the family is null, all are in the order they were found.
+   */
+  @NotNull
+  public List<VirtualFile> getFonts(@NotNull VirtualFile packageRoot, @Nullable String family) {
+    final Entry entry = getEntry(packageRoot);
+    synchronized (this) {
+      if (family == null) {
+        return List.copyOf(entry.fonts);
+      }
+      return entry.byFamily.computeIfAbsent(family, (key) -> rankFonts(entry.fonts, key));
+    }
+  }
+
+  /**
+   * Returns whether the given font contains the given codepoint. The font is only read the first time each codepoint is looked up.
+   */
+  public boolean containsCodepoint(@NotNull VirtualFile font, int codepoint) {
+    final String path = font.getPath();
+    synchronized (this) {
+      final Map<Integer, Boolean> known = codepoints.get(path);
+      final Boolean contained = known == null ? null : known.get(codepoint);
+      if (contained != null) {
+        return contained;
+      }
+    }
+
+    final boolean contained = codepointReader.contains(path, codepoint);
+    synchronized (this) {
+      codepoints.computeIfAbsent(path, (key) -> new HashMap<>()).put(codepoint, contained);
+    }
+    return contained;
+  }
+
+  @NotNull
+  private Entry getEntry(@NotNull VirtualFile packageRoot) {
+    final String rootPath = packageRoot.getPath();
+    final Walk walk;
+    final long startChanges;
+    synchronized (this) {
+      final Entry entry = entries.get(rootPath);
+      if (entry != null) {
+        return entry;
+      }
+      walk = walks.computeIfAbsent(rootPath, (key) -> new Walk());
+      walk.walkers++;
+      startChanges = walk.changes;
+    }
+
+    // Walk outside the lock; if two threads walk the same package, they find the same fonts.
+    final Entry entry = new Entry();
+    try {
+      VfsUtilCore.visitChildrenRecursively(packageRoot, new VirtualFileVisitor<Void>() {
+        @Override
+        public boolean visitFile(@NotNull VirtualFile file) {
+          if (isFont(file.getName())) {
+            entry.fonts.add(file);
+            return false;
+          }
+          return super.visitFile(file);
+        }
+      });
+    }
+    finally {
+      synchronized (this) {
+        if (--walk.walkers == 0) {
+          walks.remove(rootPath);
+        }
+      }
+    }
+
+    synchronized (this) {
+      if (walk.changes != startChanges) {
+        // The walk may have missed the change, so don't keep what it found; the package is walked again next time.
+        return entry;
+      }
+      return entries.computeIfAbsent(rootPath, (key) -> entry);
+    }
+  }
+
+  @NotNull
+  private static List<VirtualFile> rankFonts(@NotNull List<VirtualFile> fonts, @NotNull String family) {
+    // This is from https://github.com/tdebatty/java-string-similarity
+    // It's MIT license file is: https://github.com/tdebatty/java-string-similarity/blob/master/LICENSE.md
+    final JaroWinkler jw = new JaroWinkler();
+    double match = -1;
+    VirtualFile bestMatch = null;
+    for (VirtualFile file : fonts) {
+      final double n = jw.similarity(file.getNameWithoutExtension(), family);
+      if (n > match) {
+        match = n;
+        bestMatch = file;
+      }
+    }
+
+    final List<VirtualFile> ranked = new ArrayList<>(fonts.size());
+    if (bestMatch != null) {
+      ranked.add(bestMatch);
+    }
+    for (VirtualFile file : fonts) {
+      if (file != bestMatch) {
+        ranked.add(file);
+      }
+    }
+    return Collections.unmodifiableList(ranked);
+  }
+
+  private synchronized void fontContentChanged(@NotNull String path) {
+    if (isFont(path)) {
+      codepoints.remove(path);
+    }
+  }
+
+  private synchronized void fileChanged(@NotNull VFileEvent event) {
+    if (entries.isEmpty() && walks.isEmpty() && codepoints.isEmpty()) {
+      return;
+    }
+
+    if (event instanceof VFilePropertyChangeEvent change && !change.isRename()) {
+      return;
+    }
+
+    final String path = event.getPath();
+    final List<String> paths = getAffectedPaths(event);
+    for (Map.Entry<String, Walk> walking : walks.entrySet()) {
+      final String rootPath = walking.getKey();
+      if (paths.stream().anyMatch((affected) -> isSameOrInside(affected, rootPath) || isInside(rootPath, affected))) {
+        walking.getValue().changes++;
+      }
+    }
+    codepoints.keySet().removeIf((fontPath) -> paths.stream().anyMatch((affected) -> isSameOrInside(fontPath, affected)));
+
+    for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+      final Map.Entry<String, Entry> indexed = it.next();
+      final String rootPath = indexed.getKey();
+      if (paths.stream().anyMatch((affected) -> affected.equals(rootPath) || isInside(rootPath, affected))) {
+        // The package itself was deleted, moved or renamed.
+        it.remove();
+        continue;
+      }
+      if (paths.stream().noneMatch((affected) -> isInside(affected, rootPath))) {
+        continue;
+      }
+
+      final Entry entry = indexed.getValue();
+      if (event instanceof VFileCreateEvent create) {
+        final VirtualFile file = create.getFile();
+        if (create.isDirectory() || file == null) {
+          // A new directory may arrive with its contents.
+          it.remove();
+        }
+        else if (isFont(create.getChildName())) {
+          entry.fonts.add(file);
+          entry.byFamily.clear();
+        }
+      }
+      else if (event instanceof VFileDeleteEvent) {
+        if (entry.fonts.removeIf((file) -> file.getPath().equals(path) || isInside(file.getPath(), path))) {
+          entry.byFamily.clear();
+        }
+      }
+      else {
+        // Moves, renames and copies of fonts or directories; walk the package again next time.
+        final VirtualFile file = event.getFile();
+        if (file == null || file.isDirectory() || paths.stream().anyMatch(IconFontIndex::isFont)) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the paths the event affects: the file's path, and for moves, copies and renames, its new path.
+   */
+  @NotNull
+  private static List<String> getAffectedPaths(@NotNull VFileEvent event) {
+    if (event instanceof VFileMoveEvent move) {
+      return List.of(move.getOldPath(), move.getNewPath());
+    }
+    if (event instanceof VFileCopyEvent copy) {
+      return List.of(copy.getPath(), copy.getNewParent().getPath() + "/" + copy.getNewChildName());
+    }
+    if (event instanceof VFilePropertyChangeEvent rename) {
+      return List.of(rename.getOldPath(), rename.getNewPath());
+    }
+    return List.of(event.getPath());
+  }
+
+  /**
+   * Returns whether the given path is strictly inside the given directory.
+   */
+  private static boolean isInside(@NotNull String path, @NotNull String directory) {
+    return path.length() > directory.length() && path.startsWith(directory) && path.charAt(directory.length()) == '/';
+  }
+
+  private static boolean isSameOrInside(@NotNull String path, @NotNull String directory) {
+    return path.equals(directory) || isInside(path, directory);
+  }
+
+  private static boolean isFont(@NotNull String name) {
+    return name.endsWith("." + FONT_EXTENSION);
+  }
+
+  @Override
+  public void dispose() {
+    synchronized (this) {
+      entries.clear();
+      codepoints.clear();
+    }
+  }
+}
@@ -8,10 +8,13 @@ package io.flutter.font;
 import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectManager;
@@ -24,6 +27,7 @@ import com.intellij.psi.PsiManager;
 import com.intellij.psi.search.FileTypeIndex;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.ProjectAndLibrariesScope;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.jetbrains.lang.dart.DartFileType;
 import com.jetbrains.lang.dart.ide.index.DartLibraryIndex;
 import com.jetbrains.lang.dart.psi.DartComponentName;
@@ -32,6 +36,8 @@ import com.jetbrains.lang.dart.resolve.DartPsiScopeProcessor;
 import com.jetbrains.lang.dart.util.DartResolveUtil;
 import io.flutter.FlutterBundle;
 import io.flutter.editor.FlutterIconLineMarkerProvider;
+import io.flutter.pub.PubRoot;
+import io.flutter.pub.PubRoots;
 import io.flutter.settings.FlutterSettings;
 import io.flutter.utils.OpenApiUtils;
 import org.jetbrains.annotations.NotNull;
@@ -44,7 +50,12 @@ import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -59,8 +70,13 @@ public class FontPreviewProcessor {
   // If there are triple quotes around a package URL they won't be recognized.
   private static final Pattern EXPORT_STATEMENT_PATTERN = Pattern.compile("^\\s*export\\s+[\"']([-_. $A-Za-z0-9/]+\\.dart)[\"'].*");
   private static final Pattern IMPORT_STATEMENT_PATTERN = Pattern.compile("^\\s*import\\s+[\"']([-_. $A-Za-z0-9/]+\\.dart)[\"'].*");
-  private static final Map<String, Set<String>> ANALYZED_PROJECT_FILES = new HashMap<>();
-  private static final Map<String, WorkItem> WORK_ITEMS = new HashMap<>();
+  private static final Map<String, Set<String>> ANALYZED_PROJECT_FILES = new ConcurrentHashMap<>();
+  private static final Map<String, WorkItem> WORK_ITEMS = new ConcurrentHashMap<>();
+
+  /**
+   * The number of files read or resolved at once, so the analysis doesn't take over every core.
+   */
+  private static final int MAX_PARALLEL_READS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
   private static Logger LOG = Logger.getInstance(FontPreviewProcessor.class);
 
   static {
@@ -69,6 +85,12 @@ public class FontPreviewProcessor {
     UNSUPPORTED_PACKAGES.put("material_design_icons_flutter", FlutterBundle.message("icon.preview.disallow.material_design_icons_flutter"));
   }
 
+  private final ExecutorService readExecutor =
+    AppExecutorUtil.createBoundedApplicationPoolExecutor("FontPreviewProcessor", MAX_PARALLEL_READS);
+
+  private final IconClassCache savedClasses =
+    new IconClassCache(Paths.get(PathManager.getSystemPath(), "flutter-intellij", "icon-classes.json"));
+
   public static void analyze(@NotNull Project project) {
     final FontPreviewProcessor service = ApplicationManager.getApplication().getService(FontPreviewProcessor.class);
     service.generate(project);
@@ -80,12 +102,13 @@ public class FontPreviewProcessor {
   }
 
   public void generate(@NotNull Project project) {
-    if (ANALYZED_PROJECT_FILES.containsKey(project.getBasePath())) {
+    final String projectPath = project.getBasePath();
+    final Set<String> analyzedFiles = ConcurrentHashMap.newKeySet();
+    if (projectPath == null || ANALYZED_PROJECT_FILES.putIfAbsent(projectPath, analyzedFiles) != null) {
       return;
     }
     LOG = FlutterSettings.getInstance().isVerboseLogging() ? Logger.getInstance(FontPreviewProcessor.class) : null;
     log("Analyzing project ", project.getName());
-    ANALYZED_PROJECT_FILES.put(project.getBasePath(), new HashSet<>());
     ProjectManager.getInstance().addProjectManagerListener(project, new ProjectManagerListener() {
       @Override
       public void projectClosed(@NotNull Project project) {
@@ -93,58 +116,71 @@ public class FontPreviewProcessor {
         ProjectManagerListener.super.projectClosed(project);
       }
     });
-    final String projectPath = project.getBasePath();
-    final WorkItem item = new WorkItem(projectPath);
-    WORK_ITEMS.put(projectPath, item);
 
     final String packagesText = FlutterSettings.getInstance().getFontPackages();
     final String[] packages = packagesText.split(PACKAGE_SEPARATORS);
-    item.addPackages(
+    final WorkItem item = new WorkItem(
+      projectPath,
+      analyzedFiles,
       Arrays.stream(packages)
         .map(String::trim)
         .filter((each) -> !each.isEmpty() || FontPreviewProcessor.UNSUPPORTED_PACKAGES.get(each) != null)
         .collect(Collectors.toList()));
-    processItems(project);
+    WORK_ITEMS.put(projectPath, item);
+    processItems(project, item);
   }
 
-  void processItems(@NotNull Project project) {
+  /**
+   * Finds the icon classes in the item's packages. The classes saved for packages that haven't changed since they were last analyzed are
+   * registered first; the rest are analyzed in stages: finding the packages' files, finding the classes in those files, then following
+   * the exports of files that have none. Within a stage, files are read and resolved in parallel on a bounded executor, and the stage
+   * finishes when all of them have.
+   */
+  void processItems(@NotNull Project project, @NotNull WorkItem item) {
     final Task.Backgroundable task = new Task.Backgroundable(project, FlutterBundle.message("icon.preview.analysis"), true) {
-
+      @Override
       public void run(@NotNull final ProgressIndicator indicator) {
-        final AtomicBoolean isRunning = new AtomicBoolean(true);
+        indicator.setIndeterminate(false);
         final long startTime = System.currentTimeMillis();
-        while (isRunning.get()) {
-          final String path = project.getBasePath();
-          final WorkItem item = WORK_ITEMS.get(path);
-          if (!processNextItem(project, item)) {
-            if (item.filesWithNoClasses.isEmpty()) {
-              // Finished, clean up and exit.
-              synchronized (this) {
-                if (item == WORK_ITEMS.get(path)) {
-                  WORK_ITEMS.remove(path);
-                }
-                isRunning.set(false);
-                if (System.currentTimeMillis() - startTime > 1000) {
-                  // If this analysis takes too long there is a good chance the highlighting pass completed before all
-                  // icon classes were found. That might cause some icons to not get displayed, so just run it again.
-                  DaemonCodeAnalyzer.getInstance(project).restart();
-                }
-              }
-            }
-            else {
-              for (String key : item.filesWithNoClasses.keySet()) {
-                final PathInfo info = item.filesWithNoClasses.get(key);
-                final VirtualFile virtualFile = LocalFileSystem.getInstance().findFileByPath(info.filePath);
-                if (virtualFile != null) {
-                  item.addFileToCheck(info.packageName, info.filePath, virtualFile);
-                }
-              }
-              item.filesWithNoClasses.clear();
-            }
-          }
+        indicator.setText2(FlutterBundle.message("icon.preview.analysis.saved"));
+        final Map<String, PackageVersion> packages = registerSavedClasses(project, item);
+        try {
+          indicator.setText2(FlutterBundle.message("icon.preview.analysis.packages"));
+          long stageStart = System.currentTimeMillis();
+          final List<FileInfo> files = findPackageFiles(project, item, new ArrayList<>(packages.keySet()), indicator);
+          item.metrics.packageFilesMillis = System.currentTimeMillis() - stageStart;
+
+          indicator.setText2(FlutterBundle.message("icon.preview.analysis.classes"));
+          stageStart = System.currentTimeMillis();
+          final List<FileInfo> filesWithNoClasses = findClasses(project, item, files, true, indicator);
+          item.metrics.classesMillis = System.currentTimeMillis() - stageStart;
+
+          indicator.setText2(FlutterBundle.message("icon.preview.analysis.exports"));
+          stageStart = System.currentTimeMillis();
+          final List<FileInfo> exportedFiles = findExportedFiles(project, item, filesWithNoClasses, indicator);
+          item.metrics.exportsMillis = System.currentTimeMillis() - stageStart;
+
+          stageStart = System.currentTimeMillis();
+          findClasses(project, item, exportedFiles, false, indicator);
+          item.metrics.exportedClassesMillis = System.currentTimeMillis() - stageStart;
+          saveClasses(item, packages);
+        }
+        finally {
+          deleteFilteredFiles(item);
+        }
+
+        final long elapsed = System.currentTimeMillis() - startTime;
+        log("Finished in ", elapsed + "ms: ", item.metrics.toString());
+        WORK_ITEMS.remove(item.projectPath, item);
+        if ((elapsed > 1000 || item.metrics.savedClasses > 0) && !project.isDisposed()) {
+          // If this analysis takes too long there is a good chance the highlighting pass completed before all
+          // icon classes were found. That might cause some icons to not get displayed, so just run it again.
+          // Saved classes are usually registered quickly, but the first pass may already have finished.
+          DaemonCodeAnalyzer.getInstance(project).restart();
         }
       }
 
+      @Override
       public void onCancel() {
         if (project.isDisposed()) {
           return;
@@ -157,229 +193,319 @@ public class FontPreviewProcessor {
     ProgressManager.getInstance().run(task);
   }
 
-  // Analyze the next item in the queue. Leave it in the queue until analysis is complete.
-  // Any switch to dumb mode during a read action or a write action will cancel this analysis,
-  // which will restart with the same item.
-  boolean processNextItem(@NotNull Project project, @NotNull WorkItem item) {
-    if (item.isCancelled) {
-      return false;
-    }
-    final Application app = ApplicationManager.getApplication();
-    if (item.hasFilesToRewrite()) {
-      app.invokeLater(() -> rewriteNextFile(project, item));
-      return true;
-    }
-    else if (item.hasClasses()) {
-      analyzeNextClass(project, item);
-      return true;
-    }
-    else if (item.hasFilesToAnalyze()) {
-      analyzeNextFile(project, item);
-      return true;
-    }
-    else if (item.hasPackages()) {
-      analyzeNextPackage(project, item);
-      return true;
-    }
-    else if (item.hasFilesToCheck()) {
-      checkNextFile(project, item);
-      return true;
-    }
-    else if (item.hasFilesToDelete()) {
-      app.invokeLater(() -> deleteNextFile(project, item));
-      return true;
+  /**
+   * Registers the saved classes of the item's packages that haven't changed since they were analyzed, and returns the packages that still
+   * need to be analyzed along with their versions, or null versions for packages that aren't in a {@code package_config.json} file.
+   */
+  @NotNull
+  private Map<String, PackageVersion> registerSavedClasses(@NotNull Project project, @NotNull WorkItem item) {
+    final Map<String, String> libraryPaths = OpenApiUtils.safeRunReadAction(() -> {
+      final Map<String, String> result = new HashMap<>();
+      for (PubRoot root : PubRoots.forProject(project)) {
+        final Map<String, String> packagesMap = root.getPackagesMap();
+        if (packagesMap != null) {
+          packagesMap.forEach(result::putIfAbsent);
+        }
+      }
+      return result;
+    });
+
+    final Map<String, PackageVersion> packages = new LinkedHashMap<>();
+    for (String packageName : item.packages) {
+      if (packageName.isEmpty() || FontPreviewProcessor.UNSUPPORTED_PACKAGES.get(packageName) != null || item.isCancelled) {
+        continue;
+      }
+      final String libraryPath = libraryPaths == null ? null : libraryPaths.get(packageName);
+      final String hash = libraryPath == null ? null : IconClassCache.getContentVersion(Paths.get(libraryPath));
+      if (hash == null) {
+        packages.put(packageName, null);
+        continue;
+      }
+      final Map<String, List<String>> classes = savedClasses.get(libraryPath, hash);
+      if (classes == null) {
+        packages.put(packageName, new PackageVersion(libraryPath, hash));
+        continue;
+      }
+      log("Using saved classes for ", packageName);
+      for (Map.Entry<String, List<String>> entry : classes.entrySet()) {
+        for (String path : entry.getValue()) {
+          item.analyzedFiles.add(path);
+          registerClass(entry.getKey(), path);
+          item.metrics.savedClasses++;
+        }
+      }
     }
-    return false;
+    return packages;
   }
 
-  private void analyzeNextPackage(@NotNull Project project, @NotNull WorkItem item) {
-    if (project.isDisposed() || item.isCancelled) {
-      return;
-    }
-    final String info = item.getPackage();
-    if (info == null) {
+  /**
+   * Saves the classes found in each analyzed package whose version is known, unless some of its files couldn't be analyzed. Packages with
+   * no icon classes are saved with none.
+   */
+  private void saveClasses(@NotNull WorkItem item, @NotNull Map<String, PackageVersion> packages) {
+    if (item.isCancelled) {
       return;
     }
-    findFontFiles(project, info, item);
-    item.removePackage();
+    packages.forEach((packageName, version) -> {
+      if (version == null || item.incompletePackages.contains(packageName)) {
+        return;
+      }
+      final Map<String, Set<String>> classes = item.foundClasses.get(packageName);
+      savedClasses.put(version.libraryPath(), version.hash(), classes == null ? Map.of() : classes);
+    });
+    savedClasses.save();
   }
 
-  private void rewriteNextFile(@NotNull Project project, @NotNull WorkItem item) {
-    if (project.isDisposed() || item.isCancelled) {
-      return;
-    }
-    final FileInfo info = item.getFileToRewrite();
-    if (info == null) {
-      return;
-    }
-    final VirtualFile file = info.file;
-    final String packageName = info.packageName;
-    final String path = file.getPath();
-    final int packageIndex = path.indexOf(packageName);
-    if (ANALYZED_PROJECT_FILES.get(item.projectPath).contains(path)) {
-      item.removeFileToRewrite();
-      return;
-    }
-    log("Rewriting file ", file.getName(), " in ", packageName);
-    // Remove import statements in an attempt to minimize extraneous analysis.
-    final VirtualFile filteredFile = filterImports(file);
-    if (filteredFile == null) {
-      log("Cannot filter imports in ", file.getName());
-      return;
+  /**
+   * Returns the Dart files in the given packages, excluding the Flutter SDK.
+   */
+  @NotNull
+  private List<FileInfo> findPackageFiles(@NotNull Project project,
+                                          @NotNull WorkItem item,
+                                          @NotNull List<String> packages,
+                                          @NotNull ProgressIndicator indicator) {
+    final List<Collection<VirtualFile>> found = runInParallel(item, packages, indicator, (packageName) -> {
+      log("Analyzing package ", packageName);
+      return findFontFiles(project, packageName);
+    });
+
+    final Map<String, FileInfo> files = new LinkedHashMap<>();
+    for (int i = 0; i < packages.size(); i++) {
+      final String packageName = packages.get(i);
+      if (found.get(i) == null) {
+        item.incompletePackages.add(packageName);
+      }
+      for (VirtualFile file : Objects.requireNonNullElse(found.get(i), List.<VirtualFile>of())) {
+        final String path = file.getPath();
+        if (path.contains(packageName) && !isInSdk(path)) {
+          files.putIfAbsent(path, new FileInfo(packageName, path, file));
+        }
+      }
     }
-    item.filesWithNoClasses.put(path, new PathInfo(packageName, path));
-    item.addFileToAnalyze(packageName, path, filteredFile);
-    item.addFileToDelete(filteredFile);
-    item.removeFileToRewrite();
+    item.metrics.packages = packages.size();
+    return new ArrayList<>(files.values());
   }
 
-  private void analyzeNextFile(@NotNull Project project, @NotNull WorkItem item) {
-    if (project.isDisposed() || item.isCancelled) {
-      return;
-    }
-    final FileInfo info = item.getFileToAnalyze();
-    if (info == null) {
-      return;
-    }
-    final String packageName = info.packageName;
-    final String path = info.originalPath;
-    final VirtualFile file = info.file;
-    final Set<String> analyzedProjectFiles = ANALYZED_PROJECT_FILES.get(item.projectPath);
-    if (analyzedProjectFiles.contains(path)) {
-      item.removeFileToAnalyze();
-      return;
-    }
-    log("Analyzing file ", file.getPath(), " path ", path);
-    analyzedProjectFiles.add(path);
-    final PsiFile psiFile = DumbService.getInstance(project).runReadActionInSmartMode(() -> PsiManager.getInstance(project).findFile(file));
-    if (psiFile == null) {
-      log("Cannot get PSI file for ", file.getName());
-      return;
-    }
-    final Set<DartComponentName> classNames = new HashSet<>();
-    final DartPsiScopeProcessor processor = new ClassNameScopeProcessor(classNames);
-    final boolean success = DumbService.getInstance(project).runReadActionInSmartMode(() -> {
-      final boolean result = DartResolveUtil.processTopLevelDeclarations(psiFile, processor, file, null);
-      if (result) {
-        final Set<DartComponentName> keep = new HashSet<>();
-        for (DartComponentName name : classNames) {
-          if (file.equals(name.getContainingFile().getVirtualFile())) {
-            keep.add(name);
-          }
+  /**
+   * Registers the classes defined in the given files as icon classes, and returns the files that define none. Files that have already
+   * been analyzed are skipped.
+   *
+   * @param filterImports whether to analyze a copy of each file without its imports, which is much quicker to resolve.
+   */
+  @NotNull
+  private List<FileInfo> findClasses(@NotNull Project project,
+                                     @NotNull WorkItem item,
+                                     @NotNull List<FileInfo> files,
+                                     boolean filterImports,
+                                     @NotNull ProgressIndicator indicator) {
+    final Set<String> analyzedProjectFiles = item.analyzedFiles;
+    final List<FileInfo> toAnalyze = files.stream().filter((info) -> analyzedProjectFiles.add(info.originalPath)).toList();
+    final List<List<String>> found = runInParallel(item, toAnalyze, indicator, (info) -> {
+      VirtualFile file = info.file;
+      if (filterImports) {
+        log("Rewriting file ", file.getName(), " in ", info.packageName);
+        // Remove import statements in an attempt to minimize extraneous analysis.
+        file = filterImports(file);
+        if (file == null) {
+          log("Cannot filter imports in ", info.file.getName());
+          return null;
         }
-        classNames.clear();
-        classNames.addAll(keep);
+        item.filteredFiles.add(file);
       }
-      return result; // Return from lambda, not method, setting value of success.
+      return findClassNames(project, info.originalPath, file);
     });
-    if (success) {
-      log("Queueing ", String.valueOf(classNames.size()), " classes for ", path);
-      item.addClasses(packageName, path, classNames);
+
+    // Registered here, on one thread, since KnownPaths isn't thread-safe.
+    final List<FileInfo> filesWithNoClasses = new ArrayList<>();
+    for (int i = 0; i < toAnalyze.size(); i++) {
+      final FileInfo info = toAnalyze.get(i);
+      final List<String> classNames = found.get(i);
+      item.metrics.files++;
+      if (classNames == null) {
+        item.incompletePackages.add(info.packageName);
+      }
+      if (classNames == null || classNames.isEmpty() || !info.originalPath.contains(info.packageName)) {
+        filesWithNoClasses.add(info);
+        continue;
+      }
+      for (String name : classNames) {
+        log("Adding ", name, " -> ", info.originalPath);
+        registerClass(name, info.originalPath);
+        item.foundClasses.computeIfAbsent(info.packageName, (key) -> new HashMap<>())
+          .computeIfAbsent(name, (key) -> new HashSet<>())
+          .add(info.originalPath);
+        item.metrics.classes++;
+      }
+    }
+    return filesWithNoClasses;
+  }
+
+  private static void registerClass(@NotNull String name, @NotNull String path) {
+    final Set<String> knownPaths = KnownPaths.get(name);
+    if (knownPaths == null) {
+      KnownPaths.put(name, new HashSet<>(Collections.singleton(path)));
+      FlutterIconLineMarkerProvider.KnownPathsTracker.incModificationCount();
     }
     else {
-      log("Resolution failed for ", path);
+      knownPaths.add(path);
     }
-    item.removeFileToAnalyze();
   }
 
-  private void analyzeNextClass(@NotNull Project project, @NotNull WorkItem item) {
-    if (project.isDisposed() || item.isCancelled) {
-      return;
-    }
-    final ClassInfo info = item.getClassToCheck();
-    if (info == null) {
-      return;
+  /**
+   * Returns the names of the classes defined in the given file, or null if it couldn't be resolved.
+   */
+  @Nullable
+  private static List<String> findClassNames(@NotNull Project project, @NotNull String path, @NotNull VirtualFile file) {
+    log("Analyzing file ", file.getPath(), " path ", path);
+    final DumbService dumbService = DumbService.getInstance(project);
+    final PsiFile psiFile = dumbService.runReadActionInSmartMode(() -> PsiManager.getInstance(project).findFile(file));
+    if (psiFile == null) {
+      log("Cannot get PSI file for ", file.getName());
+      return null;
     }
-    final String packageName = info.packageName;
-    final String path = info.filePath;
-    final PsiFile psiFile = DumbService.getInstance(project).runReadActionInSmartMode(info.name::getContainingFile);
-    if (path.contains(packageName)) {
-      final String name = DumbService.getInstance(project).runReadActionInSmartMode(info.name::getName);
-      log("Adding ", name, " -> ", path);
-      final Set<String> knownPaths = KnownPaths.get(name);
-      if (knownPaths == null) {
-        KnownPaths.put(name, new HashSet<>(Collections.singleton(path)));
+    final List<String> classNames = dumbService.runReadActionInSmartMode(() -> {
+      final Set<DartComponentName> names = new HashSet<>();
+      final DartPsiScopeProcessor processor = new ClassNameScopeProcessor(names);
+      if (!DartResolveUtil.processTopLevelDeclarations(psiFile, processor, file, null)) {
+        return null;
       }
-      else {
-        knownPaths.add(path);
+      final List<String> result = new ArrayList<>();
+      for (DartComponentName name : names) {
+        if (file.equals(name.getContainingFile().getVirtualFile())) {
+          result.add(name.getName());
+        }
       }
-      item.filesWithNoClasses.remove(path);
+      return result;
+    });
+    if (classNames == null) {
+      log("Resolution failed for ", path);
     }
-    item.removeClassToCheck();
+    return classNames;
   }
 
-  private void checkNextFile(@NotNull Project project, @NotNull WorkItem item) {
-    if (project.isDisposed() || item.isCancelled) {
-      return;
-    }
-    // If no classes were found then the file may be a list of export statements that refer to files that do define icons.
-    try {
-      final FileInfo info = item.getFileToCheck();
-      if (info == null) {
-        return;
-      }
+  /**
+   * Returns the files exported by the given files that haven't been analyzed yet.
+   * <p>
+   * A file with no classes may be a list of export statements that refer to files that do define icons.
+   */
+  @NotNull
+  private List<FileInfo> findExportedFiles(@NotNull Project project,
+                                           @NotNull WorkItem item,
+                                           @NotNull List<FileInfo> files,
+                                           @NotNull ProgressIndicator indicator) {
+    final Set<String> analyzedProjectFiles = item.analyzedFiles;
+    final List<List<FileInfo>> found = runInParallel(item, files, indicator, (info) -> {
       final VirtualFile file = info.file;
       log("Checking for exports in ", file.getPath(), " path ", info.originalPath);
-      final String packageName = info.packageName;
-      final String source = new String(file.contentsToByteArray());
-      final BufferedReader reader = new BufferedReader(new StringReader(source));
-      String line;
-      while ((line = reader.readLine()) != null) {
-        final Matcher matcher = EXPORT_STATEMENT_PATTERN.matcher(line);
-        if (!matcher.matches()) {
-          continue;
-        }
-        final String name = matcher.group(1);
-        if (name != null) {
-          final VirtualFile next = LocalFileSystem.getInstance().findFileByNioFile(Paths.get(file.getParent().getPath(), name));
-          final String nextPath;
-          if (next == null || isInSdk(nextPath = next.getPath())) {
+      final List<FileInfo> exported = new ArrayList<>();
+      try {
+        final String source = new String(file.contentsToByteArray());
+        final BufferedReader reader = new BufferedReader(new StringReader(source));
+        String line;
+        while ((line = reader.readLine()) != null) {
+          final Matcher matcher = EXPORT_STATEMENT_PATTERN.matcher(line);
+          if (!matcher.matches()) {
             continue;
           }
-          if (ANALYZED_PROJECT_FILES.get(project.getBasePath()).contains(nextPath)) {
-            continue;
+          final String name = matcher.group(1);
+          if (name != null) {
+            final VirtualFile next = LocalFileSystem.getInstance().findFileByNioFile(Paths.get(file.getParent().getPath(), name));
+            final String nextPath;
+            if (next == null || isInSdk(nextPath = next.getPath()) || analyzedProjectFiles.contains(nextPath)) {
+              continue;
+            }
+            exported.add(new FileInfo(info.packageName, nextPath, next));
           }
-          item.addFileToAnalyze(packageName, nextPath, next);
         }
       }
-      item.removeFileToCheck();
+      catch (IOException e) {
+        // ignored
+        log("IOException", e);
+      }
+      return exported;
+    });
+
+    final List<FileInfo> exportedFiles = new ArrayList<>();
+    for (int i = 0; i < files.size(); i++) {
+      final List<FileInfo> each = found.get(i);
+      if (each == null) {
+        item.incompletePackages.add(files.get(i).packageName);
+        continue;
+      }
+      exportedFiles.addAll(each);
     }
-    catch (IOException e) {
-      // ignored
-      log("IOException", e);
+    item.metrics.exports += exportedFiles.size();
+    return exportedFiles;
+  }
+
+  /**
+   * Runs the work for each input on the read executor and waits for all of it, returning the results in the same order. A result is
+   * null if its work failed, or if the item was cancelled before it started.
+   */
+  @NotNull
+  private <T, R> List<R> runInParallel(@NotNull WorkItem item,
+                                       @NotNull List<T> inputs,
+                                       @NotNull ProgressIndicator indicator,
+                                       @NotNull Function<T, R> work) {
+    final AtomicInteger done = new AtomicInteger();
+    indicator.setFraction(0);
+    final List<CompletableFuture<R>> futures = new ArrayList<>(inputs.size());
+    for (T input : inputs) {
+      futures.add(CompletableFuture.supplyAsync(() -> {
+        try {
+          return item.isCancelled ? null : work.apply(input);
+        }
+        catch (ProcessCanceledException e) {
+          return null;
+        }
+        catch (RuntimeException e) {
+          log("Analysis failed", e);
+          return null;
+        }
+        finally {
+          indicator.setFraction((double)done.incrementAndGet() / inputs.size());
+        }
+      }, readExecutor));
     }
+    ProgressIndicatorUtils.awaitWithCheckCanceled(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])));
+    return futures.stream().map(CompletableFuture::join).toList();
   }
 
-  private void deleteNextFile(Project project, WorkItem item) {
-    final VirtualFile filteredFile = item.getFileToDelete();
-    if (filteredFile != null) {
-      OpenApiUtils.safeRunWriteAction(() -> {
+  private void deleteFilteredFiles(@NotNull WorkItem item) {
+    if (item.filteredFiles.isEmpty()) {
+      return;
+    }
+    final List<VirtualFile> files = new ArrayList<>(item.filteredFiles);
+    ApplicationManager.getApplication().invokeLater(() -> OpenApiUtils.safeRunWriteAction(() -> {
+      for (VirtualFile file : files) {
         try {
-          log("Deleting file ", filteredFile.getName());
-          filteredFile.delete(this); // need write access
-          item.removeFileToDelete();
+          log("Deleting file ", file.getName());
+          file.delete(this); // need write access
         }
         catch (IOException e) {
           // ignored
         }
-      });
-    }
+      }
+    }));
   }
 
   private static void clearProjectCaches(@NotNull Project project) {
-    ANALYZED_PROJECT_FILES.remove(project.getBasePath());
-    WORK_ITEMS.remove(project.getBasePath());
+    final String projectPath = project.getBasePath();
+    if (projectPath == null) {
+      return;
+    }
+    ANALYZED_PROJECT_FILES.remove(projectPath);
+    final WorkItem item = WORK_ITEMS.remove(projectPath);
+    if (item != null) {
+      item.isCancelled = true;
+    }
     FlutterIconLineMarkerProvider.initialize();
   }
 
-  // Look for classes in a package that define static variables with named icons.
+  // Look for the files in a package; the classes in them that define static variables with named icons are found later.
   // We may have to analyze exports to get to them, as is done by some icon aggregator packages.
-  private void findFontFiles(@NotNull Project project, @NotNull String packageName, @NotNull WorkItem item) {
-    if (packageName.isEmpty() || FontPreviewProcessor.UNSUPPORTED_PACKAGES.get(packageName) != null) {
-      return;
-    }
-    log("Analyzing package ", packageName);
-    final Application application = ApplicationManager.getApplication();
+  @NotNull
+  private static Collection<VirtualFile> findFontFiles(@NotNull Project project, @NotNull String packageName) {
     final GlobalSearchScope projectScope = new ProjectAndLibrariesScope(project);
     Collection<VirtualFile> files = DumbService.getInstance(project)
       .runReadActionInSmartMode(() -> DartLibraryIndex.getFilesByLibName(projectScope, packageName));
@@ -388,7 +514,7 @@ public class FontPreviewProcessor {
       files = DumbService.getInstance(project).runReadActionInSmartMode(() -> FileTypeIndex.getFiles(DartFileType.INSTANCE, scope));
       // TODO(messick) This finds way too many files. Optimize.
     }
-    item.addFilesToRewrite(packageName, files);
+    return files;
   }
 
   private VirtualFile filterImports(VirtualFile file) {
@@ -453,156 +579,67 @@ public class FontPreviewProcessor {
   }
 
   static class WorkItem {
-    final Queue<String> packagesToAnalyze = new LinkedList<>();
-    final Queue<FileInfo> filesToAnalyze = new LinkedList<>();
-    final Queue<VirtualFile> filesToDelete = new LinkedList<>();
-    final Queue<FileInfo> filesToRewrite = new LinkedList<>();
-    final Queue<ClassInfo> classesToAnalyze = new LinkedList<>();
-    final Queue<FileInfo> filesToCheck = new LinkedList<>();
-    final Map<String, PathInfo> filesWithNoClasses = new HashMap<>();
     final String projectPath;
-    boolean isCancelled = false;
-
-    WorkItem(String packageName) {
-      this.projectPath = packageName;
-    }
-
-    boolean hasClasses() {
-      return !classesToAnalyze.isEmpty();
-    }
+    final List<String> packages;
 
-    boolean hasFilesToAnalyze() {
-      return !filesToAnalyze.isEmpty();
-    }
-
-    boolean hasFilesToCheck() {
-      return !filesToCheck.isEmpty();
-    }
+    /**
+     * The paths of the files analyzed so far. Shared with {@link #ANALYZED_PROJECT_FILES} until the project's caches are cleared.
+     */
+    final Set<String> analyzedFiles;
 
-    boolean hasFilesToDelete() {
-      return !filesToDelete.isEmpty();
-    }
+    /**
+     * Copies of package files with their imports removed, deleted once the analysis is done.
+     */
+    final Queue<VirtualFile> filteredFiles = new ConcurrentLinkedQueue<>();
 
-    boolean hasFilesToRewrite() {
-      return !filesToRewrite.isEmpty();
-    }
+    /**
+     * The classes found in each package and the paths of the files that define them. Only updated from the analysis task's thread.
+     */
+    final Map<String, Map<String, Set<String>>> foundClasses = new HashMap<>();
 
-    boolean hasPackages() {
-      return !packagesToAnalyze.isEmpty();
-    }
+    /**
+     * Packages with files that couldn't be read or resolved, so their classes aren't saved.
+     */
+    final Set<String> incompletePackages = ConcurrentHashMap.newKeySet();
 
-    void addFileToAnalyze(@NotNull String packageName, @NotNull String path, @NotNull VirtualFile name) {
-      filesToAnalyze.add(new FileInfo(packageName, path, name));
-    }
-
-    void addFileToCheck(@NotNull String packageName, @NotNull String path, @NotNull VirtualFile name) {
-      filesToCheck.add(new FileInfo(packageName, path, name));
-    }
-
-    public void addFileToDelete(@NotNull VirtualFile file) {
-      filesToDelete.add(file);
-    }
+    final Metrics metrics = new Metrics();
+    volatile boolean isCancelled = false;
 
-    void addFileToRewrite(@NotNull String packageName, @NotNull String path, @NotNull VirtualFile name) {
-      filesToRewrite.add(new FileInfo(packageName, path, name));
-    }
-
-    @Nullable
-    FileInfo getFileToAnalyze() {
-      return filesToAnalyze.peek();
-    }
-
-    @Nullable
-    ClassInfo getClassToCheck() {
-      return classesToAnalyze.peek();
-    }
-
-    void removeClassToCheck() {
-      classesToAnalyze.remove();
-    }
-
-    void removeFileToAnalyze() {
-      filesToAnalyze.remove();
-    }
-
-    @Nullable
-    FileInfo getFileToCheck() {
-      return filesToCheck.peek();
-    }
-
-    void removeFileToCheck() {
-      filesToCheck.remove();
-    }
-
-    @Nullable
-    FileInfo getFileToRewrite() {
-      return filesToRewrite.peek();
-    }
-
-    void removeFileToRewrite() {
-      synchronized (this) {
-        if (!filesToRewrite.isEmpty()) {
-          filesToRewrite.remove();
-        }
-      }
-    }
-
-    @Nullable
-    VirtualFile getFileToDelete() {
-      return filesToDelete.peek();
-    }
-
-    void removeFileToDelete() {
-      synchronized (this) {
-        if (!filesToDelete.isEmpty()) {
-          filesToDelete.remove();
-        }
-      }
-    }
-
-    @Nullable
-    String getPackage() {
-      return packagesToAnalyze.peek();
-    }
-
-    void removePackage() {
-      packagesToAnalyze.remove();
-    }
-
-    void addPackages(@NotNull List<String> packages) {
-      packagesToAnalyze.addAll(packages);
-    }
-
-    public void addClasses(@NotNull String packageName, @NotNull String filePath, @NotNull Set<DartComponentName> names) {
-      classesToAnalyze.addAll(
-        names.stream()
-          .map((each) -> new ClassInfo(packageName, filePath, each))
-          .toList());
+    WorkItem(@NotNull String projectPath, @NotNull Set<String> analyzedFiles, @NotNull List<String> packages) {
+      this.projectPath = projectPath;
+      this.analyzedFiles = analyzedFiles;
+      this.packages = packages;
     }
+  }
 
-    void addFilesToRewrite(@NotNull String packageName, @NotNull Collection<VirtualFile> files) {
-      filesToRewrite.addAll(
-        files.stream()
-          .filter((each) -> {
-            final String path = each.getPath();
-            final int packageIndex = path.indexOf(packageName);
-            return !(packageIndex < 0 || isInSdk(path));
-          })
-          .map((each) -> new FileInfo(packageName, each.getPath(), each))
-          .toList());
+  /**
+   * What an analysis found and how long its stages took. Only updated from the analysis task's thread.
+   */
+  static class Metrics {
+    int packages;
+    int files;
+    int classes;
+    int exports;
+    int savedClasses;
+    long packageFilesMillis;
+    long classesMillis;
+    long exportsMillis;
+    long exportedClassesMillis;
+
+    @Override
+    public String toString() {
+      return savedClasses + " saved classes; " +
+             packages + " packages, " + files + " files, " + classes + " classes, " + exports + " exported files; " +
+             "finding files took " + packageFilesMillis + "ms, finding classes " + classesMillis + "ms, " +
+             "following exports " + exportsMillis + "ms, finding exported classes " + exportedClassesMillis + "ms";
     }
   }
 
-  static class ClassInfo {
-    private final String packageName;
-    private final String filePath;
-    private final DartComponentName name;
-
-    ClassInfo(String packageName, String filePath, DartComponentName name) {
-      this.packageName = packageName;
-      this.filePath = filePath;
-      this.name = name;
-    }
+  /**
+   * A package's library directory from {@code package_config.json} and its content version from
+   * {@link IconClassCache#getContentVersion}, which identify the version analyzed.
+   */
+  private record PackageVersion(@NotNull String libraryPath, @NotNull String hash) {
   }
 
   static class FileInfo {
@@ -616,14 +653,4 @@ public class FontPreviewProcessor {
       this.file = file;
     }
   }
-
-  static class PathInfo {
-    private final String packageName;
-    private final String filePath;
-
-    PathInfo(String packageName, String filePath) {
-      this.packageName = packageName;
-      this.filePath = filePath;
-    }
-  }
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.font;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * The icon classes found in each package, saved to disk so icon previews are available as soon as a project is opened, rather than after
+ * its packages have been analyzed again.
+ * <p>
+ * A package's classes are stored under the path of its library directory from {@code package_config.json}, which includes the version
+ * of a hosted package, along with its content version from {@link #getContentVersion}. They are only used while both match and every
+ * file that defines one of the classes still exists. A package with no icon classes is saved with none, so it isn't analyzed again.
+ */
+final class IconClassCache {
+  private static final @NotNull Logger LOG = Logger.getInstance(IconClassCache.class);
+  private static final @NotNull Gson GSON = new Gson();
+
+  /**
+   * Changed whenever what is saved changes, so files written by other versions of the plugin are ignored.
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * The number of package versions remembered. The least recently used are dropped.
+   */
+  static final int MAX_PACKAGES = 64;
+
+  private static class Fields {
+    @SerializedName("version")
+    int version;
+
+    @SerializedName("packages")
+    Map<String, PackageClasses> packages;
+  }
+
+  private static class PackageClasses {
+    @SerializedName("hash")
+    String hash;
+
+    /**
+     * The paths of the files that define each class.
+     */
+    @SerializedName("classes")
+    Map<String, List<String>> classes;
+  }
+
+  private final @NotNull Path file;
+
+  /**
+   * Saved packages by the path of their library directory, least recently used first; null until the file has been read.
+   */
+  private Map<String, PackageClasses> packages;
+  private boolean modified;
+
+  IconClassCache(@NotNull Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Returns the saved classes and the paths of the files that define them for the package with the given library directory, or null if
+   * none were saved for the package with the given content hash.
+   */
+  @Nullable
+  synchronized Map<String, List<String>> get(@NotNull String libraryPath, @NotNull String hash) {
+    final PackageClasses saved = getPackages().get(libraryPath);
+    if (saved == null || !hash.equals(saved.hash) || saved.classes == null) {
+      return null;
+    }
+    for (List<String> paths : saved.classes.values()) {
+      for (String path : paths) {
+        if (!Files.exists(Paths.get(path))) {
+          return null;
+        }
+      }
+    }
+    return Collections.unmodifiableMap(saved.classes);
+  }
+
+  /**
+   * Remembers the classes found in the package with the given library directory and content hash, replacing any saved for another hash.
+   */
+  synchronized void put(@NotNull String libraryPath, @NotNull String hash, @NotNull Map<String, ? extends Collection<String>> classes) {
+    final PackageClasses saved = new PackageClasses();
+    saved.hash = hash;
+    saved.classes = new TreeMap<>();
+    for (Map.Entry<String, ? extends Collection<String>> entry : classes.entrySet()) {
+      saved.classes.put(entry.getKey(), new ArrayList<>(new TreeSet<>(entry.getValue())));
+    }
+    getPackages().put(libraryPath, saved);
+    modified = true;
+  }
+
+  /**
+   * Writes the saved classes to disk if they have changed since they were read.
+   */
+  synchronized void save() {
+    if (!modified) {
+      return;
+    }
+    final Fields fields = new Fields();
+    fields.version = FORMAT_VERSION;
+    fields.packages = packages;
+    try {
+      Files.createDirectories(file.getParent());
+      final Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        GSON.toJson(fields, writer);
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      modified = false;
+    }
+    catch (IOException | RuntimeException e) {
+      LOG.info("Failed to save icon classes to " + file, e);
+    }
+  }
+
+  @NotNull
+  private Map<String, PackageClasses> getPackages() {
+    if (packages != null) {
+      return packages;
+    }
+    packages = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, PackageClasses> eldest) {
+        return size() > MAX_PACKAGES;
+      }
+    };
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      final Fields fields = GSON.fromJson(reader, Fields.class);
+      if (fields != null && fields.version == FORMAT_VERSION && fields.packages != null) {
+        packages.putAll(fields.packages);
+      }
+    }
+    catch (NoSuchFileException e) {
+      // Nothing has been saved yet.
+    }
+    catch (IOException | JsonParseException e) {
+      LOG.info("Failed to read icon classes from " + file, e);
+    }
+    return packages;
+  }
+
+  /**
+   * The content version of every hosted package.
+   */
+  static final String HOSTED_CONTENT_VERSION = "hosted";
+
+  /**
+   * Returns a string that changes whenever the Dart files of the package with the given library directory change, or null if it can't be
+   * read.
+   * <p>
+   * Hosted packages aren't modified once they are in the pub cache, and their path includes their version, so their files aren't read.
+   * Other packages, such as path and git dependencies, are identified by a hash of their Dart files.
+   */
+  @Nullable
+  static String getContentVersion(@NotNull Path directory) {
+    if (isHostedPackage(directory)) {
+      return Files.isDirectory(directory) ? HOSTED_CONTENT_VERSION : null;
+    }
+    return hashContents(directory);
+  }
+
+  /**
+   * Returns whether the given library directory belongs to a hosted package in the pub cache, which is laid out as
+   * {@code hosted/<host>/<name>-<version>/lib}.
+   */
+  static boolean isHostedPackage(@NotNull Path directory) {
+    final Path packageDirectory = directory.getParent();
+    final Path hostDirectory = packageDirectory == null ? null : packageDirectory.getParent();
+    final Path hostedDirectory = hostDirectory == null ? null : hostDirectory.getParent();
+    return hostedDirectory != null &&
+           hostedDirectory.getFileName() != null &&
+           hostedDirectory.getFileName().toString().equals("hosted") &&
+           packageDirectory.getFileName().toString().contains("-");
+  }
+
+  /**
+   * Returns a hash of the names and contents of the Dart files in the given directory and its subdirectories, or null if it can't be
+   * read.
+   */
+  @Nullable
+  static String hashContents(@NotNull Path directory) {
+    if (!Files.isDirectory(directory)) {
+      return null;
+    }
+    try (Stream<Path> walk = Files.walk(directory)) {
+      final List<Path> files = walk.filter((path) -> path.toString().endsWith(".dart") && Files.isRegularFile(path)).sorted().toList();
+      final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (Path path : files) {
+        digest.update(directory.relativize(path).toString().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte)0);
+        digest.update(Files.readAllBytes(path));
+        digest.update((byte)0);
+      }
+      return HexFormat.of().formatHex(digest.digest());
+    }
+    catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+      LOG.info("Failed to hash " + directory, e);
+      return null;
+    }
+  }
+}
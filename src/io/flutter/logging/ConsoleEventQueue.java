@@ -0,0 +1,262 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.IntConsumer;
+
+/**
+ * The console output tasks of a single Flutter app, run one at a time in the order they were added.
+ * <p>
+ * Each app has its own queue, so an error storm in one app doesn't delay the output of another. Tasks added with {@link #offer} (rendering
+ * structured errors) can be dropped when too many are waiting; the drop policy decides which ones. The number dropped is reported once
+ * the tasks that were waiting when the first of them was dropped have run, so it appears even while errors keep arriving. Tasks added
+ * with {@link #add} are never dropped.
+ * <p>
+ * A place in the queue can also be {@linkplain #reserve() reserved} for output that isn't ready yet, such as a log record whose values are
+ * still being fetched. Tasks added after it wait until it's filled in, so output is printed in the order it arrived.
+ */
+class ConsoleEventQueue {
+  private static final @NotNull Logger LOG = Logger.getInstance(ConsoleEventQueue.class);
+
+  /**
+   * Which tasks to drop when the queue is full.
+   */
+  enum DropPolicy {
+    /**
+     * Keep the tasks already waiting and drop new ones. The start of an error storm is usually the most useful part.
+     */
+    KEEP_FIRST,
+
+    /**
+     * Drop the oldest waiting task to make room for the new one.
+     */
+    KEEP_LATEST
+  }
+
+  /**
+   * A snapshot of the queue's statistics.
+   *
+   * @param depth     the number of tasks waiting
+   * @param maxDepth  the largest number of tasks that have been waiting at once
+   * @param processed the number of tasks run
+   * @param dropped   the number of tasks dropped because the queue was full
+   */
+  record Stats(int depth, int maxDepth, long processed, long dropped) {
+  }
+
+  private static final class Task {
+    /**
+     * Null until a reserved task is filled in.
+     */
+    @Nullable Runnable runnable;
+    final boolean droppable;
+
+    Task(@Nullable Runnable runnable, boolean droppable) {
+      this.runnable = runnable;
+      this.droppable = droppable;
+    }
+
+    void run() {
+      if (runnable != null) {
+        runnable.run();
+      }
+    }
+  }
+
+  /**
+   * A reserved place in the queue.
+   */
+  final class Slot {
+    @NotNull private final Task task;
+
+    private Slot(@NotNull Task task) {
+      this.task = task;
+    }
+
+    /**
+     * Sets the task to run in this place. Only the first call has any effect.
+     */
+    void fill(@NotNull Runnable runnable) {
+      synchronized (ConsoleEventQueue.this) {
+        if (task.runnable != null) {
+          return;
+        }
+        task.runnable = runnable;
+        startDraining();
+      }
+    }
+  }
+
+  private final int capacity;
+  @NotNull private final DropPolicy dropPolicy;
+  @NotNull private final IntConsumer reportDropped;
+  @NotNull private final Executor executor;
+
+  private final Deque<Task> tasks = new ArrayDeque<>();
+
+  /**
+   * The number of droppable tasks waiting.
+   */
+  private int droppableCount;
+
+  private boolean draining;
+
+  private int maxDepth;
+  private long processed;
+  private long dropped;
+  private int droppedSinceReport;
+
+  /**
+   * The value of {@link #processed} at which the tasks dropped since the last report are reported.
+   */
+  private long reportDroppedAt;
+
+  /**
+   * @param capacity      the number of droppable tasks that can wait at once
+   * @param reportDropped called on the queue with the number of tasks dropped, once the tasks that were waiting when they were dropped
+   *                      have run
+   */
+  ConsoleEventQueue(int capacity, @NotNull DropPolicy dropPolicy, @NotNull IntConsumer reportDropped) {
+    this(capacity, dropPolicy, reportDropped, AppExecutorUtil.getAppExecutorService());
+  }
+
+  ConsoleEventQueue(int capacity, @NotNull DropPolicy dropPolicy, @NotNull IntConsumer reportDropped, @NotNull Executor executor) {
+    this.capacity = capacity;
+    this.dropPolicy = dropPolicy;
+    this.reportDropped = reportDropped;
+    this.executor = executor;
+  }
+
+  /**
+   * Adds a task that may be dropped if the queue is full. Returns false if the task itself was dropped.
+   */
+  synchronized boolean offer(@NotNull Runnable runnable) {
+    if (droppableCount >= capacity) {
+      dropped++;
+      droppedSinceReport++;
+      if (dropPolicy == DropPolicy.KEEP_LATEST) {
+        for (Iterator<Task> it = tasks.iterator(); it.hasNext(); ) {
+          if (it.next().droppable) {
+            it.remove();
+            droppableCount--;
+            break;
+          }
+        }
+      }
+      if (droppedSinceReport == 1) {
+        reportDroppedAt = processed + tasks.size();
+      }
+      if (dropPolicy == DropPolicy.KEEP_FIRST) {
+        return false;
+      }
+    }
+    enqueue(new Task(runnable, true));
+    return true;
+  }
+
+  /**
+   * Adds a task that is never dropped.
+   */
+  synchronized void add(@NotNull Runnable runnable) {
+    enqueue(new Task(runnable, false));
+  }
+
+  /**
+   * Reserves a place for a task that is never dropped, to be {@linkplain Slot#fill filled in} later. Tasks added after it don't run until
+   * it has been filled in and run.
+   */
+  @NotNull
+  synchronized Slot reserve() {
+    final Task task = new Task(null, false);
+    enqueue(task);
+    return new Slot(task);
+  }
+
+  /**
+   * Returns a future that completes once every task added or reserved before this call has run.
+   */
+  @NotNull
+  CompletableFuture<Void> flush() {
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+    add(() -> done.complete(null));
+    return done;
+  }
+
+  @NotNull
+  synchronized Stats getStats() {
+    return new Stats(tasks.size(), maxDepth, processed, dropped);
+  }
+
+  private void enqueue(@NotNull Task task) {
+    tasks.add(task);
+    if (task.droppable) {
+      droppableCount++;
+    }
+    maxDepth = Math.max(maxDepth, tasks.size());
+    startDraining();
+  }
+
+  private void startDraining() {
+    if (!draining && !tasks.isEmpty() && tasks.peek().runnable != null) {
+      draining = true;
+      executor.execute(this::drain);
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      final Task task;
+      final int droppedCount;
+      synchronized (this) {
+        final Task head = tasks.peek();
+        if (droppedSinceReport > 0 && (head == null || processed >= reportDroppedAt)) {
+          task = null;
+          droppedCount = droppedSinceReport;
+          droppedSinceReport = 0;
+        }
+        else if (head != null && head.runnable == null) {
+          // Wait for the reserved task to be filled in.
+          draining = false;
+          return;
+        }
+        else if (head != null) {
+          task = tasks.remove();
+          if (task.droppable) {
+            droppableCount--;
+          }
+          processed++;
+          droppedCount = 0;
+        }
+        else {
+          draining = false;
+          return;
+        }
+      }
+
+      try {
+        if (task != null) {
+          task.run();
+        }
+        else {
+          reportDropped.accept(droppedCount);
+        }
+      }
+      catch (Throwable t) {
+        LOG.warn(t);
+      }
+    }
+  }
+}
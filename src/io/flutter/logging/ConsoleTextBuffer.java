@@ -0,0 +1,71 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.intellij.execution.ui.ConsoleView;
+import com.intellij.execution.ui.ConsoleViewContentType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Styled text collected for the console and printed in one batch.
+ * <p>
+ * Every call to {@link ConsoleView#print} goes through the console's locking and document update machinery, so a structured error with
+ * dozens of properties is rendered here first. Adjacent text with the same content type is merged into a single run, so flushing usually
+ * takes only a handful of calls.
+ */
+class ConsoleTextBuffer {
+  private final StringBuilder text = new StringBuilder();
+  private final List<Run> runs = new ArrayList<>();
+
+  void print(@NotNull String s, @NotNull ConsoleViewContentType contentType) {
+    if (s.isEmpty()) {
+      return;
+    }
+    text.append(s);
+
+    final int last = runs.size() - 1;
+    if (last >= 0 && runs.get(last).contentType().equals(contentType)) {
+      runs.set(last, new Run(text.length(), contentType));
+    }
+    else {
+      runs.add(new Run(text.length(), contentType));
+    }
+  }
+
+  boolean isEmpty() {
+    return text.isEmpty();
+  }
+
+  /**
+   * Returns the text without styling.
+   */
+  @NotNull
+  String getText() {
+    return text.toString();
+  }
+
+  /**
+   * Prints the buffered text to the console and empties the buffer.
+   */
+  void flushTo(@NotNull ConsoleView console) {
+    int start = 0;
+    for (Run run : runs) {
+      console.print(text.substring(start, run.end()), run.contentType());
+      start = run.end();
+    }
+    text.setLength(0);
+    runs.clear();
+  }
+
+  /**
+   * Text in a single content type, ending at the given offset.
+   */
+  private record Run(int end, @NotNull ConsoleViewContentType contentType) {
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * An immutable, flattened copy of the parts of a diagnostics tree needed to print it, such as a structured Flutter error.
+ * <p>
+ * Each node is decoded from JSON exactly once, into parallel arrays indexed by node. A node's properties and children are stored next to
+ * each other, so they are described by index ranges rather than lists of wrapper objects; the root is node 0. This is much smaller than
+ * the JSON it's decoded from, and can be walked repeatedly without allocating.
+ * <p>
+ * Unlike {@link DiagnosticsNode}, it doesn't keep object ids, so it can't be used to look up the Dart objects the nodes describe. That
+ * also means a repeated error decodes to the same tree, and {@link #decode(JsonObject, DiagnosticsTree)} can return the earlier one.
+ */
+class DiagnosticsTree {
+  static final int ROOT = 0;
+
+  private static final byte SHOW_NAME = 1;
+  private static final byte SHOW_SEPARATOR = 1 << 1;
+  private static final byte HAS_CHILDREN = 1 << 2;
+  private static final byte HAS_GRANDCHILDREN = 1 << 3;
+
+  private static final JsonArray EMPTY_ARRAY = new JsonArray();
+
+  private final DiagnosticLevel[] levels;
+  private final DiagnosticsTreeStyle[] styles;
+  private final String[] names;
+  private final String[] descriptions;
+  private final String[] types;
+  private final String[] values;
+  private final byte[] flags;
+
+  /**
+   * A node's properties are the nodes from {@code firstProperty[node]} up to {@code firstChild[node]}, and its children the nodes from
+   * {@code firstChild[node]} up to {@code childrenEnd[node]}.
+   */
+  private final int[] firstProperty;
+  private final int[] firstChild;
+  private final int[] childrenEnd;
+
+  private int size;
+
+  private DiagnosticsTree(int capacity) {
+    levels = new DiagnosticLevel[capacity];
+    styles = new DiagnosticsTreeStyle[capacity];
+    names = new String[capacity];
+    descriptions = new String[capacity];
+    types = new String[capacity];
+    values = new String[capacity];
+    flags = new byte[capacity];
+    firstProperty = new int[capacity];
+    firstChild = new int[capacity];
+    childrenEnd = new int[capacity];
+  }
+
+  /**
+   * Decodes the tree rooted at the given node.
+   *
+   * @param previous a tree to return instead if it was decoded from JSON describing the same tree, so repeated errors share one copy.
+   */
+  @NotNull
+  static DiagnosticsTree decode(@NotNull JsonObject json, @Nullable DiagnosticsTree previous) {
+    if (previous != null && previous.matches(ROOT, json)) {
+      return previous;
+    }
+
+    final DiagnosticsTree tree = new DiagnosticsTree(1 + countDescendants(json));
+    tree.size = 1;
+    tree.decodeNode(ROOT, json);
+    return tree;
+  }
+
+  int size() {
+    return size;
+  }
+
+  @NotNull
+  DiagnosticLevel getLevel(int node) {
+    return levels[node];
+  }
+
+  @NotNull
+  DiagnosticsTreeStyle getStyle(int node) {
+    return styles[node];
+  }
+
+  @Nullable
+  String getName(int node) {
+    return names[node];
+  }
+
+  @Nullable
+  String getDescription(int node) {
+    return descriptions[node];
+  }
+
+  @Nullable
+  String getType(int node) {
+    return types[node];
+  }
+
+  /**
+   * Returns the value associated with the node. This is a URL for DevToolsDeepLinkProperty nodes.
+   */
+  @Nullable
+  String getValue(int node) {
+    return values[node];
+  }
+
+  boolean getShowName(int node) {
+    return (flags[node] & SHOW_NAME) != 0;
+  }
+
+  /**
+   * Separator text to show between property names and values.
+   */
+  @NotNull
+  String getSeparator(int node) {
+    return getShowSeparator(node) ? ":" : "";
+  }
+
+  boolean getShowSeparator(int node) {
+    return (flags[node] & SHOW_SEPARATOR) != 0;
+  }
+
+  /**
+   * Whether the node reports having children. The children themselves may not have been included in the JSON.
+   */
+  boolean hasChildren(int node) {
+    return (flags[node] & HAS_CHILDREN) != 0;
+  }
+
+  /**
+   * Whether any of the node's children {@linkplain #hasChildren has children}.
+   */
+  boolean hasGrandchildren(int node) {
+    return (flags[node] & HAS_GRANDCHILDREN) != 0;
+  }
+
+  int firstProperty(int node) {
+    return firstProperty[node];
+  }
+
+  int propertiesEnd(int node) {
+    return firstChild[node];
+  }
+
+  boolean hasProperties(int node) {
+    return firstProperty[node] < firstChild[node];
+  }
+
+  int firstChild(int node) {
+    return firstChild[node];
+  }
+
+  int childrenEnd(int node) {
+    return childrenEnd[node];
+  }
+
+  /**
+   * Returns the node's name and description, as shown on one line.
+   */
+  @NotNull
+  String getText(int node) {
+    final String name = names[node];
+    if (StringUtil.isEmpty(name) || !getShowName(node)) {
+      return String.valueOf(descriptions[node]);
+    }
+    return name + getSeparator(node) + ' ' + descriptions[node];
+  }
+
+  private static int countDescendants(@NotNull JsonObject json) {
+    int count = 0;
+    for (JsonElement node : getArray(json, "properties")) {
+      count += 1 + countDescendants(node.getAsJsonObject());
+    }
+    for (JsonElement node : getArray(json, "children")) {
+      count += 1 + countDescendants(node.getAsJsonObject());
+    }
+    return count;
+  }
+
+  /**
+   * Fills in the given node, allocating its properties and children together at the end of the tree, then fills them in.
+   */
+  private void decodeNode(int node, @NotNull JsonObject json) {
+    final JsonArray properties = getArray(json, "properties");
+    final JsonArray children = getArray(json, "children");
+
+    levels[node] = decodeLevel(json);
+    styles[node] = decodeStyle(json);
+    names[node] = getString(json, "name");
+    descriptions[node] = getString(json, "description");
+    types[node] = getString(json, "type");
+    values[node] = getString(json, "value");
+    flags[node] = decodeFlags(json, children);
+
+    firstProperty[node] = size;
+    firstChild[node] = size + properties.size();
+    childrenEnd[node] = firstChild[node] + children.size();
+    size = childrenEnd[node];
+
+    for (int i = 0; i < properties.size(); i++) {
+      decodeNode(firstProperty[node] + i, properties.get(i).getAsJsonObject());
+    }
+    for (int i = 0; i < children.size(); i++) {
+      decodeNode(firstChild[node] + i, children.get(i).getAsJsonObject());
+    }
+  }
+
+  /**
+   * Returns whether decoding the given JSON as the given node would produce this tree's copy of it.
+   */
+  private boolean matches(int node, @NotNull JsonObject json) {
+    final JsonArray properties = getArray(json, "properties");
+    final JsonArray children = getArray(json, "children");
+
+    if (firstChild[node] - firstProperty[node] != properties.size() || childrenEnd[node] - firstChild[node] != children.size()) {
+      return false;
+    }
+    if (levels[node] != decodeLevel(json) ||
+        styles[node] != decodeStyle(json) ||
+        flags[node] != decodeFlags(json, children) ||
+        !Objects.equals(descriptions[node], getString(json, "description")) ||
+        !Objects.equals(names[node], getString(json, "name")) ||
+        !Objects.equals(types[node], getString(json, "type")) ||
+        !Objects.equals(values[node], getString(json, "value"))) {
+      return false;
+    }
+
+    for (int i = 0; i < properties.size(); i++) {
+      if (!matches(firstProperty[node] + i, properties.get(i).getAsJsonObject())) {
+        return false;
+      }
+    }
+    for (int i = 0; i < children.size(); i++) {
+      if (!matches(firstChild[node] + i, children.get(i).getAsJsonObject())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static byte decodeFlags(@NotNull JsonObject json, @NotNull JsonArray children) {
+    byte result = 0;
+    if (getBoolean(json, "showName", true)) {
+      result |= SHOW_NAME;
+    }
+    if (getBoolean(json, "showSeparator", true)) {
+      result |= SHOW_SEPARATOR;
+    }
+    if (getBoolean(json, "hasChildren", false)) {
+      result |= HAS_CHILDREN;
+    }
+    for (JsonElement child : children) {
+      if (getBoolean(child.getAsJsonObject(), "hasChildren", false)) {
+        result |= HAS_GRANDCHILDREN;
+        break;
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static DiagnosticLevel decodeLevel(@NotNull JsonObject json) {
+    final String level = getString(json, "level");
+    if (level == null) {
+      return DiagnosticLevel.info;
+    }
+    try {
+      return DiagnosticLevel.valueOf(level);
+    }
+    catch (IllegalArgumentException ignore) {
+      return DiagnosticLevel.info;
+    }
+  }
+
+  @NotNull
+  private static DiagnosticsTreeStyle decodeStyle(@NotNull JsonObject json) {
+    final String style = getString(json, "style");
+    if (style == null) {
+      return DiagnosticsTreeStyle.sparse;
+    }
+    try {
+      return DiagnosticsTreeStyle.valueOf(style);
+    }
+    catch (IllegalArgumentException ignore) {
+      return DiagnosticsTreeStyle.sparse;
+    }
+  }
+
+  @Nullable
+  private static String getString(@NotNull JsonObject json, @NotNull String memberName) {
+    final JsonElement value = json.get(memberName);
+    return value == null || value.isJsonNull() ? null : value.getAsString();
+  }
+
+  private static boolean getBoolean(@NotNull JsonObject json, @NotNull String memberName, boolean defaultValue) {
+    final JsonElement value = json.get(memberName);
+    return value == null || value.isJsonNull() ? defaultValue : value.getAsBoolean();
+  }
+
+  @NotNull
+  private static JsonArray getArray(@NotNull JsonObject json, @NotNull String memberName) {
+    final JsonElement value = json.get(memberName);
+    return value != null && value.isJsonArray() ? value.getAsJsonArray() : EMPTY_ARRAY;
+  }
+}
@@ -6,7 +6,6 @@
 
 package io.flutter.logging;
 
-import com.google.common.annotations.VisibleForTesting;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -27,7 +26,7 @@ import com.intellij.openapi.wm.ToolWindow;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.openapi.wm.ex.ToolWindowManagerEx;
 import com.intellij.ui.SimpleTextAttributes;
-import com.intellij.util.concurrency.QueueProcessor;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import io.flutter.FlutterUtils;
 import io.flutter.devtools.DevToolsUtils;
 import io.flutter.jxbrowser.JxBrowserManager;
@@ -45,11 +44,10 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Handle displaying dart:developer log messages and Flutter.Error messages in the Run and Debug
@@ -68,8 +66,27 @@ public class FlutterConsoleLogManager {
     new ConsoleViewContentType("subtle", SimpleTextAttributes.GRAY_ATTRIBUTES.toTextAttributes());
   private static final ConsoleViewContentType ERROR_CONTENT_TYPE = ConsoleViewContentType.ERROR_OUTPUT;
 
-  private static QueueProcessor<Runnable> queue;
-  private static final AtomicInteger queueLength = new AtomicInteger();
+  /**
+   * The number of structured errors that can wait to be printed for each app. Errors reported while this many are waiting are dropped
+   * and counted.
+   */
+  private static final int MAX_QUEUED_ERRORS = 100;
+
+  /**
+   * The number of log records whose truncated strings and {@code toString()} calls are resolved at the same time.
+   */
+  private static final int MAX_LOG_RECORD_LOOKAHEAD = 32;
+
+  /**
+   * The number of log records that can wait for their values to be resolved. Records logged while this many are waiting are printed with
+   * the values already in the event.
+   */
+  private static final int MAX_WAITING_LOG_RECORDS = 1000;
+
+  /**
+   * How long to wait for a log record's values before printing what the event already contains.
+   */
+  private static final long LOG_RECORD_TIMEOUT_MILLIS = 2000;
 
   /**
    * Set our preferred settings for the run console.
@@ -90,9 +107,39 @@ public class FlutterConsoleLogManager {
 
   private int frameErrorCount = 0;
 
+  /**
+   * The most recently decoded structured error, which an identical error can share.
+   */
+  @Nullable private volatile DiagnosticsTree lastDecodedError;
+
+  /**
+   * Repeats of the most recently printed structured error. Only accessed from the queue.
+   */
+  @NotNull private final RepeatedErrorTracker repeatedErrors;
+
+  /**
+   * A log record and its place in the console queue, reserved when it arrived.
+   */
+  private record PendingLogRecord(@NotNull Event event, @NotNull ConsoleEventQueue.Slot slot) {
+  }
+
+  /**
+   * Log records being rendered. Each is printed in the place reserved for it, so output stays in the order it arrived.
+   */
+  @NotNull private final OrderedRenderQueue<PendingLogRecord, ConsoleTextBuffer> logRecords;
+
+  /**
+   * This app's console output, printed in order.
+   */
+  @NotNull private final ConsoleEventQueue queue;
+
   public FlutterConsoleLogManager(@NotNull ConsoleView console, @NotNull FlutterApp app) {
     this.console = console;
     this.app = app;
+    this.queue = new ConsoleEventQueue(MAX_QUEUED_ERRORS, ConsoleEventQueue.DropPolicy.KEEP_FIRST, this::printDroppedErrorSummary);
+    this.repeatedErrors = new RepeatedErrorTracker(REPEAT_QUIET_MILLIS, System::nanoTime, (delayMillis) ->
+      AppExecutorUtil.getAppScheduledExecutorService().schedule(
+        () -> queue.add(this::printRepeatedErrorSummaryIfQuiet), delayMillis, TimeUnit.MILLISECONDS));
 
     app.addStateListener(new FlutterApp.FlutterAppListener() {
       @Override
@@ -103,48 +150,44 @@ public class FlutterConsoleLogManager {
       @Override
       public void stateChanged(FlutterApp.State newState) {
         frameErrorCount = 0;
+        if (newState == FlutterApp.State.TERMINATED) {
+          logQueueStats();
+        }
       }
 
       @Override
       public void notifyAppReloaded() {
         frameErrorCount = 0;
+        queue.add(FlutterConsoleLogManager.this::printRepeatedErrorSummary);
       }
 
       @Override
       public void notifyAppRestarted() {
         frameErrorCount = 0;
+        queue.add(FlutterConsoleLogManager.this::printRepeatedErrorSummary);
       }
     });
 
-    if (queue == null) {
-      queue = QueueProcessor.createRunnableQueueProcessor();
-    }
+    logRecords = new OrderedRenderQueue<>(
+      MAX_LOG_RECORD_LOOKAHEAD, MAX_WAITING_LOG_RECORDS, LOG_RECORD_TIMEOUT_MILLIS,
+      (record) -> renderLoggingEvent(record.event()),
+      (record) -> renderLoggingEventFallback(record.event()),
+      (record, out) -> record.slot().fill(() -> {
+        printRepeatedErrorSummary();
+        out.flushTo(console);
+      }));
   }
 
   public void handleFlutterErrorEvent(@NotNull Event event) {
     try {
       final ExtensionData extensionData = event.getExtensionData();
       final JsonObject jsonObject = extensionData.getJson().getAsJsonObject();
-      final DiagnosticsNode diagnosticsNode = new DiagnosticsNode(jsonObject, app, false, null);
 
       if (FlutterSettings.getInstance().isShowStructuredErrors()) {
-        queueLength.incrementAndGet();
-
-        queue.add(() -> {
-          try {
-            processFlutterErrorEvent(diagnosticsNode);
-          }
-          catch (Throwable t) {
-            LOG.warn(t);
-          }
-          finally {
-            queueLength.decrementAndGet();
-
-            synchronized (queueLength) {
-              queueLength.notifyAll();
-            }
-          }
-        });
+        // Decode before queueing, so a backlog of errors holds compact trees rather than JSON.
+        final DiagnosticsTree error = DiagnosticsTree.decode(jsonObject, lastDecodedError);
+        lastDecodedError = error;
+        queue.offer(() -> processFlutterErrorEvent(error));
       }
     }
     catch (Throwable t) {
@@ -153,101 +196,167 @@ public class FlutterConsoleLogManager {
   }
 
   /**
-   * Wait until all pending work has completed.
+   * Returns a future that completes once all the errors and log records received so far have been printed, including log records whose
+   * values are still being fetched.
    */
-  public void flushFlutterErrorQueue() {
-    // If the queue isn't empty, then wait until the all the items have been processed.
-    if (queueLength.get() > 0) {
-      try {
-        while (queueLength.get() > 0) {
-          synchronized (queueLength) {
-            queueLength.wait();
-          }
-        }
-      }
-      catch (InterruptedException e) {
-        LOG.error(e);
-      }
+  @NotNull
+  public CompletableFuture<Void> flushFlutterErrorQueue() {
+    return queue.flush();
+  }
+
+  /**
+   * Logs how busy this app's console queue got, when it had to drop errors or verbose logging is on.
+   */
+  private void logQueueStats() {
+    final ConsoleEventQueue.Stats stats = queue.getStats();
+    if (stats.dropped() > 0 || FlutterSettings.getInstance().isVerboseLogging()) {
+      LOG.info("Console queue for " + app.getProject().getName() + ": " + stats.processed() + " processed, " + stats.dropped() +
+               " errors dropped, at most " + stats.maxDepth() + " waiting");
     }
   }
 
+  private void printDroppedErrorSummary(int count) {
+    printRepeatedErrorSummary();
+    console.print("(" + count + " more Flutter " + StringUtil.pluralize("error", count) +
+                  " not shown; too many were reported at once)\n", SUBTLE_CONTENT_TYPE);
+  }
+
+  /**
+   * How long a repeated error has to stop being reported before its repeat count is printed.
+   */
+  private static final long REPEAT_QUIET_MILLIS = 1000;
+
   private static final int errorSeparatorLength = 100;
   private static final String errorSeparatorChar = "=";
 
-  private static final ArrayList<DiagnosticsNode> emptyList = new ArrayList<>();
-
   /**
    * Pretty print the error using the available console syling attributes.
+   * <p>
+   * The error is rendered into a buffer and printed in one batch. If it's identical to the previous error (for example, a layout overflow
+   * reported on every frame), only a repeat count is kept; it's printed once something else is printed or the errors stop. An error that
+   * decoded to the same tree as the previous one isn't rendered again.
    */
-  private void processFlutterErrorEvent(@NotNull DiagnosticsNode diagnosticsNode) {
-    final String description = " " + diagnosticsNode + " ";
+  private void processFlutterErrorEvent(@NotNull DiagnosticsTree error) {
+    final boolean terse = !isFirstErrorForFrame() && !FlutterSettings.getInstance().isIncludeAllStackTraces();
+    frameErrorCount++;
 
-    final boolean terseError = !isFirstErrorForFrame() && !FlutterSettings.getInstance().isIncludeAllStackTraces();
+    final boolean collapse = FlutterSettings.getInstance().isCollapseRepeatedErrors();
+    final boolean repeated;
+    final ConsoleTextBuffer out = new ConsoleTextBuffer();
+    final List<Runnable> notifications = new ArrayList<>();
+    if (collapse && repeatedErrors.isLastError(error, terse)) {
+      repeated = true;
+    }
+    else {
+      renderFlutterError(out, notifications, error, terse);
+      repeated = collapse && repeatedErrors.isLastError(out.getText());
+    }
 
-    frameErrorCount++;
+    if (repeated) {
+      repeatedErrors.repeated();
+      return;
+    }
+
+    printRepeatedErrorSummary();
+    repeatedErrors.printed(error, terse, out.getText());
+    out.flushTo(console);
+    notifications.forEach(Runnable::run);
+  }
+
+  /**
+   * Prints how many times the last error was repeated, if it was, and forgets it so the next occurrence is printed in full.
+   */
+  private void printRepeatedErrorSummary() {
+    printRepeatCount(repeatedErrors.takeCount());
+  }
+
+  private void printRepeatedErrorSummaryIfQuiet() {
+    printRepeatCount(repeatedErrors.takeCountIfQuiet());
+  }
+
+  private void printRepeatCount(int count) {
+    if (count > 0) {
+      console.print("(The error above was reported " + count + " more " + StringUtil.pluralize("time", count) + ")\n",
+                    SUBTLE_CONTENT_TYPE);
+    }
+  }
+
+  /**
+   * Renders a structured error.
+   *
+   * @param notifications collects notifications to show if the error is printed.
+   */
+  private void renderFlutterError(@NotNull ConsoleTextBuffer out,
+                                  @NotNull List<Runnable> notifications,
+                                  @NotNull DiagnosticsTree error,
+                                  boolean terseError) {
+    final int root = DiagnosticsTree.ROOT;
+    final String description = " " + error.getText(root) + " ";
 
     final String prefix = "========";
     final String suffix = "==";
 
-    console.print("\n" + prefix, TITLE_CONTENT_TYPE);
-    console.print(description, NORMAL_CONTENT_TYPE);
-    console.print(
+    out.print("\n" + prefix, TITLE_CONTENT_TYPE);
+    out.print(description, NORMAL_CONTENT_TYPE);
+    out.print(
       StringUtil.repeat(errorSeparatorChar, Math.max(
         errorSeparatorLength - prefix.length() - description.length() - suffix.length(), 0)),
       TITLE_CONTENT_TYPE);
-    console.print(suffix + "\n", TITLE_CONTENT_TYPE);
+    out.print(suffix + "\n", TITLE_CONTENT_TYPE);
 
     // TODO(devoncarew): Create a hyperlink to a widget - ala 'widget://inspector-1347'.
 
     if (terseError) {
-      for (DiagnosticsNode property : diagnosticsNode.getInlineProperties()) {
-        printTerseNodeProperty(console, "", property);
+      for (int property = error.firstProperty(root); property < error.propertiesEnd(root); property++) {
+        printTerseNodeProperty(out, "", error, property);
       }
     }
     else {
       DiagnosticLevel lastLevel = null;
       String errorSummary = null;
 
-      for (DiagnosticsNode property : diagnosticsNode.getInlineProperties()) {
+      for (int property = error.firstProperty(root); property < error.propertiesEnd(root); property++) {
+        final DiagnosticLevel level = error.getLevel(property);
+
         // Add blank line between hint and non-hint properties.
-        if (lastLevel != property.getLevel()) {
-          if (lastLevel == DiagnosticLevel.hint || property.getLevel() == DiagnosticLevel.hint) {
-            console.print("\n", NORMAL_CONTENT_TYPE);
+        if (lastLevel != level) {
+          if (lastLevel == DiagnosticLevel.hint || level == DiagnosticLevel.hint) {
+            out.print("\n", NORMAL_CONTENT_TYPE);
           }
         }
 
-        lastLevel = property.getLevel();
+        lastLevel = level;
 
-        if (StringUtil.equals("ErrorSummary", property.getType())) {
-          errorSummary = property.getDescription();
+        if (StringUtil.equals("ErrorSummary", error.getType(property))) {
+          errorSummary = error.getDescription(property);
         }
-        else if (StringUtil.equals("DevToolsDeepLinkProperty", property.getType()) &&
+        else if (StringUtil.equals("DevToolsDeepLinkProperty", error.getType(property)) &&
                  FlutterUtils.embeddedBrowserAvailable(JxBrowserManager.getInstance().getStatus())) {
-          showDeepLinkNotification(property, errorSummary);
+          final String url = error.getValue(property);
+          final String summary = errorSummary;
+          notifications.add(() -> showDeepLinkNotification(url, summary));
           continue;
         }
 
-        printDiagnosticsNodeProperty(console, "", property, null, false);
+        printDiagnosticsNodeProperty(out, "", error, property, null, false);
       }
     }
 
-    console.print(StringUtil.repeat(errorSeparatorChar, errorSeparatorLength) + "\n", TITLE_CONTENT_TYPE);
+    out.print(StringUtil.repeat(errorSeparatorChar, errorSeparatorLength) + "\n", TITLE_CONTENT_TYPE);
   }
 
   private boolean isFirstErrorForFrame() {
     return frameErrorCount == 0;
   }
 
-  private void printTerseNodeProperty(ConsoleView console, String indent, DiagnosticsNode property) {
+  private void printTerseNodeProperty(ConsoleTextBuffer out, String indent, DiagnosticsTree tree, int property) {
     boolean skip = true;
 
-    if (property.getLevel() == DiagnosticLevel.summary) {
+    if (tree.getLevel(property) == DiagnosticLevel.summary) {
       skip = false;
     }
-    else if (property.hasChildren()) {
-      final CompletableFuture<ArrayList<DiagnosticsNode>> future = property.getChildren();
-      final ArrayList<DiagnosticsNode> children = future.getNow(emptyList);
-      if (children.stream().noneMatch(DiagnosticsNode::hasChildren)) {
+    else if (tree.hasChildren(property)) {
+      if (!tree.hasGrandchildren(property)) {
         skip = false;
       }
     }
@@ -256,109 +365,101 @@ public class FlutterConsoleLogManager {
       return;
     }
 
-    final ConsoleViewContentType contentType = getContentTypeFor(property.getLevel());
+    final ConsoleViewContentType contentType = getContentTypeFor(tree.getLevel(property));
 
-    console.print(indent, contentType);
+    out.print(indent, contentType);
 
-    if (property.getShowName()) {
-      console.print(property.getName(), contentType);
+    if (tree.getShowName(property)) {
+      out.print(tree.getName(property), contentType);
 
-      if (property.getShowSeparator()) {
-        console.print(property.getSeparator() + " ", contentType);
+      if (tree.getShowSeparator(property)) {
+        out.print(tree.getSeparator(property) + " ", contentType);
       }
     }
 
-    final String description = property.getDescription() == null ? "" : property.getDescription();
-    console.print(description + "\n", contentType);
+    final String description = tree.getDescription(property) == null ? "" : tree.getDescription(property);
+    out.print(description + "\n", contentType);
 
-    final String childIndent = getChildIndent(indent, property);
+    final String childIndent = getChildIndent(indent, tree, property);
 
-    if (property.hasInlineProperties()) {
-      for (DiagnosticsNode childProperty : property.getInlineProperties()) {
-        printDiagnosticsNodeProperty(console, childIndent, childProperty, contentType, false);
-      }
+    for (int childProperty = tree.firstProperty(property); childProperty < tree.propertiesEnd(property); childProperty++) {
+      printDiagnosticsNodeProperty(out, childIndent, tree, childProperty, contentType, false);
     }
 
-    if (property.hasChildren()) {
-      final CompletableFuture<ArrayList<DiagnosticsNode>> future = property.getChildren();
-      final ArrayList<DiagnosticsNode> children = future.getNow(emptyList);
-
-      for (DiagnosticsNode child : children) {
-        printDiagnosticsNodeProperty(console, childIndent, child, contentType, false);
+    if (tree.hasChildren(property)) {
+      for (int child = tree.firstChild(property); child < tree.childrenEnd(property); child++) {
+        printDiagnosticsNodeProperty(out, childIndent, tree, child, contentType, false);
       }
     }
   }
 
-  private void printDiagnosticsNodeProperty(ConsoleView console, String indent, DiagnosticsNode property,
+  private void printDiagnosticsNodeProperty(ConsoleTextBuffer out, String indent, DiagnosticsTree tree, int property,
                                             ConsoleViewContentType contentType,
                                             boolean isInChild) {
     // TODO(devoncarew): Change the error message display in the framework.
-    if (property.getDescription() != null && property.getLevel() == DiagnosticLevel.info) {
+    if (tree.getDescription(property) != null && tree.getLevel(property) == DiagnosticLevel.info) {
       // Elide framework blank styling lines.
-      if (StringUtil.equals("ErrorSpacer", property.getType())) {
+      if (StringUtil.equals("ErrorSpacer", tree.getType(property))) {
         return;
       }
     }
 
     if (contentType == null) {
-      contentType = getContentTypeFor(property.getLevel());
+      contentType = getContentTypeFor(tree.getLevel(property));
     }
 
-    console.print(indent, contentType);
+    out.print(indent, contentType);
 
-    if (property.getShowName()) {
-      final String name = property.getName();
-      console.print(name == null ? "" : name, contentType);
+    if (tree.getShowName(property)) {
+      final String name = tree.getName(property);
+      out.print(name == null ? "" : name, contentType);
 
-      if (property.getShowSeparator()) {
-        console.print(property.getSeparator() + " ", contentType);
+      if (tree.getShowSeparator(property)) {
+        out.print(tree.getSeparator(property) + " ", contentType);
       }
     }
 
-    final String description = property.getDescription() == null ? "" : property.getDescription();
-    console.print(description + "\n", contentType);
+    final String description = tree.getDescription(property) == null ? "" : tree.getDescription(property);
+    out.print(description + "\n", contentType);
 
-    if (property.hasInlineProperties()) {
-      String childIndent = getChildIndent(indent, property);
-      if (property.getStyle() == DiagnosticsTreeStyle.shallow && !indent.startsWith("...")) {
+    if (tree.hasProperties(property)) {
+      String childIndent = getChildIndent(indent, tree, property);
+      if (tree.getStyle(property) == DiagnosticsTreeStyle.shallow && !indent.startsWith("...")) {
         // Render properties of shallow nodes as collapesed.
         childIndent = "...  " + indent;
       }
-      for (DiagnosticsNode childProperty : property.getInlineProperties()) {
-        printDiagnosticsNodeProperty(console, childIndent, childProperty, contentType, isInChild);
+      for (int childProperty = tree.firstProperty(property); childProperty < tree.propertiesEnd(property); childProperty++) {
+        printDiagnosticsNodeProperty(out, childIndent, tree, childProperty, contentType, isInChild);
       }
     }
 
-    if (property.hasChildren()) {
-      final CompletableFuture<ArrayList<DiagnosticsNode>> future = property.getChildren();
-      final ArrayList<DiagnosticsNode> children = future.getNow(emptyList);
-
+    if (tree.hasChildren(property)) {
       // Don't collapse children if it's just a flat list of children.
-      if (!isInChild && children.stream().noneMatch(DiagnosticsNode::hasChildren)) {
-        final String childIndent = getChildIndent(indent, property);
-        for (DiagnosticsNode child : children) {
-          printDiagnosticsNodeProperty(console, childIndent, child, contentType, false);
+      if (!isInChild && !tree.hasGrandchildren(property)) {
+        final String childIndent = getChildIndent(indent, tree, property);
+        for (int child = tree.firstChild(property); child < tree.childrenEnd(property); child++) {
+          printDiagnosticsNodeProperty(out, childIndent, tree, child, contentType, false);
         }
       }
       else {
-        if (property.getStyle() != DiagnosticsTreeStyle.shallow) {
+        if (tree.getStyle(property) != DiagnosticsTreeStyle.shallow) {
           // For deep trees, we show the text as collapsed.
-          final String childIndent = isInChild ? getChildIndent(indent, property) : "...  " + indent;
+          final String childIndent = isInChild ? getChildIndent(indent, tree, property) : "...  " + indent;
 
-          for (DiagnosticsNode child : children) {
-            printDiagnosticsNodeProperty(console, childIndent, child, contentType, true);
+          for (int child = tree.firstChild(property); child < tree.childrenEnd(property); child++) {
+            printDiagnosticsNodeProperty(out, childIndent, tree, child, contentType, true);
           }
         }
       }
     }
 
     // Print an extra line after the summary.
-    if (property.getLevel() == DiagnosticLevel.summary) {
-      console.print("\n", contentType);
+    if (tree.getLevel(property) == DiagnosticLevel.summary) {
+      out.print("\n", contentType);
     }
   }
 
-  private void showDeepLinkNotification(DiagnosticsNode property, @NotNull String errorSummary) {
+  private void showDeepLinkNotification(@Nullable String url, @NotNull String errorSummary) {
     NotificationGroup group = NotificationGroupManager.getInstance().getNotificationGroup(DEEP_LINK_GROUP_ID);
     assert group != null;
     Notification notification = group.createNotification(errorSummary, NotificationType.INFORMATION);
@@ -377,7 +478,7 @@ public class FlutterConsoleLogManager {
           toolWindow.show();
         }
 
-        final String widgetId = DevToolsUtils.findWidgetId(property.getValue());
+        final String widgetId = DevToolsUtils.findWidgetId(url);
 
         Project project = app.getProject();
         if (!project.isDisposed()) {
@@ -396,8 +497,8 @@ public class FlutterConsoleLogManager {
     }
   }
 
-  private String getChildIndent(String indent, DiagnosticsNode property) {
-    if (property.getStyle() == DiagnosticsTreeStyle.flat) {
+  private String getChildIndent(String indent, DiagnosticsTree tree, int property) {
+    if (tree.getStyle(property) == DiagnosticsTreeStyle.flat) {
       return indent;
     }
     else {
@@ -406,14 +507,8 @@ public class FlutterConsoleLogManager {
   }
 
   public void handleLoggingEvent(@NotNull Event event) {
-    queue.add(() -> {
-      try {
-        processLoggingEvent(event);
-      }
-      catch (Throwable t) {
-        LOG.warn(t);
-      }
-    });
+    if (event.getLogRecord() == null) return;
+    logRecords.add(new PendingLogRecord(event, queue.reserve()));
   }
 
   private ConsoleViewContentType getContentTypeFor(DiagnosticLevel level) {
@@ -424,27 +519,72 @@ public class FlutterConsoleLogManager {
     };
   }
 
-  @VisibleForTesting
-  public void processLoggingEvent(@NotNull Event event) {
+  /**
+   * Renders a log record, fetching the full text of truncated strings and calling {@code toString()} on non-string errors.
+   */
+  @NotNull
+  CompletableFuture<ConsoleTextBuffer> renderLoggingEvent(@NotNull Event event) {
     final LogRecord logRecord = event.getLogRecord();
-    if (logRecord == null) return;
-
     final VmService service = app.getVmService();
-    if (service == null) {
-      return;
+    if (logRecord == null || service == null) {
+      return CompletableFuture.completedFuture(new ConsoleTextBuffer());
     }
 
-    final IsolateRef isolateRef = event.getIsolate();
+    final String isolateId = event.getIsolate().getId();
+    final InstanceRef message = logRecord.getMessage();
+    @NotNull final InstanceRef error = logRecord.getError();
+
+    final CompletableFuture<String> messageStr = getFullStringValue(service, isolateId, message);
+    final CompletableFuture<String> errorStr;
+    if (error.isNull()) {
+      errorStr = CompletableFuture.completedFuture(null);
+    }
+    else if (error.getKind() == InstanceKind.String) {
+      errorStr = getFullStringValue(service, isolateId, error);
+    }
+    else {
+      errorStr = invokeToString(service, isolateId, error);
+    }
+
+    return messageStr.thenCombine(errorStr, (messageText, errorText) -> renderLogRecord(logRecord, messageText, errorText));
+  }
+
+  /**
+   * Renders a log record from the values already in the event, for when fetching the rest takes too long.
+   */
+  @NotNull
+  private ConsoleTextBuffer renderLoggingEventFallback(@NotNull Event event) {
+    final LogRecord logRecord = event.getLogRecord();
+    if (logRecord == null) {
+      return new ConsoleTextBuffer();
+    }
 
     final InstanceRef message = logRecord.getMessage();
+    @NotNull final InstanceRef error = logRecord.getError();
+
+    final String errorText;
+    if (error.isNull()) {
+      errorText = null;
+    }
+    else if (error.getKind() == InstanceKind.String) {
+      errorText = stringValueFromStringRef(error);
+    }
+    else {
+      errorText = describeInstance(error);
+    }
+    return renderLogRecord(logRecord, message == null ? null : stringValueFromStringRef(message), errorText);
+  }
+
+  @NotNull
+  private ConsoleTextBuffer renderLogRecord(@NotNull LogRecord logRecord, @Nullable String messageStr, @Nullable String errorStr) {
     @NotNull final InstanceRef loggerName = logRecord.getLoggerName();
 
     final String name = loggerName.getValueAsString().isEmpty() ? "log" : loggerName.getValueAsString();
     final String prefix = "[" + name + "] ";
-    final String messageStr = getFullStringValue(service, isolateRef.getId(), message);
 
-    console.print(prefix, SUBTLE_CONTENT_TYPE);
-    console.print(messageStr + "\n", NORMAL_CONTENT_TYPE);
+    final ConsoleTextBuffer out = new ConsoleTextBuffer();
+    out.print(prefix, SUBTLE_CONTENT_TYPE);
+    out.print(messageStr + "\n", NORMAL_CONTENT_TYPE);
 
     @NotNull final InstanceRef error = logRecord.getError();
     @NotNull final InstanceRef stackTrace = logRecord.getStackTrace();
@@ -453,7 +593,7 @@ public class FlutterConsoleLogManager {
       final String padding = StringUtil.repeat(" ", prefix.length());
 
       if (error.getKind() == InstanceKind.String) {
-        String string = getFullStringValue(service, isolateRef.getId(), error);
+        String string = errorStr;
 
         // Handle json in the error payload.
         boolean isJson = false;
@@ -467,44 +607,47 @@ public class FlutterConsoleLogManager {
         catch (JsonSyntaxException ignored) {
         }
 
-        console.print(padding + string + "\n", isJson ? ConsoleViewContentType.NORMAL_OUTPUT : ERROR_CONTENT_TYPE);
+        out.print(padding + string + "\n", isJson ? ConsoleViewContentType.NORMAL_OUTPUT : ERROR_CONTENT_TYPE);
       }
       else {
-        final CountDownLatch latch = new CountDownLatch(1);
-
-        service.invoke(
-          isolateRef.getId(), error.getId(),
-          "toString", Collections.emptyList(),
-          true,
-          new VmServiceConsumers.InvokeConsumerWrapper() {
-            @Override
-            public void received(InstanceRef response) {
-              console.print(padding + stringValueFromStringRef(response) + "\n", ERROR_CONTENT_TYPE);
-              latch.countDown();
-            }
-
-            @Override
-            public void noGoodResult() {
-              console.print(padding + error.getClassRef().getName() + " " + error.getId() + "\n", ERROR_CONTENT_TYPE);
-              latch.countDown();
-            }
-          });
-
-        try {
-          latch.await();
-        }
-        catch (InterruptedException ignored) {
-        }
+        out.print(padding + errorStr + "\n", ERROR_CONTENT_TYPE);
       }
     }
 
     if (!stackTrace.isNull()) {
       final String padding = StringUtil.repeat(" ", prefix.length());
-      final String out = stackTrace.getValueAsString() == null ? "" : stackTrace.getValueAsString().trim();
+      final String trace = stackTrace.getValueAsString() == null ? "" : stackTrace.getValueAsString().trim();
 
-      console.print(
-        padding + out.replaceAll("\n", "\n" + padding) + "\n", ERROR_CONTENT_TYPE);
+      out.print(
+        padding + trace.replaceAll("\n", "\n" + padding) + "\n", ERROR_CONTENT_TYPE);
     }
+
+    return out;
+  }
+
+  @NotNull
+  private CompletableFuture<String> invokeToString(@NotNull VmService service, @NotNull String isolateId, @NotNull InstanceRef ref) {
+    final CompletableFuture<String> result = new CompletableFuture<>();
+    service.invoke(
+      isolateId, ref.getId(),
+      "toString", Collections.emptyList(),
+      true,
+      new VmServiceConsumers.InvokeConsumerWrapper() {
+        @Override
+        public void received(InstanceRef response) {
+          result.complete(stringValueFromStringRef(response));
+        }
+
+        @Override
+        public void noGoodResult() {
+          result.complete(describeInstance(ref));
+        }
+      });
+    return result;
+  }
+
+  private String describeInstance(@NotNull InstanceRef ref) {
+    return ref.getClassRef().getName() + " " + ref.getId();
   }
 
   private String stringValueFromStringRef(InstanceRef ref) {
@@ -519,51 +662,36 @@ public class FlutterConsoleLogManager {
     return ref.getValueAsString() + "...";
   }
 
-  private @Nullable String getFullStringValue(@NotNull VmService service, @Nullable String isolateId, @Nullable InstanceRef ref) {
-    if (ref == null || isolateId == null) return null;
+  @NotNull
+  private CompletableFuture<String> getFullStringValue(@NotNull VmService service, @Nullable String isolateId, @Nullable InstanceRef ref) {
+    if (ref == null || isolateId == null) return CompletableFuture.completedFuture(null);
 
     if (!ref.getValueAsStringIsTruncated()) {
-      return ref.getValueAsString();
+      return CompletableFuture.completedFuture(ref.getValueAsString());
     }
 
-    final CountDownLatch latch = new CountDownLatch(1);
-    final String[] result = new String[1];
-
+    final CompletableFuture<String> result = new CompletableFuture<>();
     service.getObject(isolateId, ref.getId(), 0, ref.getLength(), new GetObjectConsumer() {
       @Override
       public void onError(RPCError error) {
-        result[0] = formatTruncatedString(ref);
-        latch.countDown();
+        result.complete(formatTruncatedString(ref));
       }
 
       @Override
       public void received(Obj response) {
         if (response instanceof Instance && ((Instance)response).getKind() == InstanceKind.String) {
-          result[0] = stringValueFromStringRef((Instance)response);
+          result.complete(stringValueFromStringRef((Instance)response));
         }
         else {
-          result[0] = formatTruncatedString(ref);
+          result.complete(formatTruncatedString(ref));
         }
-
-        latch.countDown();
       }
 
       @Override
       public void received(Sentinel response) {
-        result[0] = formatTruncatedString(ref);
-        latch.countDown();
+        result.complete(formatTruncatedString(ref));
       }
     });
-
-    try {
-      // The return can be safely ignored. An unset result will just return 0.
-      //noinspection ResultOfMethodCallIgnored
-      latch.await(1, TimeUnit.SECONDS);
-    }
-    catch (InterruptedException e) {
-      // Fall through to returning an empty result.
-    }
-
-    return result[0];
+    return result;
   }
 }
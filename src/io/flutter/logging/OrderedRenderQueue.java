@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Renders items asynchronously and concurrently, but emits the results in the order the items were added.
+ * <p>
+ * At most {@code maxLookahead} items are rendered at once; later items wait until the earliest ones are emitted. An item that takes longer
+ * than the timeout to render, or fails, is emitted using its fallback rendering instead, so one slow item can't hold up the rest for long.
+ * <p>
+ * At most {@code maxWaiting} items wait to start rendering. Items added while that many are waiting are rendered with the fallback and
+ * emitted right away, ahead of the items still waiting, so a flood of items can't use up memory; callers that need those in order too
+ * should keep track of each item's place themselves.
+ */
+class OrderedRenderQueue<T, R> {
+  private static final @NotNull Logger LOG = Logger.getInstance(OrderedRenderQueue.class);
+
+  private final int maxLookahead;
+  private final int maxWaiting;
+  private final long timeoutMillis;
+  @NotNull private final Function<T, CompletableFuture<R>> render;
+  @NotNull private final Function<T, R> fallback;
+  @NotNull private final BiConsumer<T, R> emit;
+
+  /**
+   * Items that haven't started rendering, in order.
+   */
+  private final Queue<T> waiting = new ArrayDeque<>();
+
+  /**
+   * Renderings in progress or not yet emitted, in order.
+   */
+  private final Queue<Rendering<T, R>> inFlight = new ArrayDeque<>();
+
+  private boolean draining;
+
+  private record Rendering<T, R>(@NotNull T item, @NotNull CompletableFuture<R> result) {
+  }
+
+  /**
+   * @param emit called with each item and its result, while holding this queue's lock; it should hand the result off quickly.
+   */
+  OrderedRenderQueue(int maxLookahead,
+                     int maxWaiting,
+                     long timeoutMillis,
+                     @NotNull Function<T, CompletableFuture<R>> render,
+                     @NotNull Function<T, R> fallback,
+                     @NotNull BiConsumer<T, R> emit) {
+    this.maxLookahead = maxLookahead;
+    this.maxWaiting = maxWaiting;
+    this.timeoutMillis = timeoutMillis;
+    this.render = render;
+    this.fallback = fallback;
+    this.emit = emit;
+  }
+
+  synchronized void add(@NotNull T item) {
+    if (waiting.size() >= maxWaiting) {
+      emit(item, fallback.apply(item));
+      return;
+    }
+    waiting.add(item);
+    drain();
+  }
+
+  /**
+   * Returns the number of items added but not yet emitted.
+   */
+  synchronized int size() {
+    return waiting.size() + inFlight.size();
+  }
+
+  /**
+   * Emits finished renderings from the head of the queue and starts rendering waiting items, until neither is possible.
+   * <p>
+   * Renderings that complete immediately call back into this method; the flag turns those calls into no-ops so the loop here picks them
+   * up instead of recursing.
+   */
+  private synchronized void drain() {
+    if (draining) {
+      return;
+    }
+    draining = true;
+    try {
+      while (true) {
+        while (!inFlight.isEmpty() && inFlight.peek().result().isDone()) {
+          final Rendering<T, R> rendering = inFlight.remove();
+          emit(rendering.item(), rendering.result().join());
+        }
+        if (inFlight.size() >= maxLookahead || waiting.isEmpty()) {
+          return;
+        }
+        start(waiting.remove());
+      }
+    }
+    finally {
+      draining = false;
+    }
+  }
+
+  private void start(@NotNull T item) {
+    CompletableFuture<R> rendering;
+    try {
+      // A dependent future, so the timeout doesn't complete a future the renderer might share.
+      rendering = render.apply(item).thenApply(Function.identity());
+    }
+    catch (RuntimeException e) {
+      rendering = CompletableFuture.failedFuture(e);
+    }
+    final CompletableFuture<R> result = rendering
+      .completeOnTimeout(null, timeoutMillis, TimeUnit.MILLISECONDS)
+      .handle((value, error) -> value != null ? value : fallback.apply(item));
+    inFlight.add(new Rendering<>(item, result));
+    result.whenComplete((value, error) -> drain());
+  }
+
+  private void emit(@NotNull T item, R result) {
+    try {
+      emit.accept(item, result);
+    }
+    catch (RuntimeException e) {
+      LOG.warn(e);
+    }
+  }
+}
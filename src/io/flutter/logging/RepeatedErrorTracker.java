@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the most recently printed structured error and counts how many times it's reported again, so an error reported on every
+ * frame can be printed once followed by a repeat count.
+ * <p>
+ * The count is printed once something else is printed, or once the error hasn't been reported for a while. At most one check for the
+ * latter is scheduled at a time; if the error was reported again in the meantime, the check schedules itself for the rest of the quiet
+ * period. Only used from an app's console queue.
+ */
+class RepeatedErrorTracker {
+  private final long quietNanos;
+  @NotNull private final LongSupplier nanoTime;
+  @NotNull private final LongConsumer scheduleQuietCheck;
+
+  @Nullable private String lastErrorText;
+  @Nullable private DiagnosticsTree lastErrorTree;
+  private boolean lastErrorTerse;
+
+  private int repeatCount;
+  private long lastRepeatNanos;
+  private boolean quietCheckPending;
+
+  /**
+   * @param scheduleQuietCheck called with a delay in milliseconds, after which {@link #takeCountIfQuiet()} should be called.
+   */
+  RepeatedErrorTracker(long quietMillis, @NotNull LongSupplier nanoTime, @NotNull LongConsumer scheduleQuietCheck) {
+    this.quietNanos = TimeUnit.MILLISECONDS.toNanos(quietMillis);
+    this.nanoTime = nanoTime;
+    this.scheduleQuietCheck = scheduleQuietCheck;
+  }
+
+  /**
+   * Returns whether the error decoded to the same tree as the last printed error and would be printed the same way, so it doesn't need
+   * to be rendered to tell.
+   */
+  boolean isLastError(@NotNull DiagnosticsTree error, boolean terse) {
+    return lastErrorText != null && error == lastErrorTree && terse == lastErrorTerse;
+  }
+
+  /**
+   * Returns whether the rendered error is the same as the last printed error.
+   */
+  boolean isLastError(@NotNull String text) {
+    return text.equals(lastErrorText);
+  }
+
+  /**
+   * Counts a repeat of the last printed error, and schedules a check for when the repeats stop if one isn't already scheduled.
+   */
+  void repeated() {
+    repeatCount++;
+    lastRepeatNanos = nanoTime.getAsLong();
+    if (!quietCheckPending) {
+      quietCheckPending = true;
+      scheduleQuietCheck.accept(TimeUnit.NANOSECONDS.toMillis(quietNanos));
+    }
+  }
+
+  /**
+   * Remembers an error that was printed in full.
+   */
+  void printed(@NotNull DiagnosticsTree error, boolean terse, @NotNull String text) {
+    lastErrorTree = error;
+    lastErrorTerse = terse;
+    lastErrorText = text;
+  }
+
+  /**
+   * Returns the number of repeats not yet printed, and forgets the last error so its next occurrence is printed in full.
+   */
+  int takeCount() {
+    final int count = repeatCount;
+    repeatCount = 0;
+    lastErrorText = null;
+    lastErrorTree = null;
+    return count;
+  }
+
+  /**
+   * Called when a scheduled check runs. Returns the number of repeats not yet printed if the error hasn't been reported for the quiet
+   * period, as {@link #takeCount()} does, or zero if it has, scheduling another check for the rest of the period.
+   */
+  int takeCountIfQuiet() {
+    quietCheckPending = false;
+    if (repeatCount == 0) {
+      return 0;
+    }
+    final long remainingNanos = lastRepeatNanos + quietNanos - nanoTime.getAsLong();
+    if (remainingNanos <= 0) {
+      return takeCount();
+    }
+    quietCheckPending = true;
+    scheduleQuietCheck.accept(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos)));
+    return 0;
+  }
+}
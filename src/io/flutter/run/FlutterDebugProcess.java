@@ -45,6 +45,7 @@ public class FlutterDebugProcess extends DartVmServiceDebugProcess {
   private static final @NotNull Logger LOG = Logger.getInstance(FlutterDebugProcess.class);
 
   private final @NotNull FlutterApp app;
+  private final @NotNull FlutterApp.FlutterAppListener appListener;
 
   public FlutterDebugProcess(@NotNull FlutterApp app,
                              @NotNull ExecutionEnvironment executionEnvironment,
@@ -54,6 +55,20 @@ public class FlutterDebugProcess extends DartVmServiceDebugProcess {
                              @NotNull PositionMapper mapper) {
     super(executionEnvironment, session, executionResult, dartUrlResolver, app.getConnector(), mapper);
     this.app = app;
+
+    appListener = new FlutterApp.FlutterAppListener() {
+      @Override
+      public void notifyAppRestarted() {
+        mapper.onHotRestart();
+      }
+    };
+    app.addStateListener(appListener);
+  }
+
+  @Override
+  public void stop() {
+    app.removeStateListener(appListener);
+    super.stop();
   }
 
   @Override
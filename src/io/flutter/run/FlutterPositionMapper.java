@@ -16,12 +16,14 @@ import com.intellij.psi.search.FilenameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.GlobalSearchScopesCore;
 import com.intellij.util.PathUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.xdebugger.XSourcePosition;
 import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
 import com.jetbrains.lang.dart.util.DartResolveUtil;
 import com.jetbrains.lang.dart.util.DartUrlResolver;
 import io.flutter.FlutterUtils;
 import io.flutter.dart.DartPlugin;
+import io.flutter.settings.FlutterSettings;
 import io.flutter.utils.OpenApiUtils;
 import io.flutter.vmService.DartVmServiceDebugProcess;
 import org.dartlang.vm.service.element.LibraryRef;
@@ -91,11 +93,13 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
   @Nullable
   private String remoteSourceRoot;
 
-  // TODO(skybrian) clear the cache at hot restart? (Old cache entries seem unlikely to be used again.)
   /**
-   * A cache containing each file version downloaded from Observatory. The key is an isolate id.
+   * A cache containing file versions downloaded from Observatory.
+   * <p>
+   * Initialized when the debugger connects.
    */
-  private final Map<String, ObservatoryFile.Cache> fileCache = new HashMap<>();
+  @Nullable
+  private ObservatoryFileCache fileCache;
 
   public FlutterPositionMapper(@NotNull Project project,
                                @NotNull VirtualFile sourceRoot,
@@ -119,6 +123,28 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
     }
     this.scriptProvider = provider;
     this.remoteBaseUri = remoteBaseUri;
+    this.fileCache = new ObservatoryFileCache(provider);
+  }
+
+  public void onIsolateExit(@NotNull String isolateId) {
+    if (fileCache != null) {
+      fileCache.removeIsolate(isolateId);
+    }
+  }
+
+  public void onHotRestart() {
+    // Scripts from before the restart won't be used again.
+    if (fileCache != null) {
+      fileCache.clear();
+    }
+  }
+
+  /**
+   * Returns the script cache's counters, or null if not connected yet.
+   */
+  @Nullable
+  public ObservatoryFileCache.Stats getScriptCacheStats() {
+    return fileCache == null ? null : fileCache.getStats();
   }
 
   /**
@@ -237,17 +263,47 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
     return getSourcePosition(isolateId, scriptRef.getId(), scriptRef.getUri(), tokenPos, fileFuture);
   }
 
+  /**
+   * Returns the local position (to display to the user) corresponding to a token position in Observatory.
+   * <p>
+   * Doesn't block the caller: the local file is looked up on a pooled thread and the script is downloaded asynchronously, sharing any
+   * download of the same script that's already in flight.
+   */
+  @NotNull
+  public CompletableFuture<XSourcePosition> getSourcePositionAsync(@NotNull final String isolateId,
+                                                                   @NotNull final ScriptRef scriptRef,
+                                                                   int tokenPos,
+                                                                   CompletableFuture<String> fileFuture) {
+    final ObservatoryFileCache cache = fileCache;
+    if (cache == null) {
+      FlutterUtils.warn(LOG, "attempted to get source position before connected to observatory");
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return CompletableFuture
+      .supplyAsync(() -> findLocalFile(scriptRef.getUri(), fileFuture), AppExecutorUtil.getAppExecutorService())
+      .thenCompose((local) -> cache.downloadOrGetAsync(isolateId, scriptRef.getId(), local == null)
+        .thenApplyAsync((remote) -> remote == null ? null : remote.createPosition(local, tokenPos),
+                        AppExecutorUtil.getAppExecutorService()));
+  }
+
   /**
    * Returns the local position (to display to the user) corresponding to a token position in Observatory.
    */
   @Nullable
   public XSourcePosition getSourcePosition(@NotNull final String isolateId, @NotNull final Script script, int tokenPos) {
-    return getSourcePosition(isolateId, script.getId(), script.getUri(), tokenPos);
-  }
+    if (fileCache == null) {
+      FlutterUtils.warn(LOG, "attempted to get source position before connected to observatory");
+      return null;
+    }
 
-  private XSourcePosition getSourcePosition(@NotNull final String isolateId, @NotNull final String scriptId,
-                                            @NotNull final String scriptUri, int tokenPos) {
-    return getSourcePosition(isolateId, scriptId, scriptUri, tokenPos, null);
+    final VirtualFile local = findLocalFile(script.getUri(), null);
+
+    // The script has already been downloaded, so there's no need to fetch it again.
+    final ObservatoryFile remote = fileCache.getOrCreate(isolateId, script, local == null);
+    if (remote == null) return null;
+
+    return remote.createPosition(local, tokenPos);
   }
 
   /**
@@ -256,17 +312,14 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
   @Nullable
   private XSourcePosition getSourcePosition(@NotNull final String isolateId, @NotNull final String scriptId,
                                             @NotNull final String scriptUri, int tokenPos, CompletableFuture<String> fileFuture) {
-    if (scriptProvider == null) {
+    if (fileCache == null) {
       FlutterUtils.warn(LOG, "attempted to get source position before connected to observatory");
       return null;
     }
 
     final VirtualFile local = findLocalFile(scriptUri, fileFuture);
 
-    final ObservatoryFile.Cache cache =
-      fileCache.computeIfAbsent(isolateId, (id) -> new ObservatoryFile.Cache(id, scriptProvider));
-
-    final ObservatoryFile remote = cache.downloadOrGet(scriptId, local == null);
+    final ObservatoryFile remote = fileCache.downloadOrGet(isolateId, scriptId, local == null);
     if (remote == null) return null;
 
     return remote.createPosition(local, tokenPos);
@@ -345,6 +398,10 @@ public class FlutterPositionMapper implements DartVmServiceDebugProcess.Position
   }
 
   public void shutdown() {
+    final ObservatoryFileCache.Stats stats = getScriptCacheStats();
+    if (stats != null && FlutterSettings.getInstance().isVerboseLogging()) {
+      LOG.info("Script cache: " + stats);
+    }
     if (analyzer != null) {
       analyzer.close();
     }
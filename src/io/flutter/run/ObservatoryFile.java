@@ -11,18 +11,10 @@ import com.intellij.util.PathUtil;
 import com.intellij.xdebugger.XDebuggerUtil;
 import com.intellij.xdebugger.XSourcePosition;
 import com.jetbrains.lang.dart.DartFileType;
-import io.flutter.vmService.DartVmServiceDebugProcess;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import org.dartlang.vm.service.element.Script;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-
 /**
  * A specific version of a Dart file, as downloaded from Observatory.
  * <p>
@@ -37,7 +29,7 @@ class ObservatoryFile {
    * Maps an observatory token id to its line and column.
    */
   @Nullable
-  private final Int2ObjectMap<Position> positionMap;
+  private final TokenPositionTable positionTable;
 
   /**
    * User-visible source code downloaded from Observatory.
@@ -50,21 +42,35 @@ class ObservatoryFile {
   @Nullable
   private final LightVirtualFile snapshot;
 
+  /**
+   * The approximate number of bytes used by this file.
+   */
+  private final long weight;
+
   ObservatoryFile(@NotNull Script script, boolean wantSnapshot) {
-    final @Nullable List<List<Integer>> tokenPosTable = script.getTokenPosTable();
-    if (tokenPosTable != null) {
-      positionMap = createPositionMap(tokenPosTable);
+    // Decode the table straight from the JSON rather than through Script.getTokenPosTable(), which boxes every entry.
+    positionTable = TokenPositionTable.decode(script.getJson().get("tokenPosTable"));
+    snapshot = wantSnapshot ? createSnapshot(script) : null;
+
+    // Three ints per token, two bytes per source character.
+    long weight = 64;
+    if (positionTable != null) {
+      weight += 12L * positionTable.size();
     }
-    else {
-      positionMap = null;
+    if (snapshot != null) {
+      weight += 2L * snapshot.getContent().length();
     }
-    snapshot = wantSnapshot ? createSnapshot(script) : null;
+    this.weight = weight;
   }
 
   boolean hasSnapshot() {
     return snapshot != null;
   }
 
+  long getWeight() {
+    return weight;
+  }
+
   /**
    * Given a token id, returns the source position to display to the user.
    * <p>
@@ -76,41 +82,15 @@ class ObservatoryFile {
     final VirtualFile fileToUse = local == null ? snapshot : local;
     if (fileToUse == null) return null;
 
-    if (positionMap == null) {
+    if (positionTable == null) {
       return null;
     }
 
-    final Position pos = positionMap.get(tokenPos);
-    if (pos == null) {
+    final int index = positionTable.indexOf(tokenPos);
+    if (index < 0) {
       return XDebuggerUtil.getInstance().createPositionByOffset(fileToUse, 0);
     }
-    return XDebuggerUtil.getInstance().createPosition(fileToUse, pos.line, pos.column);
-  }
-
-  /**
-   * Unpacks a position token table into a map from position id to Position.
-   * <p>
-   * <p>See <a href="https://github.com/dart-lang/vm_service_drivers/blob/master/dart/tool/service.md#scrip">docs</a>.
-   */
-  @NotNull
-  private static Int2ObjectMap<Position> createPositionMap(@NotNull final List<List<Integer>> table) {
-    final Int2ObjectMap<Position> result = new Int2ObjectOpenHashMap<>();
-
-    for (List<Integer> line : table) {
-      // Each line consists of a line number followed by (tokenId, columnNumber) pairs.
-      // Both lines and columns are one-based.
-      final Iterator<Integer> items = line.iterator();
-
-      // Convert line number from one-based to zero-based.
-      final int lineNumber = Math.max(0, items.next() - 1);
-      while (items.hasNext()) {
-        final int tokenId = items.next();
-        // Convert column from one-based to zero-based.
-        final int column = Math.max(0, items.next() - 1);
-        result.put(tokenId, new Position(lineNumber, column));
-      }
-    }
-    return result;
+    return XDebuggerUtil.getInstance().createPosition(fileToUse, positionTable.getLine(index), positionTable.getColumn(index));
   }
 
   @Nullable
@@ -126,59 +106,4 @@ class ObservatoryFile {
     snapshot.setWritable(false);
     return snapshot;
   }
-
-  /**
-   * A per-isolate cache of Observatory files.
-   */
-  static class Cache {
-    @NotNull
-    private final String isolateId;
-
-    @NotNull
-    private final DartVmServiceDebugProcess.ScriptProvider provider;
-
-    /**
-     * A cache containing each file downloaded from Observatory. The key is a script id.
-     * Each version of a file is stored as a separate entry.
-     */
-    private final Map<String, ObservatoryFile> versions = new HashMap<>();
-
-    Cache(@NotNull String isolateId, @NotNull DartVmServiceDebugProcess.ScriptProvider provider) {
-      this.isolateId = isolateId;
-      this.provider = provider;
-    }
-
-    /**
-     * Returns an observatory file, optionally containing a snapshot.
-     * <p>
-     * Downloads it if not in the cache.
-     * <p>
-     * Returns null if not available.
-     */
-    @Nullable
-    ObservatoryFile downloadOrGet(@NotNull String scriptId, boolean wantSnapshot) {
-      final ObservatoryFile cached = this.versions.get(scriptId);
-      if (cached != null && (cached.hasSnapshot() || !wantSnapshot)) {
-        return cached;
-      }
-
-      final Script script = provider.downloadScript(isolateId, scriptId);
-      if (script == null) return null;
-
-      final ObservatoryFile downloaded = new ObservatoryFile(script, wantSnapshot);
-      this.versions.put(scriptId, downloaded);
-
-      if (wantSnapshot && !downloaded.hasSnapshot()) {
-        return null;
-      }
-      return downloaded;
-    }
-  }
-
-  /**
-   * @param line   zero-based
-   * @param column zero-based
-   */
-  private record Position(int line, int column) {
-  }
 }
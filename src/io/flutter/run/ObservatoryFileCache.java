@@ -0,0 +1,263 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+import io.flutter.vmService.DartVmServiceDebugProcess;
+import org.dartlang.vm.service.element.Script;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A cache of the files downloaded from Observatory, keyed by isolate id and script id.
+ * <p>
+ * Each version of a file is stored as a separate entry, since a hot reload creates scripts with new ids. The cache is bounded by the
+ * approximate memory used by its files, and the least recently used files are evicted first. Entries for an isolate are dropped when it
+ * exits, and the whole cache is dropped on hot restart.
+ * <p>
+ * Concurrent requests for the same script share one download.
+ */
+public class ObservatoryFileCache {
+  static final long DEFAULT_MAX_WEIGHT = 32L << 20;
+
+  @NotNull
+  private final DartVmServiceDebugProcess.ScriptProvider provider;
+
+  private final long maxWeight;
+
+  /**
+   * The downloaded files in access order. Synchronize against this object before accessing it.
+   */
+  private final Map<Key, ObservatoryFile> files = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Downloads that have been started but not finished. Synchronize against this object before accessing it.
+   */
+  private final Map<Key, CompletableFuture<Script>> downloads = new HashMap<>();
+
+  private long weight;
+
+  /**
+   * Incremented whenever entries are invalidated, so that downloads started before then aren't cached.
+   */
+  private long generation;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  ObservatoryFileCache(@NotNull DartVmServiceDebugProcess.ScriptProvider provider) {
+    this(provider, DEFAULT_MAX_WEIGHT);
+  }
+
+  ObservatoryFileCache(@NotNull DartVmServiceDebugProcess.ScriptProvider provider, long maxWeight) {
+    this.provider = provider;
+    this.maxWeight = maxWeight;
+  }
+
+  /**
+   * Returns an observatory file, optionally containing a snapshot.
+   * <p>
+   * Downloads it on the calling thread if it's not in the cache and no other thread is downloading it; otherwise waits for the other
+   * download.
+   * <p>
+   * Returns null if not available.
+   */
+  @Nullable
+  ObservatoryFile downloadOrGet(@NotNull String isolateId, @NotNull String scriptId, boolean wantSnapshot) {
+    final Key key = new Key(isolateId, scriptId);
+    final CompletableFuture<Script> download;
+    final long startGeneration;
+    final boolean started;
+    synchronized (this) {
+      final ObservatoryFile cached = getCached(key, wantSnapshot);
+      if (cached != null) {
+        return cached;
+      }
+      startGeneration = generation;
+      final CompletableFuture<Script> existing = downloads.get(key);
+      started = existing == null;
+      download = started ? new CompletableFuture<>() : existing;
+      if (started) {
+        downloads.put(key, download);
+      }
+    }
+
+    if (started) {
+      try {
+        download.complete(provider.downloadScript(isolateId, scriptId));
+      }
+      catch (RuntimeException e) {
+        download.completeExceptionally(e);
+      }
+      finally {
+        synchronized (this) {
+          downloads.remove(key, download);
+        }
+      }
+    }
+
+    final Script script;
+    try {
+      script = download.join();
+    }
+    catch (RuntimeException e) {
+      return null;
+    }
+    return script == null ? null : add(key, startGeneration, script, wantSnapshot);
+  }
+
+  /**
+   * Returns an observatory file without blocking, downloading it if it's not in the cache.
+   * <p>
+   * The future completes with null if the file isn't available.
+   */
+  @NotNull
+  CompletableFuture<ObservatoryFile> downloadOrGetAsync(@NotNull String isolateId, @NotNull String scriptId, boolean wantSnapshot) {
+    final Key key = new Key(isolateId, scriptId);
+    final CompletableFuture<Script> download;
+    final long startGeneration;
+    synchronized (this) {
+      final ObservatoryFile cached = getCached(key, wantSnapshot);
+      if (cached != null) {
+        return CompletableFuture.completedFuture(cached);
+      }
+      startGeneration = generation;
+      final CompletableFuture<Script> existing = downloads.get(key);
+      if (existing != null) {
+        download = existing;
+      }
+      else {
+        download = provider.downloadScriptAsync(isolateId, scriptId);
+        if (!download.isDone()) {
+          downloads.put(key, download);
+          download.whenComplete((script, error) -> {
+            synchronized (this) {
+              downloads.remove(key, download);
+            }
+          });
+        }
+      }
+    }
+
+    // Decoding the token table and taking a snapshot are slow, so don't do them on the thread that read the script.
+    return download.handleAsync((script, error) -> error != null || script == null ? null : add(key, startGeneration, script, wantSnapshot),
+                                AppExecutorUtil.getAppExecutorService());
+  }
+
+  /**
+   * Returns an observatory file for a script that has already been downloaded.
+   */
+  @Nullable
+  ObservatoryFile getOrCreate(@NotNull String isolateId, @NotNull Script script, boolean wantSnapshot) {
+    final Key key = new Key(isolateId, script.getId());
+    final long startGeneration;
+    synchronized (this) {
+      final ObservatoryFile cached = getCached(key, wantSnapshot);
+      if (cached != null) {
+        return cached;
+      }
+      startGeneration = generation;
+    }
+    return add(key, startGeneration, script, wantSnapshot);
+  }
+
+  /**
+   * Drops the files downloaded for an isolate that has exited.
+   */
+  synchronized void removeIsolate(@NotNull String isolateId) {
+    generation++;
+    final Iterator<Map.Entry<Key, ObservatoryFile>> it = files.entrySet().iterator();
+    while (it.hasNext()) {
+      final Map.Entry<Key, ObservatoryFile> entry = it.next();
+      if (entry.getKey().isolateId().equals(isolateId)) {
+        it.remove();
+        weight -= entry.getValue().getWeight();
+        evictions++;
+      }
+    }
+  }
+
+  /**
+   * Drops all files, e.g. after a hot restart.
+   */
+  synchronized void clear() {
+    generation++;
+    evictions += files.size();
+    files.clear();
+    weight = 0;
+  }
+
+  @NotNull
+  synchronized Stats getStats() {
+    return new Stats(hits, misses, evictions, files.size(), weight);
+  }
+
+  @Nullable
+  private ObservatoryFile getCached(@NotNull Key key, boolean wantSnapshot) {
+    final ObservatoryFile cached = files.get(key);
+    if (cached != null && (cached.hasSnapshot() || !wantSnapshot)) {
+      hits++;
+      return cached;
+    }
+    misses++;
+    return null;
+  }
+
+  /**
+   * Creates a file from a downloaded script and caches it, unless the cache was invalidated since the download started.
+   */
+  @Nullable
+  private ObservatoryFile add(@NotNull Key key, long startGeneration, @NotNull Script script, boolean wantSnapshot) {
+    final ObservatoryFile created;
+    synchronized (this) {
+      // Another caller may have added the same file while the script was downloading.
+      final ObservatoryFile cached = files.get(key);
+      if (cached != null && (cached.hasSnapshot() || !wantSnapshot)) {
+        return cached;
+      }
+      created = new ObservatoryFile(script, wantSnapshot);
+      if (generation == startGeneration) {
+        final ObservatoryFile replaced = files.put(key, created);
+        if (replaced != null) {
+          weight -= replaced.getWeight();
+        }
+        weight += created.getWeight();
+        evictOverflow();
+      }
+    }
+
+    if (wantSnapshot && !created.hasSnapshot()) {
+      return null;
+    }
+    return created;
+  }
+
+  private void evictOverflow() {
+    final Iterator<ObservatoryFile> it = files.values().iterator();
+    // Always keep the most recently added file.
+    while (weight > maxWeight && files.size() > 1 && it.hasNext()) {
+      weight -= it.next().getWeight();
+      it.remove();
+      evictions++;
+    }
+  }
+
+  /**
+   * A snapshot of the cache's counters.
+   */
+  public record Stats(long hits, long misses, long evictions, int size, long weight) {
+  }
+
+  private record Key(@NotNull String isolateId, @NotNull String scriptId) {
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Maps Observatory token positions to zero-based lines and columns.
+ * <p>
+ * The table is stored as parallel arrays sorted by token position, so it takes three ints per token and lookups are a binary search.
+ * <p>
+ * See <a href="https://github.com/dart-lang/sdk/blob/main/runtime/vm/service/service.md#script">Script</a>.
+ */
+class TokenPositionTable {
+  @NotNull private final int[] tokens;
+  @NotNull private final int[] lines;
+  @NotNull private final int[] columns;
+
+  private TokenPositionTable(@NotNull int[] tokens, @NotNull int[] lines, @NotNull int[] columns) {
+    this.tokens = tokens;
+    this.lines = lines;
+    this.columns = columns;
+  }
+
+  int size() {
+    return tokens.length;
+  }
+
+  /**
+   * Returns the index of the token in the table, or -1 if it is not in the table.
+   */
+  int indexOf(int tokenPos) {
+    final int index = Arrays.binarySearch(tokens, tokenPos);
+    return index < 0 ? -1 : index;
+  }
+
+  /**
+   * Returns the zero-based line of the token at the given index.
+   */
+  int getLine(int index) {
+    return lines[index];
+  }
+
+  /**
+   * Returns the zero-based column of the token at the given index.
+   */
+  int getColumn(int index) {
+    return columns[index];
+  }
+
+  /**
+   * Decodes a script's {@code tokenPosTable} JSON array.
+   * <p>
+   * Each line of the table consists of a one-based line number followed by (tokenPos, one-based column) pairs.
+   */
+  @Nullable
+  static TokenPositionTable decode(@Nullable JsonElement json) {
+    if (json == null || !json.isJsonArray()) {
+      return null;
+    }
+    final JsonArray table = json.getAsJsonArray();
+
+    int count = 0;
+    for (JsonElement line : table) {
+      count += (line.getAsJsonArray().size() - 1) / 2;
+    }
+
+    int[] tokens = new int[count];
+    int[] lines = new int[count];
+    int[] columns = new int[count];
+    int index = 0;
+    boolean sorted = true;
+    for (JsonElement lineElement : table) {
+      final JsonArray line = lineElement.getAsJsonArray();
+      // Convert line number from one-based to zero-based.
+      final int lineNumber = Math.max(0, line.get(0).getAsInt() - 1);
+      for (int i = 1; i + 1 < line.size(); i += 2) {
+        tokens[index] = line.get(i).getAsInt();
+        lines[index] = lineNumber;
+        // Convert column from one-based to zero-based.
+        columns[index] = Math.max(0, line.get(i + 1).getAsInt() - 1);
+        if (index > 0 && tokens[index] <= tokens[index - 1]) {
+          sorted = false;
+        }
+        index++;
+      }
+    }
+
+    if (!sorted) {
+      // Sort by token, keeping the last entry for duplicated tokens.
+      final long[] order = new long[count];
+      for (int i = 0; i < count; i++) {
+        order[i] = ((long)tokens[i] << 32) | i;
+      }
+      Arrays.sort(order);
+
+      final int[] sortedTokens = new int[count];
+      final int[] sortedLines = new int[count];
+      final int[] sortedColumns = new int[count];
+      int size = 0;
+      for (long entry : order) {
+        final int i = (int)entry;
+        if (size > 0 && sortedTokens[size - 1] == tokens[i]) {
+          size--;
+        }
+        sortedTokens[size] = tokens[i];
+        sortedLines[size] = lines[i];
+        sortedColumns[size] = columns[i];
+        size++;
+      }
+      tokens = Arrays.copyOf(sortedTokens, size);
+      lines = Arrays.copyOf(sortedLines, size);
+      columns = Arrays.copyOf(sortedColumns, size);
+    }
+
+    return new TokenPositionTable(tokens, lines, columns);
+  }
+}
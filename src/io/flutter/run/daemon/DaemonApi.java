@@ -5,7 +5,6 @@
  */
 package io.flutter.run.daemon;
 
-import com.google.common.base.Charsets;
 import com.google.gson.*;
 import com.intellij.execution.process.ProcessAdapter;
 import com.intellij.execution.process.ProcessEvent;
@@ -13,22 +12,20 @@ import com.intellij.execution.process.ProcessHandler;
 import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.Key;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import io.flutter.FlutterUtils;
 import io.flutter.settings.FlutterSettings;
 import io.flutter.utils.JsonUtils;
-import io.flutter.utils.StdoutJsonParser;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * Sends JSON commands to a flutter daemon process, assigning a new id to each one.
@@ -42,19 +39,41 @@ public class DaemonApi {
   private static final int STDERR_LINES_TO_KEEP = 100;
   private static final Gson GSON = new Gson();
   private static final @NotNull Logger LOG = Logger.getInstance(DaemonApi.class);
-  @NotNull private final Consumer<String> callback;
+
+  /**
+   * How long to wait for a response before failing a command, unless overridden in {@link #COMMAND_TIMEOUT_MILLIS}.
+   */
+  static final long DEFAULT_COMMAND_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  /**
+   * A timeout meaning that the command waits for a response for as long as the process runs.
+   */
+  static final long NO_COMMAND_TIMEOUT = 0;
+
+  /**
+   * Per-method response deadlines. Restarts of large apps can take a while, especially the first one. Service extensions run in the app
+   * and don't respond while it's paused in the debugger, so they're never timed out.
+   */
+  private static final Map<String, Long> COMMAND_TIMEOUT_MILLIS = Map.of(
+    "app.restart", TimeUnit.MINUTES.toMillis(5),
+    "app.callServiceExtension", NO_COMMAND_TIMEOUT,
+    "daemon.shutdown", TimeUnit.SECONDS.toMillis(10)
+  );
+
+  @NotNull private final Predicate<String> callback;
   private final AtomicInteger nextId = new AtomicInteger();
   private final Map<Integer, Command> pending = new LinkedHashMap<>();
-  private final StdoutJsonParser stdoutParser = new StdoutJsonParser();
+  private final Map<String, Long> commandTimeouts = new ConcurrentHashMap<>(COMMAND_TIMEOUT_MILLIS);
+  private final DaemonCommandMetrics metrics = new DaemonCommandMetrics();
   /**
    * A ring buffer holding the last few lines that the process sent to stderr.
    */
   private final Deque<String> stderr = new ArrayDeque<>();
 
   /**
-   * Creates an Api that sends JSON to a callback.
+   * Creates an Api that sends JSON to a callback, which returns false if the command couldn't be sent.
    */
-  DaemonApi(@NotNull Consumer<String> callback) {
+  DaemonApi(@NotNull Predicate<String> callback) {
     this.callback = callback;
   }
 
@@ -62,7 +81,7 @@ public class DaemonApi {
    * Creates an Api that sends JSON to a process.
    */
   DaemonApi(@NotNull ProcessHandler process) {
-    this((String json) -> sendCommand(json, process));
+    this(new DaemonCommandWriter(process)::write);
   }
 
   CompletableFuture<List<String>> daemonGetSupportedPlatforms(@NotNull String projectRoot) {
@@ -88,9 +107,39 @@ public class DaemonApi {
   void cancelPending() {
     // We used to complete the commands with exceptions here (completeExceptionally), but that generally was surfaced
     // to the user as an exception in the tool. We now choose to not complete the command at all.
+    final List<Command> abandoned;
     synchronized (pending) {
+      abandoned = new ArrayList<>(pending.values());
       pending.clear();
     }
+    for (Command cmd : abandoned) {
+      cmd.abandon();
+    }
+  }
+
+  /**
+   * Sets how long to wait for a response to the given method before failing it with a {@link TimeoutException}, or
+   * {@link #NO_COMMAND_TIMEOUT} to wait indefinitely.
+   */
+  void setCommandTimeout(@NotNull String method, long millis) {
+    commandTimeouts.put(method, millis);
+  }
+
+  /**
+   * Returns round-trip statistics for the commands sent so far.
+   */
+  @NotNull
+  public DaemonCommandMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Returns the key that {@code app.restart} statistics are recorded under. Hot reloads and hot restarts have very different latencies,
+   * so they're recorded separately.
+   */
+  @NotNull
+  public static String getRestartMetricsKey(boolean fullRestart) {
+    return "app.restart" + (fullRestart ? " (fullRestart)" : " (reload)");
   }
 
   /**
@@ -110,6 +159,16 @@ public class DaemonApi {
    * Receive responses and events from a process until it shuts down.
    */
   void listen(@NotNull ProcessHandler process, @NotNull DaemonEvent.Listener listener) {
+    // Shared with the console, so that each line is only parsed once.
+    final DaemonOutputDecoder decoder = DaemonOutputDecoder.forProcess(process);
+    final DaemonOutputDecoder.Listener decoderListener = (chunk, lines) -> {
+      for (DaemonOutputDecoder.Line line : lines) {
+        if (line.message() != null) {
+          dispatch(line.message(), listener);
+        }
+      }
+    };
+    decoder.addListener(decoderListener);
     process.addProcessListener(new ProcessAdapter() {
       @Override
       public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
@@ -130,19 +189,8 @@ public class DaemonApi {
           }
         }
         else if (outputType.equals(ProcessOutputTypes.STDOUT)) {
-          final String text = event.getText();
-
           if (FlutterSettings.getInstance().isVerboseLogging()) {
-            LOG.info("[<-- " + text.trim() + "]");
-          }
-
-          stdoutParser.appendOutput(text);
-
-          for (String line : stdoutParser.getAvailableLines()) {
-            final JsonObject obj = parseAndValidateDaemonEvent(line);
-            if (obj != null) {
-              dispatch(obj, listener);
-            }
+            LOG.info("[<-- " + event.getText().trim() + "]");
           }
         }
       }
@@ -154,6 +202,7 @@ public class DaemonApi {
 
       @Override
       public void processTerminated(@NotNull ProcessEvent event) {
+        decoder.removeListener(decoderListener);
         listener.processTerminated(event.getExitCode());
       }
     });
@@ -209,7 +258,8 @@ public class DaemonApi {
   }
 
   private <T> CompletableFuture<T> send(String method, @Nullable Params<T> params) {
-    // Synchronize on nextId to ensure that we send one command at a time and they are numbered in the order they are sent.
+    // Synchronize on nextId to ensure that commands are numbered in the order they are sent.
+    // The callback only queues the command, so this never waits on the process.
     synchronized (nextId) {
       final int id = nextId.getAndIncrement();
       final Command<T> command = new Command<>(method, params, id);
@@ -218,11 +268,62 @@ public class DaemonApi {
       synchronized (pending) {
         pending.put(id, command);
       }
-      callback.accept(json);
+      track(command);
+      if (!callback.test(json)) {
+        command.completeExceptionally(new RejectedExecutionException("too many commands waiting for the Flutter process: " + method));
+      }
       return command.done;
     }
   }
 
+  /**
+   * Records the command's round trip and fails it if no response arrives in time.
+   * <p>
+   * If the command times out, couldn't be sent, or the caller cancels its future, the pending entry is dropped so a late response is
+   * ignored.
+   */
+  private void track(@NotNull Command<?> command) {
+    final DaemonCommandMetrics.CommandMetrics commandMetrics = metrics.get(command.metricsKey);
+    commandMetrics.recordSent();
+    command.metrics = commandMetrics;
+
+    final long timeoutMillis = commandTimeouts.getOrDefault(command.method, DEFAULT_COMMAND_TIMEOUT_MILLIS);
+    if (timeoutMillis != NO_COMMAND_TIMEOUT) {
+      command.timeout =
+        AppExecutorUtil.getAppScheduledExecutorService().schedule(() -> expire(command, timeoutMillis), timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    command.done.whenComplete((result, error) -> {
+      // An abandoned command has already been recorded.
+      if (!command.settle()) {
+        return;
+      }
+      synchronized (pending) {
+        pending.remove(command.id, command);
+      }
+      if (error instanceof TimeoutException) {
+        commandMetrics.recordTimeout();
+      }
+      else if (error instanceof CancellationException || error instanceof RejectedExecutionException) {
+        commandMetrics.recordAbandoned();
+      }
+      else {
+        commandMetrics.recordResponse(System.nanoTime() - command.startNanos);
+      }
+    });
+  }
+
+  private void expire(@NotNull Command<?> command, long timeoutMillis) {
+    synchronized (pending) {
+      // If the command is no longer pending, it was answered or deliberately abandoned by cancelPending().
+      if (!pending.remove(command.id, command)) {
+        return;
+      }
+    }
+    FlutterUtils.warn(LOG, "Flutter daemon didn't respond to " + command.method + " within " + timeoutMillis + "ms");
+    command.completeExceptionally(new TimeoutException(command.method + " timed out after " + timeoutMillis + "ms"));
+  }
+
   /**
    * Returns the last lines written to stderr.
    */
@@ -284,32 +385,6 @@ public class DaemonApi {
     }
   }
 
-  private static void sendCommand(String json, ProcessHandler handler) {
-    final PrintWriter stdin = getStdin(handler);
-    if (stdin == null) {
-      FlutterUtils.warn(LOG, "can't write command to Flutter process: " + json);
-      return;
-    }
-    stdin.write('[');
-    stdin.write(json);
-    stdin.write("]\n");
-
-    if (FlutterSettings.getInstance().isVerboseLogging()) {
-      LOG.info("[--> " + json + "]");
-    }
-
-    if (stdin.checkError()) {
-      FlutterUtils.warn(LOG, "can't write command to Flutter process: " + json);
-    }
-  }
-
-  @Nullable
-  private static PrintWriter getStdin(ProcessHandler processHandler) {
-    final OutputStream stdin = processHandler.getProcessInput();
-    if (stdin == null) return null;
-    return new PrintWriter(new OutputStreamWriter(stdin, Charsets.UTF_8));
-  }
-
   public static class RestartResult {
     private int code;
     private String message;
@@ -342,6 +417,15 @@ public class DaemonApi {
 
     transient final @Nullable Function<JsonElement, T> parseResult;
     transient final CompletableFuture<T> done = new CompletableFuture<>();
+    transient final @NotNull String metricsKey;
+    transient final long startNanos = System.nanoTime();
+    transient @Nullable DaemonCommandMetrics.CommandMetrics metrics;
+    transient volatile @Nullable ScheduledFuture<?> timeout;
+
+    /**
+     * Set once the command is either completed or abandoned, so it's only recorded once.
+     */
+    transient final AtomicBoolean settled = new AtomicBoolean();
 
     Command(@NotNull String method, @Nullable Params<T> params, int id) {
       this.method = method;
@@ -350,6 +434,30 @@ public class DaemonApi {
       this.params = GSON.toJsonTree(params);
       this.id = id;
       this.parseResult = params == null ? null : params::parseResult;
+      this.metricsKey = params == null ? method : params.getMetricsKey(method);
+    }
+
+    /**
+     * Stops tracking a command that will never be completed.
+     */
+    void abandon() {
+      if (settle() && metrics != null) {
+        metrics.recordAbandoned();
+      }
+    }
+
+    /**
+     * Marks the command as settled and cancels its timeout. Returns false if it was already settled.
+     */
+    boolean settle() {
+      if (!settled.compareAndSet(false, true)) {
+        return false;
+      }
+      final ScheduledFuture<?> scheduled = timeout;
+      if (scheduled != null) {
+        scheduled.cancel(false);
+      }
+      return true;
     }
 
     void complete(@Nullable JsonElement result) {
@@ -379,6 +487,14 @@ public class DaemonApi {
   private abstract static class Params<T> {
     @Nullable
     abstract T parseResult(@Nullable JsonElement result);
+
+    /**
+     * Returns the key that the command's round-trip statistics are recorded under.
+     */
+    @NotNull
+    String getMetricsKey(@NotNull String method) {
+      return method;
+    }
   }
 
   private static class AppRestart extends Params<RestartResult> {
@@ -398,6 +514,12 @@ public class DaemonApi {
     RestartResult parseResult(JsonElement result) {
       return GSON.fromJson(result, RestartResult.class);
     }
+
+    @NotNull
+    @Override
+    String getMetricsKey(@NotNull String method) {
+      return getRestartMetricsKey(fullRestart);
+    }
   }
 
   private static class DaemonShutdown extends Params<Boolean> {
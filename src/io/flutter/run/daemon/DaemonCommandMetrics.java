@@ -0,0 +1,120 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import org.dartlang.vm.service.LatencySamples;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Round-trip statistics for the commands sent to a Flutter daemon process.
+ * <p>
+ * Statistics are kept per command key: usually the method name, but some commands are split further (e.g. {@code app.restart} is tracked
+ * separately for hot reloads and hot restarts).
+ */
+public class DaemonCommandMetrics {
+  /**
+   * Statistics for a single kind of command.
+   */
+  public static class CommandMetrics {
+    private final LatencySamples latencies = new LatencySamples();
+    private int inFlight;
+    private long timeoutCount;
+
+    synchronized void recordSent() {
+      inFlight++;
+    }
+
+    synchronized void recordResponse(long elapsedNanos) {
+      inFlight--;
+      latencies.add(elapsedNanos);
+    }
+
+    synchronized void recordTimeout() {
+      inFlight--;
+      timeoutCount++;
+    }
+
+    synchronized void recordAbandoned() {
+      inFlight--;
+    }
+
+    /**
+     * Returns the number of responses received.
+     */
+    public long getCount() {
+      return latencies.getCount();
+    }
+
+    /**
+     * Returns the number of commands sent but not yet answered, timed out, or cancelled.
+     */
+    public synchronized int getInFlightCount() {
+      return inFlight;
+    }
+
+    public synchronized long getTimeoutCount() {
+      return timeoutCount;
+    }
+
+    /**
+     * Returns the given percentile (0 - 100) of the most recent round-trip times in milliseconds, or -1 if no responses have been
+     * received.
+     */
+    public double getLatencyPercentileMillis(double percentile) {
+      return latencies.getPercentileMillis(percentile);
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + getCount() +
+             ", inFlight=" + getInFlightCount() +
+             ", p50=" + getLatencyPercentileMillis(50) + "ms" +
+             ", p95=" + getLatencyPercentileMillis(95) + "ms" +
+             ", p99=" + getLatencyPercentileMillis(99) + "ms" +
+             ", timeouts=" + getTimeoutCount();
+    }
+  }
+
+  private final Map<String, CommandMetrics> commands = new ConcurrentHashMap<>();
+
+  @NotNull
+  CommandMetrics get(@NotNull String key) {
+    return commands.computeIfAbsent(key, (k) -> new CommandMetrics());
+  }
+
+  /**
+   * Returns the statistics for the given command key, or null if no such command has been sent.
+   */
+  @Nullable
+  public CommandMetrics getCommandMetrics(@NotNull String key) {
+    return commands.get(key);
+  }
+
+  /**
+   * Returns a snapshot of the statistics for every command key, sorted by key.
+   */
+  @NotNull
+  public Map<String, CommandMetrics> getAllCommandMetrics() {
+    return new TreeMap<>(commands);
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, CommandMetrics> entry : getAllCommandMetrics().entrySet()) {
+      if (!builder.isEmpty()) {
+        builder.append('\n');
+      }
+      builder.append(entry.getKey()).append(": ").append(entry.getValue());
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import io.flutter.FlutterUtils;
+import io.flutter.settings.FlutterSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes JSON commands to a Flutter daemon process's stdin without blocking the caller.
+ * <p>
+ * Commands are queued and written in order by a single pooled task, which flushes once per batch. The process's stdin is wrapped in one
+ * buffered UTF-8 writer for its whole lifetime.
+ */
+class DaemonCommandWriter {
+  private static final @NotNull Logger LOG = Logger.getInstance(DaemonCommandWriter.class);
+
+  /**
+   * The maximum number of commands waiting to be written. Further commands are rejected until the process catches up.
+   */
+  static final int MAX_QUEUED_COMMANDS = 1000;
+
+  @NotNull private final ProcessHandler process;
+  @NotNull private final Executor executor;
+  @NotNull private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(MAX_QUEUED_COMMANDS);
+
+  /**
+   * Whether a task is scheduled to drain the queue.
+   */
+  private final AtomicBoolean draining = new AtomicBoolean();
+
+  /**
+   * Only accessed by the draining task.
+   */
+  @Nullable private Writer stdin;
+
+  DaemonCommandWriter(@NotNull ProcessHandler process) {
+    this(process, AppExecutorUtil.getAppExecutorService());
+  }
+
+  DaemonCommandWriter(@NotNull ProcessHandler process, @NotNull Executor executor) {
+    this.process = process;
+    this.executor = executor;
+  }
+
+  /**
+   * Queues a command to be written. Returns false if the queue is full, in which case the command is never written.
+   */
+  boolean write(@NotNull String json) {
+    if (!queue.offer(json)) {
+      FlutterUtils.warn(LOG, "too many commands waiting for the Flutter process; rejecting: " + json);
+      return false;
+    }
+    if (draining.compareAndSet(false, true)) {
+      executor.execute(this::drain);
+    }
+    return true;
+  }
+
+  private void drain() {
+    while (true) {
+      String json;
+      while ((json = queue.poll()) != null) {
+        writeCommand(json);
+      }
+      flush();
+
+      draining.set(false);
+      // A command may have been queued after the last poll but before draining was cleared.
+      if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+        return;
+      }
+    }
+  }
+
+  private void writeCommand(@NotNull String json) {
+    final Writer writer = getStdin();
+    if (writer == null) {
+      FlutterUtils.warn(LOG, "can't write command to Flutter process: " + json);
+      return;
+    }
+
+    try {
+      writer.write('[');
+      writer.write(json);
+      writer.write("]\n");
+    }
+    catch (IOException e) {
+      FlutterUtils.warn(LOG, "can't write command to Flutter process: " + json, e);
+      return;
+    }
+
+    if (FlutterSettings.getInstance().isVerboseLogging()) {
+      LOG.info("[--> " + json + "]");
+    }
+  }
+
+  private void flush() {
+    if (stdin == null) {
+      return;
+    }
+    try {
+      stdin.flush();
+    }
+    catch (IOException e) {
+      FlutterUtils.warn(LOG, "can't write command to Flutter process", e);
+    }
+  }
+
+  @Nullable
+  private Writer getStdin() {
+    if (stdin == null) {
+      final OutputStream output = process.getProcessInput();
+      if (output == null) {
+        return null;
+      }
+      stdin = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    }
+    return stdin;
+  }
+}
@@ -9,11 +9,19 @@ import com.intellij.execution.configurations.CommandLineState;
 import com.intellij.execution.filters.TextConsoleBuilder;
 import com.intellij.execution.filters.TextConsoleBuilderImpl;
 import com.intellij.execution.impl.ConsoleViewImpl;
+import com.intellij.execution.impl.ConsoleViewRunningState;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.process.ProcessOutputTypes;
 import com.intellij.execution.runners.ExecutionEnvironment;
+import com.intellij.execution.ui.ConsoleState;
 import com.intellij.execution.ui.ConsoleView;
 import com.intellij.execution.ui.ConsoleViewContentType;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.search.ExecutionSearchScopes;
 import com.intellij.psi.search.GlobalSearchScope;
@@ -23,6 +31,8 @@ import io.flutter.utils.FlutterModuleUtils;
 import io.flutter.utils.StdoutJsonParser;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /**
  * A console view that filters out JSON messages sent in --machine mode.
  */
@@ -51,11 +61,42 @@ public class DaemonConsoleView extends ConsoleViewImpl {
     launcher.setConsoleBuilder(builder);
   }
 
+  /**
+   * Parses output that isn't the attached process's stdout.
+   */
   private final StdoutJsonParser stdoutParser = new StdoutJsonParser();
   private boolean hasPrintedText;
 
   public DaemonConsoleView(@NotNull final Project project, @NotNull final GlobalSearchScope searchScope) {
-    super(project, searchScope, true, false);
+    // The console listens to the process's output itself, in attachToProcess, so that stdout is printed from the lines decoded by the
+    // process's DaemonOutputDecoder rather than parsed again.
+    super(project, searchScope, true, new ConsoleState.NotStartedStated() {
+      @NotNull
+      @Override
+      public ConsoleState attachTo(@NotNull ConsoleViewImpl console, @NotNull ProcessHandler processHandler) {
+        return new ConsoleViewRunningState(console, processHandler, this, false, true);
+      }
+    }, false);
+  }
+
+  @Override
+  public void attachToProcess(@NotNull ProcessHandler processHandler) {
+    super.attachToProcess(processHandler);
+
+    // Shared with the process's DaemonApi, so that each line is only parsed once.
+    final DaemonOutputDecoder decoder = DaemonOutputDecoder.forProcess(processHandler);
+    final DaemonOutputDecoder.Listener listener = this::printStdout;
+    decoder.addListener(listener);
+    Disposer.register(this, () -> decoder.removeListener(listener));
+
+    processHandler.addProcessListener(new ProcessAdapter() {
+      @Override
+      public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
+        if (!outputType.equals(ProcessOutputTypes.STDOUT)) {
+          print(event.getText(), ConsoleViewContentType.getConsoleViewType(outputType));
+        }
+      }
+    }, this);
   }
 
   @Override
@@ -78,24 +119,45 @@ public class DaemonConsoleView extends ConsoleViewImpl {
     }
   }
 
+  /**
+   * Prints a chunk of the attached process's stdout, given the lines it completes.
+   */
+  private void printStdout(@NotNull String chunk, @NotNull List<DaemonOutputDecoder.Line> lines) {
+    if (!FlutterModuleUtils.hasFlutterModule(getProject())) {
+      return;
+    }
+    if (FlutterSettings.getInstance().isVerboseLogging()) {
+      super.print(chunk, ConsoleViewContentType.NORMAL_OUTPUT);
+      return;
+    }
+
+    for (DaemonOutputDecoder.Line line : lines) {
+      writeLine(line.text(), line.message() != null);
+    }
+  }
+
   private void writeAvailableLines() {
     for (String line : stdoutParser.getAvailableLines()) {
-      if (DaemonApi.parseAndValidateDaemonEvent(line.trim()) != null) {
-        if (FlutterSettings.getInstance().isVerboseLogging()) {
-          LOG.info(line.trim());
-        }
-      }
-      else {
-        // We're seeing a spurious newline before some launches; this removes any single newline that occurred
-        // before we've printed text.
-        if (!hasPrintedText && line.equals(("\n"))) {
-          continue;
-        }
-
-        hasPrintedText = true;
+      writeLine(line, DaemonApi.parseAndValidateDaemonEvent(line.trim()) != null);
+    }
+  }
 
-        super.print(line, ConsoleViewContentType.NORMAL_OUTPUT);
+  private void writeLine(@NotNull String line, boolean isDaemonMessage) {
+    if (isDaemonMessage) {
+      if (FlutterSettings.getInstance().isVerboseLogging()) {
+        LOG.info(line.trim());
       }
+      return;
     }
+
+    // We're seeing a spurious newline before some launches; this removes any single newline that occurred
+    // before we've printed text.
+    if (!hasPrintedText && line.equals(("\n"))) {
+      return;
+    }
+
+    hasPrintedText = true;
+
+    super.print(line, ConsoleViewContentType.NORMAL_OUTPUT);
   }
 }
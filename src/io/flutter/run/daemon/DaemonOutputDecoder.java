@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import com.google.gson.JsonObject;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.util.Key;
+import io.flutter.utils.StdoutJsonParser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Splits a Flutter process's stdout into lines and decodes the daemon messages among them, once per process.
+ * <p>
+ * The decoder listens to the process itself and decodes each stdout chunk exactly once, as it arrives, then hands the lines to its
+ * listeners: the {@link DaemonApi} listening to the process and the {@link DaemonConsoleView} showing its output.
+ */
+class DaemonOutputDecoder {
+  private static final Key<DaemonOutputDecoder> KEY = Key.create("io.flutter.run.daemon.DaemonOutputDecoder");
+
+  /**
+   * Receives the lines completed by each stdout chunk.
+   */
+  interface Listener {
+    /**
+     * Called on the thread delivering the process's output, before the process's later listeners see the chunk.
+     */
+    void linesDecoded(@NotNull String chunk, @NotNull List<Line> lines);
+  }
+
+  private final StdoutJsonParser parser = new StdoutJsonParser();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+  private boolean attached;
+
+  /**
+   * Returns the decoder shared by everything reading the given process's stdout.
+   * <p>
+   * The first call starts decoding the process's output, so it should be made before adding listeners that rely on the decoded lines.
+   */
+  @NotNull
+  static DaemonOutputDecoder forProcess(@NotNull ProcessHandler process) {
+    final DaemonOutputDecoder decoder = process.putUserDataIfAbsent(KEY, new DaemonOutputDecoder());
+    synchronized (decoder) {
+      if (!decoder.attached) {
+        decoder.attached = true;
+        process.addProcessListener(new ProcessAdapter() {
+          @Override
+          public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
+            if (outputType.equals(ProcessOutputTypes.STDOUT)) {
+              final String chunk = event.getText();
+              final List<Line> lines = decoder.decode(chunk);
+              for (Listener listener : decoder.listeners) {
+                listener.linesDecoded(chunk, lines);
+              }
+            }
+          }
+        });
+      }
+    }
+    return decoder;
+  }
+
+  void addListener(@NotNull Listener listener) {
+    listeners.add(listener);
+  }
+
+  void removeListener(@NotNull Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Decodes the next chunk of stdout, returning the lines it completes.
+   */
+  @NotNull
+  synchronized List<Line> decode(@NotNull String chunk) {
+    parser.appendOutput(chunk);
+    final List<String> texts = parser.getAvailableLines();
+    final List<Line> lines = new ArrayList<>(texts.size());
+    for (String text : texts) {
+      lines.add(new Line(text, DaemonApi.parseAndValidateDaemonEvent(text)));
+    }
+    return Collections.unmodifiableList(lines);
+  }
+
+  /**
+   * A line of stdout and, if it is a daemon message, its decoded JSON.
+   */
+  record Line(@NotNull String text, @Nullable JsonObject message) {
+  }
+}
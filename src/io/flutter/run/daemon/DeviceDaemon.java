@@ -5,11 +5,14 @@
  */
 package io.flutter.run.daemon;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
+import com.intellij.execution.process.ProcessAdapter;
+import com.intellij.execution.process.ProcessEvent;
 import com.intellij.execution.process.ProcessHandler;
 import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.diagnostic.Logger;
@@ -19,6 +22,7 @@ import com.intellij.openapi.ui.Messages;
 import com.intellij.openapi.util.SystemInfo;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import io.flutter.FlutterMessages;
 import io.flutter.FlutterUtils;
 import io.flutter.android.IntelliJAndroidSdk;
@@ -43,7 +47,6 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
-import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
@@ -57,6 +60,19 @@ class DeviceDaemon {
    */
   private static final int RESTART_ATTEMPTS_BEFORE_WARNING = 1;
 
+  /**
+   * How long to wait before launching the process, so that a burst of configuration changes only starts one daemon. This also gives the
+   * flutter tool a moment to settle if it just upgraded the SDK.
+   */
+  private static final long STARTUP_DELAY_MILLIS = 100;
+
+  /**
+   * The delay before launching the process again after it first fails. Doubled after each further failure.
+   */
+  static final long INITIAL_RETRY_DELAY_MILLIS = 500;
+
+  static final long MAX_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
   /**
    * A unique id used to log device daemon actions.
    */
@@ -100,15 +116,6 @@ class DeviceDaemon {
     return devices.get();
   }
 
-  /**
-   * Returns true if the daemon should be restarted.
-   *
-   * @param next the command that should be running now.
-   */
-  boolean needRestart(@NotNull Command next) {
-    return !isRunning() || !command.equals(next);
-  }
-
   /**
    * Kills the process. (Normal shutdown.)
    */
@@ -187,7 +194,8 @@ class DeviceDaemon {
      */
     @Nullable private final String androidHome;
 
-    private Command(@NotNull String workDir, @NotNull String command, @NotNull ImmutableList<String> parameters,
+    @VisibleForTesting
+    Command(@NotNull String workDir, @NotNull String command, @NotNull ImmutableList<String> parameters,
                     @Nullable String androidHome) {
       this.workDir = workDir;
       this.command = command;
@@ -197,86 +205,19 @@ class DeviceDaemon {
 
     /**
      * Launches the daemon.
+     * <p>
+     * <p>The returned future completes once the daemon has connected and enabled device events. If the process exits before then, it's
+     * launched again after an exponentially increasing delay. The future completes with null if the daemon keeps failing and the user
+     * has been told about it. Cancelling the future stops startup and kills any process it launched.
      *
-     * @param isCancelled    will be polled during startup to see if startup is cancelled.
      * @param deviceChanged  will be called whenever a device is added or removed from the returned DeviceDaemon.
-     * @param processStopped will be called if the process exits unexpectedly after this method returns.
+     * @param processStopped will be called if the process exits unexpectedly after the returned future completes.
      */
-    DeviceDaemon start(Supplier<Boolean> isCancelled,
-                       Runnable deviceChanged,
-                       Consumer<String> processStopped) throws ExecutionException {
-      final int daemonId = nextDaemonId.incrementAndGet();
-      //noinspection UnnecessaryToStringCall
-      LOG.info("starting Flutter device daemon #" + daemonId + ": " + toString());
-      // The mostly silent process handler reduces CPU usage of the daemon process.
-      final ProcessHandler process = new MostlySilentColoredProcessHandler(toCommandLine());
-
-      boolean succeeded = false;
-      try {
-        final AtomicReference<ImmutableList<FlutterDevice>> devices = new AtomicReference<>(ImmutableList.of());
-
-        final DaemonApi api = new DaemonApi(process);
-        final Listener listener = new Listener(daemonId, api, devices, deviceChanged, processStopped);
-        api.listen(process, listener);
-
-        final Future<Void> ready = listener.connected.thenCompose((Void ignored) -> api.enableDeviceEvents());
-
-        // Block until we get a response, or are cancelled.
-        int attempts = 0;
-        while (true) {
-          if (isCancelled.get()) {
-            throw new CancellationException();
-          }
-          else if (process.isProcessTerminated()) {
-            final Integer exitCode = process.getExitCode();
-            String failureMessage = "Flutter device daemon #" + daemonId + " exited (exit code " + exitCode + ")";
-            if (!api.getStderrTail().isEmpty()) {
-              failureMessage += ", stderr: " + api.getStderrTail();
-            }
-            attempts++;
-            if (attempts <= DeviceDaemon.RESTART_ATTEMPTS_BEFORE_WARNING) {
-              LOG.warn(failureMessage);
-            }
-            else {
-              // IntelliJ will show a generic failure message the first time we log this error.
-              LOG.warn(failureMessage);
-
-              // The second time we log this error, we'll show a customized message to alert the user to the specific problem.
-              if (attempts == DeviceDaemon.RESTART_ATTEMPTS_BEFORE_WARNING + 1) {
-                // Show a message in the UI when we reach the warning threshold.
-                FlutterMessages.showError("Flutter device daemon", failureMessage, null);
-              }
-              else if (attempts == DeviceDaemon.RESTART_ATTEMPTS_BEFORE_WARNING + 4) {
-                OpenApiUtils.safeInvokeLater(() -> new DaemonCrashReporter().show(), ModalityState.nonModal());
-                return null;
-              }
-            }
-          }
-
-          try {
-            // Retry with a longer delay if we are encountering repeated failures of the daemon.
-            ready.get(attempts <= DeviceDaemon.RESTART_ATTEMPTS_BEFORE_WARNING ? 100L : 10000L * attempts, TimeUnit.MILLISECONDS);
-
-            succeeded = true;
-            return new DeviceDaemon(daemonId, this, process, listener, devices);
-          }
-          catch (TimeoutException e) {
-            // Check for cancellation and try again.
-          }
-          catch (InterruptedException e) {
-            throw new CancellationException();
-          }
-          catch (java.util.concurrent.ExecutionException e) {
-            // This is not a user facing crash - we log (and no devices will be discovered).
-            FlutterUtils.warn(LOG, e.getCause());
-          }
-        }
-      }
-      finally {
-        if (!succeeded) {
-          process.destroyProcess();
-        }
-      }
+    @NotNull
+    CompletableFuture<DeviceDaemon> start(@NotNull Runnable deviceChanged, @NotNull Consumer<String> processStopped) {
+      final Startup startup = new Startup(this, deviceChanged, processStopped);
+      startup.scheduleAttempt(STARTUP_DELAY_MILLIS);
+      return startup.result;
     }
 
     @Override
@@ -321,6 +262,160 @@ class DeviceDaemon {
     }
   }
 
+  /**
+   * The state of a daemon being started.
+   * <p>
+   * <p>Each attempt launches a process and waits for whichever happens first: the process exits, or it connects and enables device events.
+   * Nothing blocks while waiting; the next step runs when a future completes.
+   */
+  private static class Startup {
+    @NotNull private final Command command;
+    @NotNull private final Runnable deviceChanged;
+    @NotNull private final Consumer<String> processStopped;
+
+    @NotNull private final CompletableFuture<DeviceDaemon> result = new CompletableFuture<>();
+
+    /**
+     * When startup was requested, for reporting cold-start time.
+     */
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * The process launched by the current attempt, if any.
+     */
+    private final AtomicReference<ProcessHandler> process = new AtomicReference<>();
+
+    Startup(@NotNull Command command, @NotNull Runnable deviceChanged, @NotNull Consumer<String> processStopped) {
+      this.command = command;
+      this.deviceChanged = deviceChanged;
+      this.processStopped = processStopped;
+
+      result.whenComplete((daemon, error) -> {
+        if (daemon == null) {
+          // Cancelled or gave up; don't leave a process behind.
+          final ProcessHandler launched = process.getAndSet(null);
+          if (launched != null) {
+            launched.destroyProcess();
+          }
+        }
+      });
+    }
+
+    void scheduleAttempt(long delayMillis) {
+      AppExecutorUtil.getAppScheduledExecutorService().schedule(this::attempt, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void attempt() {
+      if (result.isDone()) {
+        return; // Cancelled while waiting.
+      }
+
+      final int daemonId = nextDaemonId.incrementAndGet();
+      LOG.info("starting Flutter device daemon #" + daemonId + ": " + command);
+
+      final ProcessHandler attemptProcess;
+      try {
+        // The mostly silent process handler reduces CPU usage of the daemon process.
+        attemptProcess = new MostlySilentColoredProcessHandler(command.toCommandLine());
+      }
+      catch (ExecutionException e) {
+        result.completeExceptionally(e);
+        return;
+      }
+      process.set(attemptProcess);
+
+      final AtomicReference<ImmutableList<FlutterDevice>> devices = new AtomicReference<>(ImmutableList.of());
+      final DaemonApi api = new DaemonApi(attemptProcess);
+      final Listener listener = new Listener(daemonId, api, devices, deviceChanged, processStopped, startNanos);
+
+      final CompletableFuture<Integer> exited = new CompletableFuture<>();
+      attemptProcess.addProcessListener(new ProcessAdapter() {
+        @Override
+        public void processTerminated(@NotNull ProcessEvent event) {
+          exited.complete(event.getExitCode());
+        }
+      });
+      api.listen(attemptProcess, listener);
+
+      final CompletableFuture<Void> ready = listener.connected.thenCompose((Void ignored) -> api.enableDeviceEvents());
+
+      // Settles the attempt exactly once, whichever future completes first.
+      final AtomicBoolean settled = new AtomicBoolean();
+      ready.whenComplete((ignored, error) -> {
+        if (!settled.compareAndSet(false, true)) {
+          return;
+        }
+        if (error != null) {
+          // This is not a user facing crash - we log and try again with a new process.
+          FlutterUtils.warn(LOG, "Flutter device daemon #" + daemonId + " didn't enable device events", error);
+          attemptProcess.destroyProcess();
+          failed(daemonId, null, api);
+          return;
+        }
+
+        final DeviceDaemon daemon = new DeviceDaemon(daemonId, command, attemptProcess, listener, devices);
+        if (!result.complete(daemon)) {
+          daemon.shutdown(); // Cancelled at the last moment.
+          return;
+        }
+        LOG.info("Flutter device daemon #" + daemonId + " ready after " + millisSince(startNanos) + "ms" +
+                 (failures.get() == 0 ? "" : " (" + (failures.get() + 1) + " attempts)"));
+      });
+      exited.thenAccept((exitCode) -> {
+        if (settled.compareAndSet(false, true)) {
+          failed(daemonId, exitCode, api);
+        }
+      });
+
+      if (result.isDone()) {
+        // Cancelled while launching.
+        attemptProcess.destroyProcess();
+      }
+    }
+
+    private void failed(int daemonId, @Nullable Integer exitCode, @NotNull DaemonApi api) {
+      process.set(null);
+      if (result.isDone()) {
+        return;
+      }
+
+      String failureMessage = "Flutter device daemon #" + daemonId + " exited (exit code " + exitCode + ")";
+      if (!api.getStderrTail().isEmpty()) {
+        failureMessage += ", stderr: " + api.getStderrTail();
+      }
+      // IntelliJ will show a generic failure message the first time we log this error.
+      LOG.warn(failureMessage);
+
+      final int attempts = failures.incrementAndGet();
+      if (attempts == RESTART_ATTEMPTS_BEFORE_WARNING + 1) {
+        // The second time, show a customized message to alert the user to the specific problem.
+        FlutterMessages.showError("Flutter device daemon", failureMessage, null);
+      }
+      else if (attempts == RESTART_ATTEMPTS_BEFORE_WARNING + 4) {
+        OpenApiUtils.safeInvokeLater(() -> new DaemonCrashReporter().show(), ModalityState.nonModal());
+        result.complete(null);
+        return;
+      }
+
+      scheduleAttempt(retryDelayMillis(attempts));
+    }
+  }
+
+  /**
+   * Returns how long to wait before the next attempt after the given number of failures: exponential backoff with jitter, so that
+   * projects opened together don't all retry at the same moment.
+   */
+  static long retryDelayMillis(int failures) {
+    final long max = Math.min(INITIAL_RETRY_DELAY_MILLIS << Math.min(failures - 1, 16), MAX_RETRY_DELAY_MILLIS);
+    return max / 2 + ThreadLocalRandom.current().nextLong(max / 2 + 1);
+  }
+
+  private static long millisSince(long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+
   /**
    * Handles events sent by the device daemon process.
    * <p>
@@ -333,19 +428,27 @@ class DeviceDaemon {
     private final Runnable deviceChanged;
     private final Consumer<String> processStopped;
 
+    /**
+     * When startup was requested, for reporting the time until the first device shows up.
+     */
+    private final long startNanos;
+
     private transient final CompletableFuture<Void> connected = new CompletableFuture<>();
     private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean sawDevice = new AtomicBoolean(false);
 
     Listener(int daemonId,
              DaemonApi api,
              AtomicReference<ImmutableList<FlutterDevice>> devices,
              Runnable deviceChanged,
-             Consumer<String> processStopped) {
+             Consumer<String> processStopped,
+             long startNanos) {
       this.daemonId = daemonId;
       this.api = api;
       this.devices = devices;
       this.deviceChanged = deviceChanged;
       this.processStopped = processStopped;
+      this.startNanos = startNanos;
     }
 
     // daemon domain
@@ -395,6 +498,9 @@ class DeviceDaemon {
                                                         event.platformType,
                                                         event.ephemeral);
       devices.updateAndGet((old) -> addDevice(old.stream(), newDevice));
+      if (sawDevice.compareAndSet(false, true)) {
+        LOG.info("Flutter device daemon #" + daemonId + " reported its first device after " + millisSince(startNanos) + "ms");
+      }
       deviceChanged.run();
     }
 
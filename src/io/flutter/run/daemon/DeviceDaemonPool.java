@@ -0,0 +1,313 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import io.flutter.FlutterUtils;
+import io.flutter.run.FlutterDevice;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The device daemons running for all open projects.
+ * <p>
+ * <p>Projects whose {@link DeviceDaemon.Command} is the same (the same Flutter SDK or Bazel workspace, and the same ANDROID_HOME) share
+ * one 'flutter daemon' process and its device list. Each project holds a {@link Lease} on the daemon; the process is shut down when the
+ * last lease is released.
+ */
+public final class DeviceDaemonPool implements Disposable {
+  private final Map<DeviceDaemon.Command, Entry> entries = new HashMap<>();
+
+  @NotNull
+  public static DeviceDaemonPool getInstance() {
+    return Objects.requireNonNull(ApplicationManager.getApplication().getService(DeviceDaemonPool.class));
+  }
+
+  /**
+   * Returns a lease on the daemon for the given command, starting the daemon in the background if no other project is using it.
+   *
+   * @param deviceChanged  will be called whenever a device is added or removed or the daemon is replaced, until the lease is released.
+   * @param processStopped will be called if the daemon exits unexpectedly, until the lease is released.
+   * @param replacing      the lease this one replaces, if any. Its daemon is kept running, and its devices are reported by the new lease,
+   *                       until the new daemon has started. This way switching SDKs doesn't empty the device list in the meantime.
+   */
+  @NotNull
+  Lease acquire(@NotNull DeviceDaemon.Command command, @NotNull Runnable deviceChanged, @NotNull Consumer<String> processStopped,
+                @Nullable Lease replacing) {
+    final Entry entry;
+    Entry held = null;
+    synchronized (this) {
+      entry = entries.computeIfAbsent(command, Entry::new);
+      entry.refCount++;
+
+      if (replacing != null && replacing.entry != entry && entries.get(replacing.entry.command) == replacing.entry) {
+        held = replacing.entry;
+        held.refCount++;
+      }
+    }
+
+    final Lease lease = new Lease(entry, deviceChanged, processStopped, held);
+    entry.leases.add(lease);
+    entry.ensureStarted();
+    if (!entry.isStarting()) {
+      // Already running (or failed to start), so there is nothing to wait for.
+      lease.releaseHeld();
+    }
+    return lease;
+  }
+
+  /**
+   * Returns the number of leases on the daemon for the given command, including those kept while a replacement starts.
+   */
+  @VisibleForTesting
+  synchronized int getLeaseCount(@NotNull DeviceDaemon.Command command) {
+    final Entry entry = entries.get(command);
+    return entry == null ? 0 : entry.refCount;
+  }
+
+  private void release(@NotNull Entry entry) {
+    synchronized (this) {
+      if (--entry.refCount > 0) {
+        return;
+      }
+      entries.remove(entry.command);
+    }
+    entry.shutdown();
+  }
+
+  @Override
+  public void dispose() {
+    final List<Entry> toShutDown;
+    synchronized (this) {
+      toShutDown = new ArrayList<>(entries.values());
+      entries.clear();
+    }
+    for (Entry entry : toShutDown) {
+      entry.shutdown();
+    }
+  }
+
+  /**
+   * A daemon shared by every project whose configuration results in the same command.
+   */
+  private static class Entry {
+    @NotNull private final DeviceDaemon.Command command;
+
+    /**
+     * The number of leases handed out or being handed out. Guarded by the pool.
+     */
+    private int refCount;
+
+    @NotNull private final List<Lease> leases = new CopyOnWriteArrayList<>();
+
+    /**
+     * The running daemon, or null if it hasn't started yet or was stopped.
+     */
+    @Nullable private volatile DeviceDaemon daemon;
+
+    /**
+     * The daemon being started, or null if none is. Guarded by this entry.
+     */
+    @Nullable private CompletableFuture<DeviceDaemon> starting;
+
+    Entry(@NotNull DeviceDaemon.Command command) {
+      this.command = command;
+    }
+
+    /**
+     * Starts the daemon unless it's already running or starting.
+     */
+    synchronized void ensureStarted() {
+      final DeviceDaemon current = daemon;
+      if (starting != null || (current != null && current.isRunning())) {
+        return;
+      }
+
+      final CompletableFuture<DeviceDaemon> next = command.start(this::deviceChanged, this::processStopped);
+      starting = next;
+      next.whenComplete((started, error) -> {
+        synchronized (this) {
+          if (starting != next) {
+            return; // Stopped in the meantime; the start was cancelled.
+          }
+          starting = null;
+          daemon = started;
+        }
+        if (error != null) {
+          LOG.info("Error starting up the Flutter device daemon", error);
+        }
+        // The daemons this one replaces are no longer needed.
+        for (Lease lease : leases) {
+          lease.releaseHeld();
+        }
+        // Every project sharing this entry needs to pick up the new process's devices (or the lack of them).
+        deviceChanged();
+      });
+    }
+
+    boolean isStarting() {
+      synchronized (this) {
+        return starting != null;
+      }
+    }
+
+    /**
+     * Stops the daemon without reporting it as an unexpected exit. The next lease acquired starts it again.
+     */
+    void stop() {
+      shutdown();
+      deviceChanged();
+    }
+
+    void shutdown() {
+      final CompletableFuture<DeviceDaemon> pending;
+      final DeviceDaemon current;
+      synchronized (this) {
+        pending = starting;
+        starting = null;
+        current = daemon;
+        daemon = null;
+      }
+      if (pending != null) {
+        pending.cancel(false);
+      }
+      if (current != null) {
+        current.shutdown();
+      }
+    }
+
+    private void deviceChanged() {
+      for (Lease lease : leases) {
+        try {
+          lease.deviceChanged.run();
+        }
+        catch (Exception e) {
+          FlutterUtils.warn(LOG, "DeviceDaemon listener threw an exception", e);
+        }
+      }
+    }
+
+    private void processStopped(@NotNull String details) {
+      for (Lease lease : leases) {
+        lease.processStopped.accept(details);
+      }
+    }
+  }
+
+  /**
+   * A project's use of a shared daemon.
+   */
+  class Lease {
+    @NotNull private final Entry entry;
+    @NotNull private final Runnable deviceChanged;
+    @NotNull private final Consumer<String> processStopped;
+    private boolean released;
+
+    /**
+     * The entry of the lease this one replaced, kept running until this lease's daemon has started. Guarded by this lease.
+     */
+    @Nullable private Entry held;
+
+    private Lease(@NotNull Entry entry, @NotNull Runnable deviceChanged, @NotNull Consumer<String> processStopped,
+                  @Nullable Entry held) {
+      this.entry = entry;
+      this.deviceChanged = deviceChanged;
+      this.processStopped = processStopped;
+      this.held = held;
+    }
+
+    /**
+     * Returns true if the shared process is still running.
+     */
+    boolean isRunning() {
+      final DeviceDaemon daemon = entry.daemon;
+      return daemon != null && daemon.isRunning();
+    }
+
+    /**
+     * Returns the devices reported by the shared process, or by the replaced process while the shared one is starting.
+     */
+    @NotNull
+    ImmutableList<FlutterDevice> getDevices() {
+      DeviceDaemon daemon = entry.daemon;
+      if (daemon == null) {
+        final Entry previous;
+        synchronized (this) {
+          previous = held;
+        }
+        daemon = previous == null ? null : previous.daemon;
+      }
+      return daemon == null ? ImmutableList.of() : daemon.getDevices();
+    }
+
+    /**
+     * Returns true if the shared process is being started.
+     */
+    boolean isStarting() {
+      return entry.isStarting();
+    }
+
+    /**
+     * Returns true if a new lease should be acquired.
+     *
+     * @param next the command that should be running now.
+     */
+    boolean needRestart(@NotNull DeviceDaemon.Command next) {
+      return !entry.command.equals(next) || (!isRunning() && !isStarting());
+    }
+
+    /**
+     * Stops the shared process for every project using it, so that it will be started again by the next lease acquired.
+     */
+    void stopDaemon() {
+      entry.stop();
+    }
+
+    /**
+     * Gives up this project's use of the daemon. Shuts it down if no other project is using it.
+     */
+    void release() {
+      synchronized (this) {
+        if (released) {
+          return;
+        }
+        released = true;
+      }
+      entry.leases.remove(this);
+      releaseHeld();
+      DeviceDaemonPool.this.release(entry);
+    }
+
+    /**
+     * Lets go of the replaced daemon, if this lease is still keeping it running.
+     */
+    private void releaseHeld() {
+      final Entry previous;
+      synchronized (this) {
+        previous = held;
+        held = null;
+      }
+      if (previous != null) {
+        DeviceDaemonPool.this.release(previous);
+      }
+    }
+  }
+
+  private static final @NotNull Logger LOG = Logger.getInstance(DeviceDaemonPool.class);
+}
@@ -8,10 +8,8 @@ package io.flutter.run.daemon;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.intellij.concurrency.JobScheduler;
-import com.intellij.execution.ExecutionException;
 import com.intellij.ide.ActivityTracker;
 import com.intellij.openapi.application.ApplicationInfo;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
@@ -44,9 +42,11 @@ public class DeviceService {
   @NotNull private final Project project;
 
   /**
-   * The process used to watch for device list changes (for the device menu). May be null if not running.
+   * This project's lease on the process used to watch for device list changes (for the device menu). May be null if not running.
+   * <p>
+   * <p>The process itself is shared with other open projects that use the same SDK; see {@link DeviceDaemonPool}.
    */
-  private final Refreshable<DeviceDaemon> deviceDaemon = new Refreshable<>(DeviceDaemon::shutdown);
+  private final Refreshable<DeviceDaemonPool.Lease> deviceDaemon = new Refreshable<>(DeviceDaemonPool.Lease::release);
 
   private final AtomicReference<DeviceSelection> deviceSelection = new AtomicReference<>(DeviceSelection.EMPTY);
 
@@ -118,11 +118,11 @@ public class DeviceService {
    * Returns whether the device list is inactive, loading, or ready.
    */
   public State getStatus() {
-    final DeviceDaemon daemon = deviceDaemon.getNow();
+    final DeviceDaemonPool.Lease daemon = deviceDaemon.getNow();
     if (daemon != null && daemon.isRunning()) {
       return State.READY;
     }
-    else if (deviceDaemon.getState() == Refreshable.State.BUSY) {
+    else if ((daemon != null && daemon.isStarting()) || deviceDaemon.getState() == Refreshable.State.BUSY) {
       return State.LOADING;
     }
     else {
@@ -154,7 +154,7 @@ public class DeviceService {
 
   private synchronized void refreshDeviceSelection() {
     deviceSelection.updateAndGet((old) -> {
-      final DeviceDaemon daemon = deviceDaemon.getNow();
+      final DeviceDaemonPool.Lease daemon = deviceDaemon.getNow();
       final List<FlutterDevice> newDevices = daemon == null ? ImmutableList.of() : daemon.getDevices();
       FlutterDevice oldSelection = old.getSelection();
       String selection = oldSelection != null
@@ -185,8 +185,8 @@ public class DeviceService {
    * <p>This might mean starting it, stopping it, or restarting it.
    */
   private void refreshDeviceDaemon() {
-    ApplicationManager.getApplication().executeOnPooledThread(() -> {
-      DumbService.getInstance(project).waitForSmartMode();
+    if (project.isDisposed()) return;
+    DumbService.getInstance(project).runWhenSmart(() -> {
       if (project.isDisposed()) return;
       deviceDaemon.refresh(this::chooseNextDaemon);
       refreshInProgress = false;
@@ -197,7 +197,7 @@ public class DeviceService {
   private void daemonStopped(String details) {
     if (project.isDisposed()) return;
 
-    final DeviceDaemon current = deviceDaemon.getNow();
+    final DeviceDaemonPool.Lease current = deviceDaemon.getNow();
     if (current == null || current.isRunning()) {
       // The active daemon didn't die, so it must be some older process. Just log it.
       LOG.info("A Flutter device daemon stopped.\n" + details);
@@ -224,28 +224,19 @@ public class DeviceService {
   /**
    * Returns the device daemon that should be running.
    * <p>
-   * <p>Starts it if needed. If null is returned then the previous daemon will be shut down.
+   * <p>Starts it in the background if needed; the device list is refreshed once it's ready. If null is returned then the previous daemon
+   * will be shut down.
    */
-  private DeviceDaemon chooseNextDaemon(Refreshable.Request<DeviceDaemon> request) {
+  private DeviceDaemonPool.Lease chooseNextDaemon(Refreshable.Request<DeviceDaemonPool.Lease> request) {
     final DeviceDaemon.Command nextCommand = DeviceDaemon.chooseCommand(project);
     if (nextCommand == null) {
       return null; // Unconfigured; shut down if running.
     }
 
-    final DeviceDaemon previous = request.getPrevious();
+    final DeviceDaemonPool.Lease previous = request.getPrevious();
     if (previous != null && !previous.needRestart(nextCommand)) {
       return previous; // Don't do anything; current daemon is what we want.
     }
-
-    // Wait a bit to see if we get cancelled. This is to try to avoid starting a process only to
-    // immediately kill it. Also, delay a bit in case the flutter tool just upgraded the sdk;
-    // we'll need a bit more time to start up.
-    try {
-      Thread.sleep(100);
-    }
-    catch (InterruptedException e) {
-      return previous;
-    }
     if (request.isCancelled()) {
       return previous;
     }
@@ -254,15 +245,8 @@ public class DeviceService {
     final AndroidEmulatorManager emulatorManager = AndroidEmulatorManager.getInstance(project);
     emulatorManager.refresh();
 
-    try {
-      return nextCommand.start(request::isCancelled, this::refreshDeviceSelection, this::daemonStopped);
-    }
-    catch (ExecutionException executionException) {
-      LOG.info("Error starting up the Flutter device daemon", executionException);
-
-      // Couldn't start a new instance; don't shut down any previous instance.
-      return previous;
-    }
+    // Starting is delayed a little, so if this request is superseded the new process is usually cancelled before it's launched.
+    return DeviceDaemonPool.getInstance().acquire(nextCommand, this::refreshDeviceSelection, this::daemonStopped, previous);
   }
 
   public void restart() {
@@ -273,11 +257,17 @@ public class DeviceService {
   }
 
   private void shutDown() {
+    // The user asked for a restart, so stop the process even if other projects share it. They pick up the new process once this
+    // project starts it again.
+    final DeviceDaemonPool.Lease current = deviceDaemon.getNow();
+    if (current != null) {
+      current.stopDaemon();
+    }
     deviceDaemon.refresh(this::shutDownDaemon);
   }
 
   @SuppressWarnings("SameReturnValue")
-  private DeviceDaemon shutDownDaemon(Refreshable.Request<DeviceDaemon> request) {
+  private DeviceDaemonPool.Lease shutDownDaemon(Refreshable.Request<DeviceDaemonPool.Lease> request) {
     // Return null to indicate that a shutdown is requested.
     return null;
   }
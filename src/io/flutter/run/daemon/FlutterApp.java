@@ -242,6 +242,9 @@ public class FlutterApp implements Disposable {
       @Override
       public void processTerminated(@NotNull ProcessEvent event) {
         LOG.info(analyticsStop + " " + project.getName() + " (" + mode.mode() + ")");
+        if (FlutterSettings.getInstance().isVerboseLogging()) {
+          LOG.info("Flutter daemon commands:\n" + api.getMetrics());
+        }
 
         Disposer.dispose(app);
       }
@@ -338,9 +341,20 @@ public class FlutterApp implements Disposable {
       myDaemonApi.restartApp(myAppId, true, false, reason);
     future.thenAccept(result -> changeState(State.STARTED));
     future.thenRun(this::notifyAppRestarted);
+    future.thenRun(() -> logRestartMetrics(true));
     return future;
   }
 
+  /**
+   * Logs the latency of this app's hot reloads or hot restarts so far, if verbose logging is on.
+   */
+  private void logRestartMetrics(boolean fullRestart) {
+    if (FlutterSettings.getInstance().isVerboseLogging()) {
+      final String key = DaemonApi.getRestartMetricsKey(fullRestart);
+      LOG.info(key + ": " + myDaemonApi.getMetrics().getCommandMetrics(key));
+    }
+  }
+
   private void notifyAppReloaded() {
     listenersDispatcher.getMulticaster().notifyAppReloaded();
   }
@@ -402,6 +416,7 @@ public class FlutterApp implements Disposable {
       myDaemonApi.restartApp(myAppId, false, pauseAfterRestart, reason);
     future.thenAccept(result -> changeState(State.STARTED));
     future.thenRun(this::notifyAppReloaded);
+    future.thenRun(() -> logRestartMetrics(false));
     return future;
   }
 
@@ -580,6 +595,11 @@ public class FlutterApp implements Disposable {
     myVMServiceManager = vmServiceManager;
 
     myVmService.addVmServiceListener(new VmServiceListenerAdapter() {
+      @Override
+      public boolean isInterestedIn(String streamId) {
+        return StringUtil.equals(streamId, VmService.EXTENSION_STREAM_ID);
+      }
+
       @Override
       public void received(String streamId, Event event) {
         if (StringUtil.equals(streamId, VmService.EXTENSION_STREAM_ID)) {
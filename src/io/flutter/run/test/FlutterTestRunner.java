@@ -132,6 +132,11 @@ public class FlutterTestRunner extends GenericProgramRunner {
       // Listen for debug 'PauseStart' events for isolates after the initial connect and resume those isolates.
       vmService.streamListen(VmService.DEBUG_STREAM_ID, VmServiceConsumers.EMPTY_SUCCESS_CONSUMER);
       vmService.addVmServiceListener(new VmServiceListenerAdapter() {
+        @Override
+        public boolean isInterestedIn(String streamId) {
+          return VmService.DEBUG_STREAM_ID.equals(streamId);
+        }
+
         @Override
         public void received(String streamId, Event event) {
           if (EventKind.PauseStart.equals(event.getKind())) {
@@ -75,6 +75,7 @@ public class FlutterSettingsConfigurable implements SearchableConfigurable {
   private JCheckBox myOrganizeImportsOnSaveCheckBox;
   private JCheckBox myShowStructuredErrors;
   private JCheckBox myIncludeAllStackTraces;
+  private JCheckBox myCollapseRepeatedErrors;
   private JCheckBox myEnableBazelHotRestartCheckBox;
 
   private JCheckBox myEnableJcefBrowserCheckBox;
@@ -138,6 +139,8 @@ public class FlutterSettingsConfigurable implements SearchableConfigurable {
       (e) -> myOrganizeImportsOnSaveCheckBox.setEnabled(myFormatCodeOnSaveCheckBox.isSelected()));
     myShowStructuredErrors.addChangeListener(
       (e) -> myIncludeAllStackTraces.setEnabled(myShowStructuredErrors.isSelected()));
+    myShowStructuredErrors.addChangeListener(
+      (e) -> myCollapseRepeatedErrors.setEnabled(myShowStructuredErrors.isSelected()));
 
     myEnableBazelHotRestartCheckBox.setVisible(WorkspaceCache.getInstance(myProject).isBazel());
   }
@@ -222,6 +225,10 @@ public class FlutterSettingsConfigurable implements SearchableConfigurable {
       return true;
     }
 
+    if (settings.isCollapseRepeatedErrors() != myCollapseRepeatedErrors.isSelected()) {
+      return true;
+    }
+
     if (settings.isOpenInspectorOnAppLaunch() != myOpenInspectorOnAppLaunchCheckBox.isSelected()) {
       return true;
     }
@@ -297,6 +304,7 @@ public class FlutterSettingsConfigurable implements SearchableConfigurable {
     settings.setShowClosingLabels(myShowClosingLabels.isSelected());
     settings.setShowStructuredErrors(myShowStructuredErrors.isSelected());
     settings.setIncludeAllStackTraces(myIncludeAllStackTraces.isSelected());
+    settings.setCollapseRepeatedErrors(myCollapseRepeatedErrors.isSelected());
     settings.setOpenInspectorOnAppLaunch(myOpenInspectorOnAppLaunchCheckBox.isSelected());
     settings.setPerserveLogsDuringHotReloadAndRestart(myEnableLogsPreserveAfterHotReloadOrRestart.isSelected());
     settings.setVerboseLogging(myEnableVerboseLoggingCheckBox.isSelected());
@@ -360,6 +368,7 @@ public class FlutterSettingsConfigurable implements SearchableConfigurable {
 
     myShowStructuredErrors.setSelected(settings.isShowStructuredErrors());
     myIncludeAllStackTraces.setSelected(settings.isIncludeAllStackTraces());
+    myCollapseRepeatedErrors.setSelected(settings.isCollapseRepeatedErrors());
     myOpenInspectorOnAppLaunchCheckBox.setSelected(settings.isOpenInspectorOnAppLaunch());
     myEnableLogsPreserveAfterHotReloadOrRestart.setSelected(settings.isPerserveLogsDuringHotReloadAndRestart());
     myEnableVerboseLoggingCheckBox.setSelected(settings.isVerboseLogging());
@@ -369,6 +378,7 @@ public class FlutterSettingsConfigurable implements SearchableConfigurable {
 
     myOrganizeImportsOnSaveCheckBox.setEnabled(myFormatCodeOnSaveCheckBox.isSelected());
     myIncludeAllStackTraces.setEnabled(myShowStructuredErrors.isSelected());
+    myCollapseRepeatedErrors.setEnabled(myShowStructuredErrors.isSelected());
 
     myEnableJcefBrowserCheckBox.setSelected(settings.isEnableJcefBrowser());
     myFontPackagesTextArea.setText(settings.getFontPackages());
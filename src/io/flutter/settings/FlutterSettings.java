@@ -26,6 +26,7 @@ public class FlutterSettings {
   private static final String syncAndroidLibrariesKey = "io.flutter.syncAndroidLibraries";
   private static final String showStructuredErrorsKey = "io.flutter.showStructuredErrors";
   private static final String includeAllStackTracesKey = "io.flutter.includeAllStackTraces";
+  private static final String collapseRepeatedErrorsKey = "io.flutter.collapseRepeatedErrors";
   private static final String showBuildMethodGuidesKey = "io.flutter.editor.showBuildMethodGuides";
   private static final String enableBazelHotRestartKey = "io.flutter.editor.enableBazelHotRestart";
   private static final String showBazelHotRestartWarningKey = "io.flutter.showBazelHotRestartWarning";
@@ -131,6 +132,16 @@ public class FlutterSettings {
     fireEvent();
   }
 
+  public boolean isCollapseRepeatedErrors() {
+    return getPropertiesComponent().getBoolean(collapseRepeatedErrorsKey, true);
+  }
+
+  public void setCollapseRepeatedErrors(boolean value) {
+    getPropertiesComponent().setValue(collapseRepeatedErrorsKey, value, true);
+
+    fireEvent();
+  }
+
   public boolean isOpenInspectorOnAppLaunch() {
     return getPropertiesComponent().getBoolean(openInspectorOnAppLaunchKey, false);
   }
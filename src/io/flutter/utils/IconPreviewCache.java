@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.utils;
+
+import com.intellij.openapi.diagnostic.Logger;
+import io.flutter.FlutterUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The fonts and rendered glyphs used for icon previews, shared by all {@link IconPreviewGenerator}s.
+ * <p>
+ * A gutter pass over a file with many icons asks for the same few fonts over and over, and often for the same glyphs. Fonts are keyed by
+ * path and reloaded when the file's modification stamp changes. Glyphs are keyed by font, codepoint, size and color, and the least
+ * recently used ones are evicted once they take up more than {@link #MAX_GLYPH_BYTES}.
+ */
+final class IconPreviewCache {
+  private static final @NotNull Logger LOG = Logger.getInstance(IconPreviewCache.class);
+
+  /**
+   * The number of font files kept loaded.
+   */
+  static final int MAX_FONTS = 16;
+
+  /**
+   * The approximate memory the rendered glyphs can take up.
+   */
+  static final long MAX_GLYPH_BYTES = 4 * 1024 * 1024;
+
+  private static final IconPreviewCache INSTANCE = new IconPreviewCache(MAX_FONTS, MAX_GLYPH_BYTES);
+
+  /**
+   * @param font null if the file couldn't be loaded, so a bad file isn't reparsed for every icon.
+   */
+  private record LoadedFont(long stamp, long length, @Nullable Font font) {
+  }
+
+  private record GlyphKey(@NotNull String fontPath, long stamp, int codepoint, int iconSize, int fontSize, int rgb) {
+  }
+
+  private final long maxGlyphBytes;
+  private long glyphBytes;
+
+  private final Map<String, LoadedFont> fonts;
+  private final LinkedHashMap<GlyphKey, Icon> glyphs = new LinkedHashMap<>(64, 0.75f, true);
+
+  IconPreviewCache(int maxFonts, long maxGlyphBytes) {
+    this.maxGlyphBytes = maxGlyphBytes;
+    this.fonts = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, LoadedFont> eldest) {
+        return size() > maxFonts;
+      }
+    };
+  }
+
+  @NotNull
+  static IconPreviewCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the font in the given file, loading it if it isn't loaded or the file has changed.
+   */
+  @Nullable
+  synchronized Font getFont(@NotNull String path) {
+    final File file = new File(path);
+    final long stamp = file.lastModified();
+    final long length = file.length();
+
+    final LoadedFont loaded = fonts.get(path);
+    if (loaded != null && loaded.stamp() == stamp && loaded.length() == length) {
+      return loaded.font();
+    }
+
+    Font font = null;
+    try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+      font = Font.createFont(Font.TRUETYPE_FONT, inputStream);
+    }
+    catch (IOException | FontFormatException ex) {
+      FlutterUtils.warn(LOG, ex);
+    }
+    fonts.put(path, new LoadedFont(stamp, length, font));
+    return font;
+  }
+
+  /**
+   * Returns the rendered glyph, calling {@code render} if it isn't cached. Null results aren't cached.
+   */
+  @Nullable
+  Icon getGlyph(@NotNull String fontPath, int codepoint, int iconSize, int fontSize, @NotNull Color color,
+                @NotNull Supplier<Icon> render) {
+    final GlyphKey key = new GlyphKey(fontPath, new File(fontPath).lastModified(), codepoint, iconSize, fontSize, color.getRGB());
+    synchronized (this) {
+      final Icon icon = glyphs.get(key);
+      if (icon != null) {
+        return icon;
+      }
+    }
+
+    final Icon icon = render.get();
+    if (icon == null) {
+      return null;
+    }
+    synchronized (this) {
+      if (glyphs.put(key, icon) == null) {
+        glyphBytes += sizeOf(key);
+      }
+      for (var it = glyphs.entrySet().iterator(); glyphBytes > maxGlyphBytes && it.hasNext(); ) {
+        glyphBytes -= sizeOf(it.next().getKey());
+        it.remove();
+      }
+    }
+    return icon;
+  }
+
+  synchronized int getGlyphCount() {
+    return glyphs.size();
+  }
+
+  synchronized void clear() {
+    fonts.clear();
+    glyphs.clear();
+    glyphBytes = 0;
+  }
+
+  /**
+   * The memory taken by a glyph's four-byte-per-pixel image.
+   */
+  private static long sizeOf(@NotNull GlyphKey key) {
+    return 4L * key.iconSize() * key.iconSize();
+  }
+}
@@ -45,25 +45,41 @@ public class IconPreviewGenerator {
   }
 
   public Icon convert(String number) {
-    int codepoint;
+    return convert(parseCodepoint(number));
+  }
+
+  /**
+   * Parses a codepoint written in decimal or as a hex literal.
+   *
+   * @throws NumberFormatException if it's neither.
+   */
+  public static int parseCodepoint(@NotNull String number) {
     if (number.startsWith("0x") || number.startsWith("0X")) {
-      number = number.substring(2);
-      codepoint = Integer.parseInt(number, 16);
-    }
-    else {
-      codepoint = Integer.parseInt(number, 10);
+      return Integer.parseInt(number.substring(2), 16);
     }
-    return convert(codepoint);
+    return Integer.parseInt(number, 10);
   }
 
-  public Icon convert(int code) {
-    return runInGraphicsContext((BufferedImage image, Graphics2D graphics, FontRenderContext frc) -> {
-      char ch = Character.toChars(code)[0];
-      String codepoint = Character.toString(ch);
+  /**
+   * Returns whether the font has a glyph for the given codepoint.
+   */
+  public boolean canDisplay(int code) {
+    final Font font = IconPreviewCache.getInstance().getFont(fontFilePath);
+    return font != null && font.canDisplay(code);
+  }
 
-      drawGlyph(codepoint, graphics, frc);
-      return new ImageIcon(image);
-    });
+  /**
+   * Returns the icon for the given codepoint. Icons are cached, so the same icon may be returned to other callers.
+   */
+  public Icon convert(int code) {
+    return IconPreviewCache.getInstance().getGlyph(fontFilePath, code, iconSize, fontSize, fontColor, () ->
+      runInGraphicsContext((BufferedImage image, Graphics2D graphics, FontRenderContext frc) -> {
+        char ch = Character.toChars(code)[0];
+        String codepoint = Character.toString(ch);
+
+        drawGlyph(codepoint, graphics, frc);
+        return new ImageIcon(image);
+      }));
   }
 
   // Given a file at path-to-font-properties in the format generated by tools_metadata (on github),
@@ -101,25 +117,24 @@ public class IconPreviewGenerator {
   }
 
   private Icon runInGraphicsContext(TripleFunction<BufferedImage, Graphics2D, FontRenderContext, Icon> callback) {
-    Icon result = null;
-    Graphics2D graphics = null;
+    // The font file is parsed once and shared; deriving a sized font from it is cheap.
+    final Font baseFont = IconPreviewCache.getInstance().getFont(fontFilePath);
+    if (baseFont == null) {
+      return null;
+    }
+
     //noinspection UndesirableClassUsage
     BufferedImage image = new BufferedImage(iconSize, iconSize, BufferedImage.TYPE_4BYTE_ABGR);
-    try (InputStream inputStream = new FileInputStream(fontFilePath)) {
-      Font font = Font.createFont(Font.TRUETYPE_FONT, inputStream).deriveFont(Font.PLAIN, fontSize);
-      graphics = image.createGraphics();
-      graphics.setFont(font);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      graphics.setFont(baseFont.deriveFont(Font.PLAIN, fontSize));
       graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
       FontRenderContext frc = new FontRenderContext(new AffineTransform(), true, true);
-      result = callback.fun(image, graphics, frc);
-    }
-    catch (IOException | FontFormatException ex) {
-      FlutterUtils.warn(LOG, ex);
+      return callback.fun(image, graphics, frc);
     }
     finally {
-      if (graphics != null) graphics.dispose();
+      graphics.dispose();
     }
-    return result;
   }
 
   private void drawGlyph(String codepoint, Graphics2D graphics, FontRenderContext frc) {
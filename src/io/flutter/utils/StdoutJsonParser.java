@@ -27,19 +27,25 @@ public class StdoutJsonParser {
    * Write new output to this [StdoutJsonParser].
    */
   public void appendOutput(String string) {
-    for (int i = 0; i < string.length(); ++i) {
+    final int length = string.length();
+    int nextLf = -1;
+    int nextCr = -1;
+    int i = 0;
+    while (i < length) {
       final char c = string.charAt(i);
 
       if (eatNextEol) {
         eatNextEol = false;
 
         if (c == '\n') {
+          i++;
           continue;
         }
 
         if (c == '\r' && !isPotentialWindowsReturn) {
           eatNextEol = true;
           isPotentialWindowsReturn = true;
+          i++;
           continue;
         }
       }
@@ -52,49 +58,102 @@ public class StdoutJsonParser {
         }
       }
 
-      buffer.append(c);
-
-      if (!bufferIsJson && buffer.length() == 2 && buffer.charAt(0) == '[' && c == '{') {
-        bufferIsJson = true;
-      }
-      else if (bufferIsJson && c == ']' && possiblyTerminatesJson(buffer, string, i)) {
-        flushLine();
-      }
-
       if (c == '\n') {
+        buffer.append(c);
         flushLine();
+        i++;
+        continue;
       }
 
       if (c == '\r') {
+        buffer.append(c);
         // Wait and decide whether to flush depending on next character.
         isPotentialWindowsReturn = true;
+        i++;
+        continue;
+      }
+
+      // Copy everything up to the next line break in bulk.
+      if (nextLf < i) {
+        nextLf = indexOfOrLength(string, '\n', i);
       }
+      if (nextCr < i) {
+        nextCr = indexOfOrLength(string, '\r', i);
+      }
+      i = appendRun(string, i, Math.min(nextLf, nextCr));
     }
 
     // Eagerly flush if we are not within JSON so regular log text is written as soon as possible.
     if (!bufferIsJson) {
       flushLine();
     }
-    else if (buffer.toString().endsWith("}]")) {
+    else if (endsWithJsonTerminator()) {
       eatNextEol = true;
       flushLine();
     }
   }
 
-  private boolean possiblyTerminatesJson(StringBuilder output, String input, int inputIndex) {
+  /**
+   * Appends characters that contain no line breaks, splitting off any JSON messages that end within them.
+   */
+  private int appendRun(String input, int start, int end) {
+    int from = start;
+    while (from < end) {
+      if (!bufferIsJson) {
+        if (buffer.length() >= 2) {
+          buffer.append(input, from, end);
+          return end;
+        }
+
+        // A JSON message starts with [{ at the beginning of a line.
+        final int to = Math.min(end, from + 2 - buffer.length());
+        buffer.append(input, from, to);
+        from = to;
+        if (buffer.length() == 2 && buffer.charAt(0) == '[' && buffer.charAt(1) == '{') {
+          bufferIsJson = true;
+        }
+        continue;
+      }
+
+      int close = input.indexOf(']', from);
+      while (close >= 0 && close < end && !possiblyTerminatesJson(input, from, close)) {
+        close = input.indexOf(']', close + 1);
+      }
+      if (close < 0 || close >= end) {
+        buffer.append(input, from, end);
+        return end;
+      }
+
+      buffer.append(input, from, close + 1);
+      flushLine();
+      from = close + 1;
+    }
+    return end;
+  }
+
+  private boolean possiblyTerminatesJson(String input, int from, int close) {
     // This is an approximate approach to look for json message terminations inside of strings -
     // where the normally terminating eol gets separated from the json.
 
-    if (output.length() < 2 || inputIndex + 1 >= input.length()) {
+    if (close + 1 >= input.length()) {
       return false;
     }
 
     // Look for '}', ']', and a letter
-    final char prev = output.charAt(output.length() - 2);
-    final char current = output.charAt(output.length() - 1);
-    final char next = input.charAt(inputIndex + 1);
+    final char prev = close > from ? input.charAt(close - 1) : buffer.charAt(buffer.length() - 1);
+    final char next = input.charAt(close + 1);
+
+    return prev == '}' && Character.isAlphabetic(next);
+  }
+
+  private boolean endsWithJsonTerminator() {
+    final int length = buffer.length();
+    return length >= 2 && buffer.charAt(length - 2) == '}' && buffer.charAt(length - 1) == ']';
+  }
 
-    return prev == '}' && current == ']' && Character.isAlphabetic(next);
+  private static int indexOfOrLength(String string, char c, int from) {
+    final int index = string.indexOf(c, from);
+    return index < 0 ? string.length() : index;
   }
 
   private void flushLine() {
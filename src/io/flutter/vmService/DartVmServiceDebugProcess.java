@@ -23,6 +23,7 @@ import com.intellij.openapi.wm.WindowManager;
 import com.intellij.testFramework.LightVirtualFile;
 import com.intellij.util.BitUtil;
 import com.intellij.util.TimeoutUtil;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.xdebugger.*;
 import com.intellij.xdebugger.breakpoints.XBreakpointHandler;
 import com.intellij.xdebugger.evaluation.XDebuggerEditorsProvider;
@@ -165,6 +166,11 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
 
   private void setLogger() {
     Logging.setLogger(new org.dartlang.vm.service.logging.Logger() {
+      @Override
+      public boolean isEnabled(Level level) {
+        return level == Level.ERROR || LOG.isDebugEnabled();
+      }
+
       @Override
       public void logError(final String message) {
         if (message.contains("\"code\":102,")) { // Cannot add breakpoint, already logged in logInformation()
@@ -386,6 +392,8 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
   public void isolateExit(@NotNull final IsolateRef isolateRef) {
     myIsolatesInfo.deleteIsolate(isolateRef);
     mySuspendedIsolateIds.remove(isolateRef.getId());
+    myVmServiceWrapper.isolateExited(isolateRef.getId());
+    mapper.onIsolateExit(isolateRef.getId());
 
     if (Objects.equals(isolateRef.getId(), myLatestCurrentIsolateId)) {
       resume(getSession().getSuspendContext()); // otherwise no way no resume them from UI
@@ -427,6 +435,21 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
     return mapper.getSourcePosition(isolateId, scriptRef, tokenPos, fileFuture);
   }
 
+  /**
+   * Resolve a source position without blocking the calling thread. The future completes with null if there is no local position.
+   */
+  @NotNull
+  public CompletableFuture<XSourcePosition> getSourcePositionAsync(@NotNull final String isolateId,
+                                                                   @NotNull final ScriptRef scriptRef,
+                                                                   int tokenPos) {
+    final CompletableFuture<String> fileFuture = myVmServiceWrapper.findResolvedFile(isolateId, scriptRef.getUri());
+    return mapper.getSourcePositionAsync(isolateId, scriptRef, tokenPos, fileFuture)
+      .exceptionally((t) -> {
+        LOG.warn("Error resolving source position for " + scriptRef.getUri(), t);
+        return null;
+      });
+  }
+
   @Nullable
   public String getCurrentIsolateId() {
     if (myLatestCurrentIsolateId != null) {
@@ -475,8 +498,19 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
 
     myVmServiceWrapper = new VmServiceWrapper(this, vmService, vmServiceListener, myIsolatesInfo, breakpointHandler);
 
-    final ScriptProvider provider =
-      (isolateId, scriptId) -> myVmServiceWrapper.getScriptSync(isolateId, scriptId);
+    final ScriptProvider provider = new ScriptProvider() {
+      @Nullable
+      @Override
+      public Script downloadScript(@NotNull String isolateId, @NotNull String scriptId) {
+        return myVmServiceWrapper.getScriptSync(isolateId, scriptId);
+      }
+
+      @NotNull
+      @Override
+      public CompletableFuture<Script> downloadScriptAsync(@NotNull String isolateId, @NotNull String scriptId) {
+        return myVmServiceWrapper.getScript(isolateId, scriptId);
+      }
+    };
 
     mapper.onConnect(provider, myConnector.getRemoteBaseUrl());
 
@@ -679,6 +713,29 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
      */
     XSourcePosition getSourcePosition(String isolateId, Script script, int tokenPos);
 
+    /**
+     * Returns the local position corresponding to a token position in Observatory without blocking the caller.
+     */
+    default CompletableFuture<XSourcePosition> getSourcePositionAsync(String isolateId,
+                                                                      ScriptRef scriptRef,
+                                                                      int tokenPos,
+                                                                      CompletableFuture<String> fileFuture) {
+      return CompletableFuture.supplyAsync(() -> getSourcePosition(isolateId, scriptRef, tokenPos, fileFuture),
+                                           AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+     * Called when an isolate exits, so that anything cached for it can be dropped.
+     */
+    default void onIsolateExit(@NotNull String isolateId) {
+    }
+
+    /**
+     * Called after a hot restart, when all previously downloaded scripts are stale.
+     */
+    default void onHotRestart() {
+    }
+
     void shutdown();
   }
 
@@ -688,5 +745,13 @@ public abstract class DartVmServiceDebugProcess extends XDebugProcess {
      */
     @Nullable
     Script downloadScript(@NotNull String isolateId, @NotNull String scriptId);
+
+    /**
+     * Downloads a script from observatory without blocking the caller. The future completes with null if the script isn't available.
+     */
+    @NotNull
+    default CompletableFuture<Script> downloadScriptAsync(@NotNull String isolateId, @NotNull String scriptId) {
+      return CompletableFuture.supplyAsync(() -> downloadScript(isolateId, scriptId), AppExecutorUtil.getAppExecutorService());
+    }
   }
 }
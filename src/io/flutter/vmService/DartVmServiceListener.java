@@ -17,6 +17,7 @@ import com.intellij.xdebugger.frame.XValue;
 import com.jetbrains.lang.dart.ide.runner.DartExceptionBreakpointProperties;
 import io.flutter.vmService.frame.DartVmServiceSuspendContext;
 import io.flutter.vmService.frame.DartVmServiceValue;
+import org.dartlang.vm.service.VmService;
 import org.dartlang.vm.service.VmServiceListener;
 import org.dartlang.vm.service.element.*;
 import org.jetbrains.annotations.NotNull;
@@ -40,6 +41,14 @@ public class DartVmServiceListener implements VmServiceListener {
 
   }
 
+  @Override
+  public boolean isInterestedIn(String streamId) {
+    return VmService.DEBUG_STREAM_ID.equals(streamId) ||
+           VmService.ISOLATE_STREAM_ID.equals(streamId) ||
+           VmService.STDOUT_STREAM_ID.equals(streamId) ||
+           VmService.STDERR_STREAM_ID.equals(streamId);
+  }
+
   @Override
   public void received(@NotNull final String streamId, @NotNull final Event event) {
     switch (event.getKind()) {
@@ -64,6 +73,7 @@ public class DartVmServiceListener implements VmServiceListener {
         myDebugProcess.getVmServiceWrapper().handleIsolate(event.getIsolate(), false);
         break;
       case IsolateReload:
+        myDebugProcess.getVmServiceWrapper().invalidateObjectCache(event.getIsolate().getId(), true);
         break;
       case IsolateUpdate:
         break;
@@ -94,6 +104,7 @@ public class DartVmServiceListener implements VmServiceListener {
         myDebugProcess.getVmServiceWrapper().handleIsolate(event.getIsolate(), true);
         break;
       case Resume:
+        myDebugProcess.getVmServiceWrapper().invalidateObjectCache(event.getIsolate().getId(), false);
         myDebugProcess.isolateResumed(event.getIsolate());
         break;
       case ServiceExtensionAdded:
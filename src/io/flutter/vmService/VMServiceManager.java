@@ -70,6 +70,11 @@ public class VMServiceManager implements FlutterApp.FlutterAppListener, Disposab
     vmService.streamListen(VmService.SERVICE_STREAM_ID, VmServiceConsumers.EMPTY_SUCCESS_CONSUMER);
 
     final VmServiceListener myVmServiceListener = new VmServiceListenerAdapter() {
+      @Override
+      public boolean isInterestedIn(String streamId) {
+        return handlesStream(streamId);
+      }
+
       @Override
       public void received(String streamId, Event event) {
         onVmServiceReceived(streamId, event);
@@ -169,6 +174,16 @@ public class VMServiceManager implements FlutterApp.FlutterAppListener, Disposab
     }
   }
 
+  /**
+   * Returns whether events on the stream are handled by {@link #onVmServiceReceived}; events on other streams aren't decoded for it.
+   */
+  public static boolean handlesStream(@Nullable String streamId) {
+    return StringUtil.equals(streamId, VmService.EXTENSION_STREAM_ID) ||
+           StringUtil.equals(streamId, VmService.ISOLATE_STREAM_ID) ||
+           StringUtil.equals(streamId, VmService.LOGGING_STREAM_ID) ||
+           StringUtil.equals(streamId, VmService.SERVICE_STREAM_ID);
+  }
+
   private void onVmServiceReceived(String streamId, Event event) {
     // Check for the current Flutter isolate exiting.
     final IsolateRef flutterIsolateRef = flutterIsolateRefStream.getValue();
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.vmService;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.dartlang.vm.service.element.ClassObj;
+import org.dartlang.vm.service.element.Func;
+import org.dartlang.vm.service.element.Library;
+import org.dartlang.vm.service.element.Obj;
+import org.dartlang.vm.service.element.Script;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A cache of {@code getObject} results, kept per isolate and keyed by object id and offset/count window. Each isolate's objects are
+ * bounded by the approximate memory used by their JSON, and the least recently used objects are evicted first.
+ * <p>
+ * Classes, libraries and functions don't change until the isolate's code is reloaded. Everything else, such as instances and fields with
+ * their static values, can change whenever the isolate runs, so it's dropped when the isolate resumes. Scripts aren't cached here; their
+ * sources are kept by {@link io.flutter.run.ObservatoryFileCache}.
+ */
+public class VmServiceObjectCache {
+  static final long MAX_WEIGHT_PER_ISOLATE = 8L << 20;
+
+  /**
+   * The number of exited isolates remembered. The oldest are forgotten first.
+   */
+  static final int MAX_REMOVED_ISOLATES = 256;
+
+  @NotNull private final Map<String, IsolateObjects> myIsolates = new HashMap<>();
+
+  /**
+   * Isolates that have exited, so responses that arrive for them afterwards aren't cached.
+   */
+  @NotNull private final Set<String> myRemovedIsolates = Collections.newSetFromMap(new LinkedHashMap<>() {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+      return size() > MAX_REMOVED_ISOLATES;
+    }
+  });
+
+  /**
+   * Return the generation of the isolate's cache. Pass it to {@link #put} so that responses to requests made before an invalidation are
+   * not cached.
+   */
+  public synchronized long getGeneration(@NotNull String isolateId) {
+    if (myRemovedIsolates.contains(isolateId)) {
+      return -1;
+    }
+    return getIsolate(isolateId).generation;
+  }
+
+  @Nullable
+  public synchronized Obj get(@NotNull String isolateId, @NotNull String objectId, @Nullable Integer offset, @Nullable Integer count) {
+    final IsolateObjects isolate = myIsolates.get(isolateId);
+    if (isolate == null) {
+      return null;
+    }
+    final Entry entry = isolate.objects.get(new Key(objectId, offset, count));
+    return entry == null ? null : entry.object();
+  }
+
+  public synchronized void put(@NotNull String isolateId,
+                               long generation,
+                               @NotNull String objectId,
+                               @Nullable Integer offset,
+                               @Nullable Integer count,
+                               @NotNull Obj object) {
+    if (object instanceof Script) {
+      return;
+    }
+    final IsolateObjects isolate = myIsolates.get(isolateId);
+    if (isolate != null && isolate.generation == generation) {
+      isolate.put(new Key(objectId, offset, count), new Entry(object, estimateWeight(object.getJson())));
+    }
+  }
+
+  /**
+   * Drop the isolate's objects that can change while it runs, because it resumed.
+   */
+  public synchronized void invalidateMutableObjects(@NotNull String isolateId) {
+    final IsolateObjects isolate = myIsolates.get(isolateId);
+    if (isolate != null) {
+      isolate.generation++;
+      isolate.removeIf((entry) -> !isImmutable(entry.object()));
+    }
+  }
+
+  /**
+   * Drop everything cached for the isolate, e.g. because it reloaded its sources or exited.
+   */
+  public synchronized void invalidate(@NotNull String isolateId) {
+    final IsolateObjects isolate = myIsolates.get(isolateId);
+    if (isolate != null) {
+      isolate.generation++;
+      isolate.clear();
+    }
+  }
+
+  public synchronized void removeIsolate(@NotNull String isolateId) {
+    myIsolates.remove(isolateId);
+    myRemovedIsolates.add(isolateId);
+  }
+
+  /**
+   * Drop everything cached, e.g. because the connection closed.
+   */
+  public synchronized void clear() {
+    for (IsolateObjects isolate : myIsolates.values()) {
+      isolate.generation++;
+      isolate.clear();
+    }
+    myRemovedIsolates.clear();
+  }
+
+  /**
+   * Returns the approximate memory used by the isolate's cached objects.
+   */
+  synchronized long getWeight(@NotNull String isolateId) {
+    final IsolateObjects isolate = myIsolates.get(isolateId);
+    return isolate == null ? 0 : isolate.weight;
+  }
+
+  private static boolean isImmutable(@NotNull Obj object) {
+    return object instanceof ClassObj || object instanceof Library || object instanceof Func;
+  }
+
+  /**
+   * Returns roughly how many bytes of memory a response's JSON takes.
+   */
+  static long estimateWeight(@NotNull JsonElement json) {
+    if (json.isJsonObject()) {
+      long weight = 64;
+      for (Map.Entry<String, JsonElement> member : ((JsonObject)json).entrySet()) {
+        weight += 32 + 2L * member.getKey().length() + estimateWeight(member.getValue());
+      }
+      return weight;
+    }
+    if (json.isJsonArray()) {
+      long weight = 32;
+      for (JsonElement element : json.getAsJsonArray()) {
+        weight += 8 + estimateWeight(element);
+      }
+      return weight;
+    }
+    if (json.isJsonPrimitive() && json.getAsJsonPrimitive().isString()) {
+      return 40 + 2L * json.getAsString().length();
+    }
+    return 16;
+  }
+
+  @NotNull
+  private IsolateObjects getIsolate(@NotNull String isolateId) {
+    return myIsolates.computeIfAbsent(isolateId, (id) -> new IsolateObjects());
+  }
+
+  private static class IsolateObjects {
+    long generation;
+    long weight;
+
+    /**
+     * The cached objects in access order.
+     */
+    @NotNull final Map<Key, Entry> objects = new LinkedHashMap<>(16, 0.75f, true);
+
+    void put(@NotNull Key key, @NotNull Entry entry) {
+      final Entry replaced = objects.put(key, entry);
+      if (replaced != null) {
+        weight -= replaced.weight();
+      }
+      weight += entry.weight();
+
+      final Iterator<Entry> it = objects.values().iterator();
+      // Always keep the most recently added object.
+      while (weight > MAX_WEIGHT_PER_ISOLATE && objects.size() > 1 && it.hasNext()) {
+        weight -= it.next().weight();
+        it.remove();
+      }
+    }
+
+    void removeIf(@NotNull Predicate<Entry> filter) {
+      final Iterator<Entry> it = objects.values().iterator();
+      while (it.hasNext()) {
+        final Entry entry = it.next();
+        if (filter.test(entry)) {
+          weight -= entry.weight();
+          it.remove();
+        }
+      }
+    }
+
+    void clear() {
+      objects.clear();
+      weight = 0;
+    }
+  }
+
+  private record Key(@NotNull String objectId, @Nullable Integer offset, @Nullable Integer count) {
+  }
+
+  private record Entry(@NotNull Obj object, long weight) {
+  }
+}
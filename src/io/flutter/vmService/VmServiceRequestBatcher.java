@@ -0,0 +1,323 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.vmService;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.intellij.openapi.Disposable;
+import com.intellij.util.Alarm;
+import org.dartlang.vm.service.VmService;
+import org.dartlang.vm.service.consumer.AddBreakpointWithScriptUriConsumer;
+import org.dartlang.vm.service.consumer.GetObjectConsumer;
+import org.dartlang.vm.service.consumer.UriListConsumer;
+import org.dartlang.vm.service.element.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Reduces the number of round trips {@link VmServiceWrapper} makes when it issues bursts of similar requests, such as when setting
+ * breakpoints in many files across many isolates or when expanding object trees.
+ * <ul>
+ *   <li>Identical in-flight {@code getObject} requests share one VM request.</li>
+ *   <li>{@code lookupPackageUris} and {@code lookupResolvedPackageUris} calls for an isolate made within a short window are merged into
+ *   one call with a list of URIs.</li>
+ *   <li>The number of these requests in flight per isolate is capped; further requests are queued until a response arrives.</li>
+ * </ul>
+ */
+public class VmServiceRequestBatcher {
+  /**
+   * How long URI lookups are collected before they are sent as one request.
+   */
+  private static final int URI_BATCH_WINDOW_MILLIS = 10;
+
+  private static final int MAX_REQUESTS_PER_ISOLATE = 16;
+
+  @NotNull private final VmService myVmService;
+  @NotNull private final Alarm myBatchScheduler;
+
+  /**
+   * Consumers waiting on an in-flight {@code getObject} request. Synchronize against this field before accessing it.
+   */
+  @NotNull private final Map<ObjectKey, List<GetObjectConsumer>> myInFlightObjects = new HashMap<>();
+
+  /**
+   * URI lookups collected for the next batch. Synchronize against this field before accessing it.
+   */
+  @NotNull private final Map<UriBatchKey, List<UriLookup>> myPendingUriLookups = new HashMap<>();
+
+  /**
+   * Synchronize against this field before accessing it.
+   */
+  @NotNull private final Map<String, IsolateQueue> myIsolateQueues = new HashMap<>();
+
+  public VmServiceRequestBatcher(@NotNull VmService vmService, @NotNull Disposable parent) {
+    myVmService = vmService;
+    myBatchScheduler = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, parent);
+  }
+
+  /**
+   * Request an object, or a window of a collection object if {@code offset} and {@code count} are given.
+   */
+  public void getObject(@NotNull String isolateId,
+                        @NotNull String objectId,
+                        @Nullable Integer offset,
+                        @Nullable Integer count,
+                        @NotNull GetObjectConsumer consumer) {
+    final ObjectKey key = new ObjectKey(isolateId, objectId, offset, count);
+    synchronized (myInFlightObjects) {
+      final List<GetObjectConsumer> waiting = myInFlightObjects.get(key);
+      if (waiting != null) {
+        waiting.add(consumer);
+        return;
+      }
+      myInFlightObjects.put(key, new ArrayList<>(List.of(consumer)));
+    }
+
+    runLimited(isolateId, "getObject", (done) -> {
+      final GetObjectConsumer fanOut = new GetObjectConsumer() {
+        @Override
+        public void received(Obj response) {
+          done.run();
+          for (GetObjectConsumer waiting : takeWaiting(key)) {
+            waiting.received(response);
+          }
+        }
+
+        @Override
+        public void received(Sentinel response) {
+          done.run();
+          for (GetObjectConsumer waiting : takeWaiting(key)) {
+            waiting.received(response);
+          }
+        }
+
+        @Override
+        public void onError(RPCError error) {
+          done.run();
+          for (GetObjectConsumer waiting : takeWaiting(key)) {
+            waiting.onError(error);
+          }
+        }
+      };
+      if (offset == null || count == null) {
+        myVmService.getObject(isolateId, objectId, fanOut);
+      }
+      else {
+        myVmService.getObject(isolateId, objectId, offset, count, fanOut);
+      }
+    }, (error) -> {
+      for (GetObjectConsumer waiting : takeWaiting(key)) {
+        waiting.onError(error);
+      }
+    });
+  }
+
+  /**
+   * Look up the package URI of a resolved URI. The consumer receives a {@link UriList} containing just that URI's mapping.
+   */
+  public void lookupPackageUri(@NotNull String isolateId, @NotNull String uri, @NotNull UriListConsumer consumer) {
+    addUriLookup(new UriBatchKey(isolateId, false, false), uri, consumer);
+  }
+
+  /**
+   * Look up the resolved URI of a package URI. The consumer receives a {@link UriList} containing just that URI's mapping.
+   */
+  public void lookupResolvedPackageUri(@NotNull String isolateId, @NotNull String uri, boolean local, @NotNull UriListConsumer consumer) {
+    addUriLookup(new UriBatchKey(isolateId, true, local), uri, consumer);
+  }
+
+  public void addBreakpointWithScriptUri(@NotNull String isolateId,
+                                         @NotNull String scriptUri,
+                                         int line,
+                                         @NotNull AddBreakpointWithScriptUriConsumer consumer) {
+    runLimited(isolateId, "addBreakpointWithScriptUri", (done) -> myVmService.addBreakpointWithScriptUri(isolateId, scriptUri, line, new AddBreakpointWithScriptUriConsumer() {
+      @Override
+      public void received(Breakpoint response) {
+        done.run();
+        consumer.received(response);
+      }
+
+      @Override
+      public void received(Sentinel response) {
+        done.run();
+        consumer.received(response);
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        done.run();
+        consumer.onError(error);
+      }
+    }), consumer::onError);
+  }
+
+  /**
+   * Fail all queued work for an isolate that has exited. Requests already sent are answered by the VM.
+   */
+  public void isolateExited(@NotNull String isolateId) {
+    final List<QueuedRequest> dropped;
+    synchronized (myIsolateQueues) {
+      final IsolateQueue queue = myIsolateQueues.remove(isolateId);
+      if (queue == null) {
+        return;
+      }
+      queue.exited = true;
+      dropped = new ArrayList<>(queue.waiting);
+      queue.waiting.clear();
+    }
+    for (QueuedRequest request : dropped) {
+      request.fail().accept(RPCError.cancelled(request.method(), "isolate " + isolateId + " exited"));
+    }
+  }
+
+  @NotNull
+  private List<GetObjectConsumer> takeWaiting(@NotNull ObjectKey key) {
+    synchronized (myInFlightObjects) {
+      final List<GetObjectConsumer> waiting = myInFlightObjects.remove(key);
+      return waiting == null ? Collections.emptyList() : waiting;
+    }
+  }
+
+  private void addUriLookup(@NotNull UriBatchKey key, @NotNull String uri, @NotNull UriListConsumer consumer) {
+    synchronized (myPendingUriLookups) {
+      List<UriLookup> batch = myPendingUriLookups.get(key);
+      if (batch == null) {
+        batch = new ArrayList<>();
+        myPendingUriLookups.put(key, batch);
+        if (!myBatchScheduler.isDisposed()) {
+          myBatchScheduler.addRequest(() -> sendUriLookups(key), URI_BATCH_WINDOW_MILLIS);
+        }
+      }
+      batch.add(new UriLookup(uri, consumer));
+    }
+  }
+
+  private void sendUriLookups(@NotNull UriBatchKey key) {
+    final List<UriLookup> batch;
+    synchronized (myPendingUriLookups) {
+      batch = myPendingUriLookups.remove(key);
+    }
+    if (batch == null || batch.isEmpty()) {
+      return;
+    }
+
+    final List<String> uris = new ArrayList<>(batch.size());
+    for (UriLookup lookup : batch) {
+      uris.add(lookup.uri());
+    }
+
+    final String method = key.resolved() ? "lookupResolvedPackageUris" : "lookupPackageUris";
+    runLimited(key.isolateId(), method, (done) -> {
+      final UriListConsumer fanOut = new UriListConsumer() {
+        @Override
+        public void received(UriList response) {
+          done.run();
+          final List<String> results = response == null ? null : response.getUris();
+          for (int i = 0; i < batch.size(); i++) {
+            final String result = results != null && i < results.size() ? results.get(i) : null;
+            batch.get(i).consumer().received(singleUriList(result));
+          }
+        }
+
+        @Override
+        public void onError(RPCError error) {
+          done.run();
+          for (UriLookup lookup : batch) {
+            lookup.consumer().onError(error);
+          }
+        }
+      };
+      if (key.resolved()) {
+        myVmService.lookupResolvedPackageUris(key.isolateId(), uris, key.local(), fanOut);
+      }
+      else {
+        myVmService.lookupPackageUris(key.isolateId(), uris, fanOut);
+      }
+    }, (error) -> {
+      for (UriLookup lookup : batch) {
+        lookup.consumer().onError(error);
+      }
+    });
+  }
+
+  @NotNull
+  private static UriList singleUriList(@Nullable String uri) {
+    final JsonObject json = new JsonObject();
+    json.addProperty("type", "UriList");
+    final JsonArray uris = new JsonArray();
+    uris.add(uri);
+    json.add("uris", uris);
+    return new UriList(json);
+  }
+
+  /**
+   * Run a request now if the isolate has fewer than {@link #MAX_REQUESTS_PER_ISOLATE} requests in flight, otherwise queue it. The request
+   * must call the {@link Runnable} it is given once its response arrives. If the isolate exits while the request is queued, it's never
+   * sent and {@code fail} is called instead.
+   */
+  private void runLimited(@NotNull String isolateId,
+                          @NotNull String method,
+                          @NotNull Consumer<Runnable> request,
+                          @NotNull Consumer<RPCError> fail) {
+    final IsolateQueue queue;
+    synchronized (myIsolateQueues) {
+      queue = myIsolateQueues.computeIfAbsent(isolateId, (id) -> new IsolateQueue());
+      if (queue.inFlight >= MAX_REQUESTS_PER_ISOLATE) {
+        queue.waiting.add(new QueuedRequest(method, request, fail));
+        return;
+      }
+      queue.inFlight++;
+    }
+    start(queue, request);
+  }
+
+  private void start(@NotNull IsolateQueue queue, @NotNull Consumer<Runnable> request) {
+    final AtomicBoolean released = new AtomicBoolean();
+    request.accept(() -> {
+      if (released.compareAndSet(false, true)) {
+        release(queue);
+      }
+    });
+  }
+
+  private void release(@NotNull IsolateQueue queue) {
+    final QueuedRequest next;
+    synchronized (myIsolateQueues) {
+      // Nothing more is sent for an isolate that has exited.
+      if (queue.exited) {
+        return;
+      }
+      next = queue.waiting.poll();
+      if (next == null) {
+        queue.inFlight--;
+        return;
+      }
+    }
+    start(queue, next.request());
+  }
+
+  private static class IsolateQueue {
+    int inFlight;
+    boolean exited;
+    @NotNull final Deque<QueuedRequest> waiting = new ArrayDeque<>();
+  }
+
+  private record QueuedRequest(@NotNull String method, @NotNull Consumer<Runnable> request, @NotNull Consumer<RPCError> fail) {
+  }
+
+  private record ObjectKey(@NotNull String isolateId, @NotNull String objectId, @Nullable Integer offset, @Nullable Integer count) {
+  }
+
+  private record UriBatchKey(@NotNull String isolateId, boolean resolved, boolean local) {
+  }
+
+  private record UriLookup(@NotNull String uri, @NotNull UriListConsumer consumer) {
+  }
+}
@@ -8,12 +8,11 @@ import com.intellij.execution.ui.ConsoleViewContentType;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.SystemInfo;
 import com.intellij.openapi.util.Version;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.Alarm;
-import com.intellij.util.concurrency.Semaphore;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.xdebugger.XDebugSession;
 import com.intellij.xdebugger.XSourcePosition;
 import com.intellij.xdebugger.breakpoints.XBreakpointProperties;
@@ -27,6 +26,7 @@ import io.flutter.bazel.WorkspaceCache;
 import io.flutter.run.daemon.FlutterApp;
 import io.flutter.sdk.FlutterSdk;
 import io.flutter.sdk.FlutterSdkVersion;
+import io.flutter.settings.FlutterSettings;
 import io.flutter.utils.OpenApiUtils;
 import io.flutter.vmService.frame.DartAsyncMarkerFrame;
 import io.flutter.vmService.frame.DartVmServiceEvaluator;
@@ -36,11 +36,14 @@ import org.dartlang.vm.service.VmService;
 import org.dartlang.vm.service.consumer.*;
 import org.dartlang.vm.service.element.*;
 import org.dartlang.vm.service.element.Stack;
+import org.dartlang.vm.service.logging.WireTap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -50,12 +53,19 @@ public class VmServiceWrapper implements Disposable {
 
   private static final long RESPONSE_WAIT_TIMEOUT = 3000; // millis
 
+  /**
+   * The number of stack frames materialized at a time.
+   */
+  private static final int STACK_PAGE_SIZE = 20;
+
   @NotNull private final DartVmServiceDebugProcess myDebugProcess;
   @NotNull private final VmService myVmService;
   @NotNull private final DartVmServiceListener myVmServiceListener;
   @NotNull private final IsolatesInfo myIsolatesInfo;
   @NotNull private final DartVmServiceBreakpointHandler myBreakpointHandler;
   @NotNull private final Alarm myRequestsScheduler;
+  @NotNull private final VmServiceRequestBatcher myRequestBatcher;
+  @NotNull private final VmServiceObjectCache myObjectCache = new VmServiceObjectCache();
   @NotNull private final Map<Integer, CanonicalBreakpoint> breakpointNumbersToCanonicalMap;
   @NotNull private final Set<CanonicalBreakpoint> canonicalBreakpoints;
 
@@ -74,8 +84,14 @@ public class VmServiceWrapper implements Disposable {
     myIsolatesInfo = isolatesInfo;
     myBreakpointHandler = breakpointHandler;
     myRequestsScheduler = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+    myRequestBatcher = new VmServiceRequestBatcher(vmService, this);
     breakpointNumbersToCanonicalMap = new HashMap<>();
     canonicalBreakpoints = new HashSet<>();
+
+    // Keep the most recent messages so they can be logged when the session ends.
+    if (FlutterSettings.getInstance().isVerboseLogging()) {
+      vmService.getWireTap().setEnabled(true);
+    }
   }
 
   @NotNull
@@ -85,6 +101,16 @@ public class VmServiceWrapper implements Disposable {
 
   @Override
   public void dispose() {
+    myObjectCache.clear();
+
+    if (FlutterSettings.getInstance().isVerboseLogging()) {
+      LOG.info("VM service requests: " + myVmService.getRequestMetrics());
+      final WireTap wireTap = myVmService.getWireTap();
+      if (wireTap.isEnabled()) {
+        LOG.info("Recent VM service messages:\n" + wireTap.dump());
+        wireTap.setEnabled(false);
+      }
+    }
   }
 
   private void addRequest(@NotNull Runnable runnable) {
@@ -449,6 +475,18 @@ public class VmServiceWrapper implements Disposable {
   public void addBreakpoint(@NotNull String isolateId,
                             @Nullable XSourcePosition position,
                             @NotNull VmServiceConsumers.BreakpointsConsumer consumer) {
+    // The protocol version is fetched when connecting; avoid a round trip per breakpoint.
+    final org.dartlang.vm.service.element.Version runtimeVersion = myVmService.getRuntimeVersion();
+    if (runtimeVersion != null) {
+      if (isVmServiceMappingSupported(runtimeVersion)) {
+        addBreakpointWithVmService(isolateId, position, consumer);
+      }
+      else {
+        addBreakpointWithMapper(isolateId, position, consumer);
+      }
+      return;
+    }
+
     myVmService.getVersion(new VersionConsumer() {
       @Override
       public void received(org.dartlang.vm.service.element.Version response) {
@@ -498,7 +536,7 @@ public class VmServiceWrapper implements Disposable {
       List<RPCError> errorResponses = new ArrayList<>();
 
       for (String uri : scriptUris) {
-        myVmService.addBreakpointWithScriptUri(isolateId, uri, line, new AddBreakpointWithScriptUriConsumer() {
+        myRequestBatcher.addBreakpointWithScriptUri(isolateId, uri, line, new AddBreakpointWithScriptUriConsumer() {
           @Override
           public void received(Breakpoint response) {
             breakpointResponses.add(response);
@@ -542,7 +580,6 @@ public class VmServiceWrapper implements Disposable {
 
       String resolvedUri = getResolvedUri(position);
       LOG.info("Computed resolvedUri: " + resolvedUri);
-      List<String> resolvedUriList = List.of(percentEscapeUri(resolvedUri));
 
       CanonicalBreakpoint canonicalBreakpoint =
         new CanonicalBreakpoint(position.getFile().getName(), position.getFile().getCanonicalPath(), line);
@@ -550,7 +587,7 @@ public class VmServiceWrapper implements Disposable {
       List<Breakpoint> breakpointResponses = new ArrayList<>();
       List<RPCError> errorResponses = new ArrayList<>();
 
-      myVmService.lookupPackageUris(isolateId, resolvedUriList, new UriListConsumer() {
+      myRequestBatcher.lookupPackageUri(isolateId, percentEscapeUri(resolvedUri), new UriListConsumer() {
         @Override
         public void received(UriList response) {
           LOG.info("in received of lookupPackageUris");
@@ -571,7 +608,7 @@ public class VmServiceWrapper implements Disposable {
 
           String scriptUri = uris.get(0);
           LOG.info("in received of lookupPackageUris. scriptUri: " + scriptUri);
-          myVmService.addBreakpointWithScriptUri(isolateId, scriptUri, line, new AddBreakpointWithScriptUriConsumer() {
+          myRequestBatcher.addBreakpointWithScriptUri(isolateId, scriptUri, line, new AddBreakpointWithScriptUriConsumer() {
             @Override
             public void received(Breakpoint response) {
               breakpointResponses.add(response);
@@ -678,6 +715,7 @@ public class VmServiceWrapper implements Disposable {
   public void restoreBreakpointsForIsolate(@NotNull String isolateId, @Nullable Runnable onFinished) {
     // Cached information about the isolate may now be stale.
     myIsolatesInfo.invalidateCache(isolateId);
+    myObjectCache.invalidate(isolateId);
 
     // Remove all existing VM breakpoints for this isolate.
     myBreakpointHandler.removeAllVmBreakpoints(isolateId);
@@ -717,6 +755,7 @@ public class VmServiceWrapper implements Disposable {
   }
 
   public void resumeIsolate(@NotNull String isolateId, @Nullable StepOption stepOption) {
+    myObjectCache.invalidateMutableObjects(isolateId);
     addRequest(() -> {
       myLatestStep = stepOption;
       myVmService.resume(isolateId, stepOption, null, new VmServiceConsumers.EmptyResumeConsumer() {
@@ -767,6 +806,7 @@ public class VmServiceWrapper implements Disposable {
    * function, so frameIndex must be at least 1.
    */
   public void dropFrame(@NotNull String isolateId, int frameIndex) {
+    myObjectCache.invalidateMutableObjects(isolateId);
     addRequest(() -> {
       myLatestStep = StepOption.Rewind;
       myVmService.resume(isolateId, StepOption.Rewind, frameIndex, new VmServiceConsumers.EmptyResumeConsumer() {
@@ -799,41 +839,12 @@ public class VmServiceWrapper implements Disposable {
                                  int firstFrameIndex,
                                  @NotNull XExecutionStack.XStackFrameContainer container,
                                  @Nullable InstanceRef exception) {
-    addRequest(() -> myVmService.getStack(isolateId, new GetStackConsumer() {
+    // Ask for just the first page of frames when the VM supports it; deep stacks are expensive to serialize.
+    final Integer limit = supportsStackLimit() ? firstFrameIndex + STACK_PAGE_SIZE : null;
+    addRequest(() -> myVmService.getStack(isolateId, limit, new GetStackConsumer() {
       @Override
       public void received(Stack vmStack) {
-        ApplicationManager.getApplication().executeOnPooledThread(() -> {
-          InstanceRef exceptionToAddToFrame = exception;
-
-          // Check for async causal frames; fall back to using regular sync frames.
-          ElementList<Frame> elementList = vmStack.getAsyncCausalFrames();
-          if (elementList == null) {
-            elementList = vmStack.getFrames();
-          }
-
-          final List<Frame> vmFrames = Lists.newArrayList(elementList);
-          final List<XStackFrame> xStackFrames = new ArrayList<>(vmFrames.size());
-
-          for (final Frame vmFrame : vmFrames) {
-            if (vmFrame.getKind() == FrameKind.AsyncSuspensionMarker) {
-              // Render an asynchronous gap.
-              final XStackFrame markerFrame = new DartAsyncMarkerFrame();
-              xStackFrames.add(markerFrame);
-            }
-            else {
-              final DartVmServiceStackFrame stackFrame =
-                new DartVmServiceStackFrame(myDebugProcess, isolateId, vmFrame, vmFrames, exceptionToAddToFrame);
-              stackFrame.setIsDroppableFrame(vmFrame.getKind() == FrameKind.Regular);
-              xStackFrames.add(stackFrame);
-
-              if (!stackFrame.isInDartSdkPatchFile()) {
-                // The exception (if any) is added to the frame where debugger stops and to the upper frames.
-                exceptionToAddToFrame = null;
-              }
-            }
-          }
-          container.addStackFrames(firstFrameIndex == 0 ? xStackFrames : xStackFrames.subList(firstFrameIndex, xStackFrames.size()), true);
-        });
+        new StackFramesBuilder(isolateId, vmStack, firstFrameIndex, container, exception).start();
       }
 
       @Override
@@ -848,39 +859,207 @@ public class VmServiceWrapper implements Disposable {
     }));
   }
 
-  @Nullable
-  public Script getScriptSync(@NotNull String isolateId, @NotNull String scriptId) {
-    assertSyncRequestAllowed();
+  /**
+   * Materializes a stack's frames a page at a time, top frames first.
+   * <p>
+   * The source positions of a page's frames are resolved in parallel, and frames are added to the container in order as soon as each one
+   * and all the frames above it are ready. The next page is started only once the previous one has been added, and work stops as soon as
+   * the container is obsolete (e.g. because the isolate resumed). If the VM truncated the stack, the remaining frames are fetched once the
+   * first page has been shown.
+   */
+  private class StackFramesBuilder {
+    @NotNull private final String myIsolateId;
+
+    /**
+     * The frames fetched so far. Frames keep a reference to this list, so it grows when the rest of a truncated stack is fetched.
+     */
+    @NotNull private final List<Frame> myVmFrames;
+
+    @NotNull private final List<CompletableFuture<XSourcePosition>> mySourcePositions = new ArrayList<>();
+    private final int myFirstFrameIndex;
+    @NotNull private final XExecutionStack.XStackFrameContainer myContainer;
+    private boolean myTruncated;
+
+    /**
+     * The exception (if any) is added to the frame where the debugger stops and to the upper frames that are in SDK patch files.
+     */
+    @Nullable private InstanceRef myExceptionToAddToFrame;
+
+    /**
+     * The index of the next frame to add.
+     */
+    private int myNextIndex;
+
+    StackFramesBuilder(@NotNull String isolateId,
+                       @NotNull Stack vmStack,
+                       int firstFrameIndex,
+                       @NotNull XExecutionStack.XStackFrameContainer container,
+                       @Nullable InstanceRef exception) {
+      myIsolateId = isolateId;
+      myVmFrames = new CopyOnWriteArrayList<>(getFrames(vmStack));
+      myTruncated = vmStack.getTruncated();
+      myFirstFrameIndex = firstFrameIndex;
+      myContainer = container;
+      myExceptionToAddToFrame = exception;
+    }
+
+    void start() {
+      resolveNextPage();
+      addReadyFrames();
+    }
+
+    private synchronized void resolveNextPage() {
+      final int end = Math.min(myVmFrames.size(), Math.max(mySourcePositions.size(), myFirstFrameIndex) + STACK_PAGE_SIZE);
+      for (int i = mySourcePositions.size(); i < end; i++) {
+        final Frame vmFrame = myVmFrames.get(i);
+        // Frames above the first requested one aren't shown; their positions only matter for deciding where the exception goes.
+        final boolean needed = i >= myFirstFrameIndex || myExceptionToAddToFrame != null;
+        mySourcePositions.add(!needed || vmFrame.getKind() == FrameKind.AsyncSuspensionMarker
+                              ? CompletableFuture.completedFuture(null)
+                              : DartVmServiceStackFrame.resolveSourcePosition(myDebugProcess, myIsolateId, vmFrame));
+      }
+    }
+
+    private synchronized void addReadyFrames() {
+      if (myContainer.isObsolete()) {
+        return;
+      }
+
+      final List<XStackFrame> xStackFrames = new ArrayList<>();
+      while (true) {
+        while (myNextIndex < mySourcePositions.size() && mySourcePositions.get(myNextIndex).isDone()) {
+          final XStackFrame xStackFrame = createFrame(myVmFrames.get(myNextIndex), mySourcePositions.get(myNextIndex).getNow(null));
+          if (myNextIndex >= myFirstFrameIndex) {
+            xStackFrames.add(xStackFrame);
+          }
+          myNextIndex++;
+        }
+
+        if (myNextIndex < mySourcePositions.size()) {
+          // Wait for the next frame in order.
+          if (!xStackFrames.isEmpty()) {
+            myContainer.addStackFrames(xStackFrames, false);
+          }
+          // Positions are completed on the web socket thread, which must not build frames.
+          mySourcePositions.get(myNextIndex)
+            .whenCompleteAsync((position, error) -> addReadyFrames(), AppExecutorUtil.getAppExecutorService());
+          return;
+        }
+
+        if (myNextIndex < myVmFrames.size()) {
+          // The current page is done; show it and start on the next one.
+          if (!xStackFrames.isEmpty()) {
+            myContainer.addStackFrames(new ArrayList<>(xStackFrames), false);
+            xStackFrames.clear();
+          }
+          resolveNextPage();
+          continue;
+        }
+
+        if (myTruncated) {
+          myTruncated = false;
+          if (!xStackFrames.isEmpty()) {
+            myContainer.addStackFrames(xStackFrames, false);
+          }
+          fetchRemainingFrames();
+          return;
+        }
 
-    final Semaphore semaphore = new Semaphore();
-    semaphore.down();
+        myContainer.addStackFrames(xStackFrames, true);
+        return;
+      }
+    }
 
-    final Ref<Script> resultRef = Ref.create();
+    private void fetchRemainingFrames() {
+      addRequest(() -> myVmService.getStack(myIsolateId, new GetStackConsumer() {
+        @Override
+        public void received(Stack vmStack) {
+          synchronized (StackFramesBuilder.this) {
+            final List<Frame> frames = getFrames(vmStack);
+            if (frames.size() > myVmFrames.size()) {
+              myVmFrames.addAll(frames.subList(myVmFrames.size(), frames.size()));
+            }
+          }
+          AppExecutorUtil.getAppExecutorService().execute(StackFramesBuilder.this::addReadyFrames);
+        }
 
-    addRequest(() -> myVmService.getObject(isolateId, scriptId, new GetObjectConsumer() {
+        @Override
+        public void onError(RPCError error) {
+          myContainer.errorOccurred(error.getMessage());
+        }
+
+        @Override
+        public void received(Sentinel response) {
+          myContainer.errorOccurred(response.getValueAsString());
+        }
+      }));
+    }
+
+    @NotNull
+    private XStackFrame createFrame(@NotNull Frame vmFrame, @Nullable XSourcePosition sourcePosition) {
+      if (vmFrame.getKind() == FrameKind.AsyncSuspensionMarker) {
+        // Render an asynchronous gap.
+        return new DartAsyncMarkerFrame();
+      }
+
+      final DartVmServiceStackFrame stackFrame =
+        new DartVmServiceStackFrame(myDebugProcess, myIsolateId, vmFrame, myVmFrames, myExceptionToAddToFrame, sourcePosition);
+      stackFrame.setIsDroppableFrame(vmFrame.getKind() == FrameKind.Regular);
+      if (!stackFrame.isInDartSdkPatchFile()) {
+        myExceptionToAddToFrame = null;
+      }
+      return stackFrame;
+    }
+  }
+
+  @NotNull
+  private static List<Frame> getFrames(@NotNull Stack vmStack) {
+    // Check for async causal frames; fall back to using regular sync frames.
+    ElementList<Frame> elementList = vmStack.getAsyncCausalFrames();
+    if (elementList == null) {
+      elementList = vmStack.getFrames();
+    }
+    return Lists.newArrayList(elementList);
+  }
+
+  /**
+   * Download a script without blocking. The future completes with null if the script isn't available or the VM doesn't answer in time.
+   * <p>
+   * Scripts bypass the object cache; the files made from them are cached by {@link io.flutter.run.ObservatoryFileCache}.
+   */
+  @NotNull
+  public CompletableFuture<Script> getScript(@NotNull String isolateId, @NotNull String scriptId) {
+    final CompletableFuture<Script> result = new CompletableFuture<>();
+    addRequest(() -> myRequestBatcher.getObject(isolateId, scriptId, null, null, new GetObjectConsumer() {
       @Override
       public void received(Obj script) {
-        resultRef.set((Script)script);
-        semaphore.up();
+        result.complete(script instanceof Script ? (Script)script : null);
       }
 
       @Override
       public void received(Sentinel response) {
-        semaphore.up();
+        result.complete(null);
       }
 
       @Override
       public void onError(RPCError error) {
-        semaphore.up();
+        result.complete(null);
       }
     }));
+    return result.completeOnTimeout(null, RESPONSE_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+  }
 
-    semaphore.waitFor(RESPONSE_WAIT_TIMEOUT);
-    return resultRef.get();
+  /**
+   * Download a script, blocking until it's available. Prefer {@link #getScript}, which doesn't tie up a thread per request.
+   */
+  @Nullable
+  public Script getScriptSync(@NotNull String isolateId, @NotNull String scriptId) {
+    assertSyncRequestAllowed();
+    return getScript(isolateId, scriptId).join();
   }
 
   public void getObject(@NotNull String isolateId, @NotNull String objectId, @NotNull GetObjectConsumer consumer) {
-    addRequest(() -> myVmService.getObject(isolateId, objectId, consumer));
+    addRequest(() -> getObjectCached(isolateId, objectId, null, null, consumer));
   }
 
   public void getCollectionObject(@NotNull String isolateId,
@@ -888,7 +1067,51 @@ public class VmServiceWrapper implements Disposable {
                                   int offset,
                                   int count,
                                   @NotNull GetObjectConsumer consumer) {
-    addRequest(() -> myVmService.getObject(isolateId, objectId, offset, count, consumer));
+    addRequest(() -> getObjectCached(isolateId, objectId, offset, count, consumer));
+  }
+
+  private void getObjectCached(@NotNull String isolateId,
+                               @NotNull String objectId,
+                               @Nullable Integer offset,
+                               @Nullable Integer count,
+                               @NotNull GetObjectConsumer consumer) {
+    final Obj cached = myObjectCache.get(isolateId, objectId, offset, count);
+    if (cached != null) {
+      consumer.received(cached);
+      return;
+    }
+
+    final long generation = myObjectCache.getGeneration(isolateId);
+    myRequestBatcher.getObject(isolateId, objectId, offset, count, new GetObjectConsumer() {
+      @Override
+      public void received(Obj response) {
+        myObjectCache.put(isolateId, generation, objectId, offset, count, response);
+        consumer.received(response);
+      }
+
+      @Override
+      public void received(Sentinel response) {
+        consumer.received(response);
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        consumer.onError(error);
+      }
+    });
+  }
+
+  /**
+   * Drop cached objects for the isolate. Instances and fields can change once the isolate resumes; everything becomes stale when its
+   * sources are reloaded.
+   */
+  public void invalidateObjectCache(@NotNull String isolateId, boolean reloaded) {
+    if (reloaded) {
+      myObjectCache.invalidate(isolateId);
+    }
+    else {
+      myObjectCache.invalidateMutableObjects(isolateId);
+    }
   }
 
   public void evaluateInFrame(@NotNull String isolateId,
@@ -970,7 +1193,7 @@ public class VmServiceWrapper implements Disposable {
 
   public CompletableFuture<String> findResolvedFile(@NotNull String isolateId, @NotNull String scriptUri) {
     CompletableFuture<String> uriFuture = new CompletableFuture<>();
-    myVmService.lookupResolvedPackageUris(isolateId, List.of(scriptUri), true, new UriListConsumer() {
+    myRequestBatcher.lookupResolvedPackageUri(isolateId, scriptUri, true, new UriListConsumer() {
       @Override
       public void received(UriList response) {
         if (response == null) {
@@ -1001,6 +1224,17 @@ public class VmServiceWrapper implements Disposable {
     return uriFuture;
   }
 
+  public void isolateExited(@NotNull String isolateId) {
+    myRequestBatcher.isolateExited(isolateId);
+    myObjectCache.removeIsolate(isolateId);
+  }
+
+  private boolean supportsStackLimit() {
+    // The limit parameter of getStack was added in protocol version 3.42.
+    final org.dartlang.vm.service.element.Version version = myVmService.getRuntimeVersion();
+    return version != null && (version.getMajor() > 3 || version.getMajor() == 3 && version.getMinor() >= 42);
+  }
+
   private boolean supportsSetIsolatePauseMode() {
     org.dartlang.vm.service.element.Version version = myVmService.getRuntimeVersion();
     return version.getMajor() > 3 || version.getMajor() == 3 && version.getMinor() >= 53;
@@ -18,6 +18,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class DartVmServiceStackFrame extends XStackFrame {
 
@@ -34,17 +35,40 @@ public class DartVmServiceStackFrame extends XStackFrame {
                                  @NotNull final Frame vmFrame,
                                  @Nullable List<Frame> vmFrames,
                                  @Nullable final InstanceRef exception) {
+    this(debugProcess, isolateId, vmFrame, vmFrames, exception,
+         vmFrame.getLocation() == null
+         ? null
+         : debugProcess.getSourcePosition(isolateId, vmFrame.getLocation().getScript(), vmFrame.getLocation().getTokenPos()));
+  }
+
+  /**
+   * Creates a frame whose source position has already been resolved, e.g. by {@link #resolveSourcePosition}.
+   */
+  public DartVmServiceStackFrame(@NotNull final DartVmServiceDebugProcess debugProcess,
+                                 @NotNull final String isolateId,
+                                 @NotNull final Frame vmFrame,
+                                 @Nullable List<Frame> vmFrames,
+                                 @Nullable final InstanceRef exception,
+                                 @Nullable final XSourcePosition sourcePosition) {
     myDebugProcess = debugProcess;
     myIsolateId = isolateId;
     myVmFrame = vmFrame;
     myVmFrames = vmFrames;
     myException = exception;
+    mySourcePosition = sourcePosition;
+  }
+
+  /**
+   * Resolves the source position of a VM frame without blocking the caller.
+   */
+  @NotNull
+  public static CompletableFuture<XSourcePosition> resolveSourcePosition(@NotNull final DartVmServiceDebugProcess debugProcess,
+                                                                         @NotNull final String isolateId,
+                                                                         @NotNull final Frame vmFrame) {
     if (vmFrame.getLocation() == null) {
-      mySourcePosition = null;
-    }
-    else {
-      mySourcePosition = debugProcess.getSourcePosition(isolateId, vmFrame.getLocation().getScript(), vmFrame.getLocation().getTokenPos());
+      return CompletableFuture.completedFuture(null);
     }
+    return debugProcess.getSourcePositionAsync(isolateId, vmFrame.getLocation().getScript(), vmFrame.getLocation().getTokenPos());
   }
 
   @NotNull
@@ -194,7 +218,11 @@ public class DartVmServiceStackFrame extends XStackFrame {
   }
 
   public boolean isInDartSdkPatchFile() {
-    return mySourcePosition != null && (mySourcePosition.getFile() instanceof LightVirtualFile);
+    return isInDartSdkPatchFile(mySourcePosition);
+  }
+
+  public static boolean isInDartSdkPatchFile(@Nullable XSourcePosition sourcePosition) {
+    return sourcePosition != null && (sourcePosition.getFile() instanceof LightVirtualFile);
   }
 
   public boolean canDrop() {
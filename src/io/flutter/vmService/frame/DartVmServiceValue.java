@@ -3,10 +3,9 @@ package io.flutter.vmService.frame;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.intellij.icons.AllIcons;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.ui.LayeredIcon;
-import com.intellij.xdebugger.XSourcePosition;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import com.intellij.xdebugger.frame.*;
 import com.intellij.xdebugger.frame.presentation.XKeywordValuePresentation;
 import com.intellij.xdebugger.frame.presentation.XNumericValuePresentation;
@@ -145,10 +144,9 @@ public class DartVmServiceValue extends XNamedValue {
       return;
     }
 
-    ApplicationManager.getApplication().executeOnPooledThread(() -> {
-      final XSourcePosition sourcePosition = debugProcess.getSourcePosition(isolateId, script, tokenPos);
-      OpenApiUtils.safeRunReadAction(() -> navigatable.setSourcePosition(sourcePosition));
-    });
+    debugProcess.getSourcePositionAsync(isolateId, script, tokenPos)
+      .thenAcceptAsync((sourcePosition) -> OpenApiUtils.safeRunReadAction(() -> navigatable.setSourcePosition(sourcePosition)),
+                       AppExecutorUtil.getAppExecutorService());
   }
 
   @Override
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.console;
+
+import com.intellij.execution.filters.Filter;
+import com.intellij.execution.filters.OpenFileHyperlinkInfo;
+import com.intellij.openapi.roots.ModuleRootModificationUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import io.flutter.testing.ProjectFixture;
+import io.flutter.testing.TestDir;
+import io.flutter.testing.Testing;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class FlutterConsoleFilterTest {
+  /**
+   * The length of the console text before the line being filtered.
+   */
+  private static final int LINE_OFFSET = 100;
+
+  @Rule
+  public ProjectFixture fixture = Testing.makeEmptyModule();
+
+  @Rule
+  public TestDir tmp = new TestDir();
+
+  private VirtualFile root;
+  private VirtualFile main;
+  private FlutterConsoleFilter filter;
+
+  @Before
+  public void setUp() throws Exception {
+    root = tmp.ensureDir("root");
+    ModuleRootModificationUtil.addContentRoot(fixture.getModule(), root.getPath());
+    main = tmp.writeFile("root/lib/main.dart", "");
+    filter = new FlutterConsoleFilter(fixture.getModule());
+  }
+
+  @Test
+  public void linksLaunchedFile() {
+    final String line = "Launching lib/main.dart on iPhone 15 in debug mode...";
+    final Filter.ResultItem item = applyFilter(line);
+    assertHighlights(line, "lib/main.dart", item);
+    assertOpens(main, 0, item);
+  }
+
+  @Test
+  public void linksPathInParentheses() {
+    final String line = "  \u2022 _MyHomePageState._incrementCounter (lib/main.dart:49)";
+    final Filter.ResultItem item = applyFilter(line);
+    assertHighlights(line, "lib/main.dart:49", item);
+    assertOpens(main, 48, item);
+  }
+
+  @Test
+  public void linksFileUri() throws Exception {
+    final VirtualFile test = tmp.writeFile("root/test/widget_test.dart", "");
+    final String uri = "file://" + test.getPath() + ":23:18";
+    final String line = "#0      main.<anonymous closure> (" + uri + ")";
+    final Filter.ResultItem item = applyFilter(line);
+    assertHighlights(line, uri, item);
+    assertOpens(test, 22, item);
+  }
+
+  @Test
+  public void linksCompilerError() throws Exception {
+    final VirtualFile file = tmp.writeFile("root/lib/x.dart", "");
+    final String line = "lib/x.dart:104:73: Error: Expected ';' after this.";
+    final Filter.ResultItem item = applyFilter(line);
+    assertHighlights(line, "lib/x.dart", item);
+    assertEquals(file, ((OpenFileHyperlinkInfo)item.getHyperlinkInfo()).getDescriptor().getFile());
+  }
+
+  @Test
+  public void ignoresPathsOutsideProject() {
+    assertNoLink("Launching lib/missing.dart on iPhone 15 in debug mode...");
+    assertNoLink("  \u2022 MyApp.build (lib/missing.dart:6)");
+    assertNoLink("Build: Running build completed, took 191ms");
+  }
+
+  @Test
+  public void findsFileCreatedAfterMiss() throws Exception {
+    assertNull(filter.fileAtPath("lib/later.dart"));
+    final VirtualFile later = tmp.writeFile("root/lib/later.dart", "");
+    assertEquals(later, filter.fileAtPath("lib/later.dart"));
+  }
+
+  @Test
+  public void keepsCachedPathsWhenFilesOutsideContentRootsChange() throws Exception {
+    final ConsolePathCache cache = ConsolePathCache.forModule(fixture.getModule());
+    final AtomicInteger resolved = new AtomicInteger();
+    final Function<String, VirtualFile> resolve = (path) -> {
+      resolved.incrementAndGet();
+      return main;
+    };
+    cache.get("lib/cached.dart", resolve);
+
+    tmp.writeFile("elsewhere/other.dart", "");
+    cache.get("lib/cached.dart", resolve);
+    assertEquals(1, resolved.get());
+
+    tmp.writeFile("root/lib/other.dart", "");
+    cache.get("lib/cached.dart", resolve);
+    assertEquals(2, resolved.get());
+  }
+
+  private Filter.ResultItem applyFilter(String line) {
+    final Filter.Result result = filter.applyFilter(line, LINE_OFFSET + line.length());
+    assertNotNull(result);
+    assertEquals(1, result.getResultItems().size());
+    return result.getResultItems().get(0);
+  }
+
+  private void assertNoLink(String line) {
+    assertNull(filter.applyFilter(line, LINE_OFFSET + line.length()));
+  }
+
+  private static void assertHighlights(String line, String expected, Filter.ResultItem item) {
+    final int start = LINE_OFFSET + line.indexOf(expected);
+    assertEquals(start, item.getHighlightStartOffset());
+    assertEquals(start + expected.length(), item.getHighlightEndOffset());
+  }
+
+  private static void assertOpens(VirtualFile file, int line, Filter.ResultItem item) {
+    final OpenFileHyperlinkInfo info = (OpenFileHyperlinkInfo)item.getHyperlinkInfo();
+    assertNotNull(info);
+    assertEquals(file, info.getDescriptor().getFile());
+    assertEquals(line, info.getDescriptor().getLine());
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.editor;
+
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import io.flutter.testing.IdeaProjectFixture;
+import io.flutter.testing.TestDir;
+import io.flutter.testing.Testing;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IconFontIndexTest {
+  @Rule
+  public IdeaProjectFixture fixture = Testing.makeEmptyProject();
+
+  @Rule
+  public TestDir tmp = new TestDir();
+
+  private IconFontIndex index;
+  private VirtualFile pkg;
+  private final List<String> codepointReads = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    index = new IconFontIndex((fontPath, codepoint) -> {
+      codepointReads.add(fontPath.substring(fontPath.lastIndexOf('/') + 1) + " " + codepoint);
+      return codepoint == 0xe000;
+    });
+    pkg = tmp.ensureDir("pkg");
+    tmp.writeFile("pkg/lib/icons.dart", "");
+    tmp.writeFile("pkg/fonts/MyIcons.ttf", "");
+  }
+
+  @After
+  public void tearDown() {
+    Disposer.dispose(index);
+  }
+
+  @Test
+  public void findsFontsOnFirstUse() {
+    assertFonts("fonts/MyIcons.ttf");
+  }
+
+  @Test
+  public void addsCreatedFont() throws Exception {
+    assertFonts("fonts/MyIcons.ttf");
+    tmp.writeFile("pkg/fonts/OtherIcons.ttf", "");
+    tmp.writeFile("pkg/fonts/README.md", "");
+    assertFonts("fonts/MyIcons.ttf", "fonts/OtherIcons.ttf");
+  }
+
+  @Test
+  public void removesDeletedFont() throws Exception {
+    tmp.writeFile("pkg/fonts/OtherIcons.ttf", "");
+    assertFonts("fonts/MyIcons.ttf", "fonts/OtherIcons.ttf");
+    tmp.deleteFile("pkg/fonts/MyIcons.ttf");
+    assertFonts("fonts/OtherIcons.ttf");
+  }
+
+  @Test
+  public void removesFontsInDeletedDirectory() throws Exception {
+    assertFonts("fonts/MyIcons.ttf");
+    tmp.deleteFile("pkg/fonts");
+    assertFonts();
+  }
+
+  @Test
+  public void findsFontsInCreatedDirectory() throws Exception {
+    assertFonts("fonts/MyIcons.ttf");
+    tmp.ensureDir("pkg/assets");
+    tmp.writeFile("pkg/assets/OtherIcons.ttf", "");
+    assertFonts("assets/OtherIcons.ttf", "fonts/MyIcons.ttf");
+  }
+
+  @Test
+  public void followsMovedFont() throws Exception {
+    final VirtualFile assets = tmp.ensureDir("pkg/assets");
+    assertFonts("fonts/MyIcons.ttf");
+    Testing.runInWriteAction(() -> pkg.findFileByRelativePath("fonts/MyIcons.ttf").move(this, assets));
+    assertFonts("assets/MyIcons.ttf");
+
+    // Moving it out of the package removes it.
+    final VirtualFile elsewhere = tmp.ensureDir("elsewhere");
+    Testing.runInWriteAction(() -> pkg.findFileByRelativePath("assets/MyIcons.ttf").move(this, elsewhere));
+    assertFonts();
+  }
+
+  @Test
+  public void followsRenamedFont() throws Exception {
+    assertFonts("fonts/MyIcons.ttf");
+    Testing.runInWriteAction(() -> pkg.findFileByRelativePath("fonts/MyIcons.ttf").rename(this, "Renamed.ttf"));
+    assertFonts("fonts/Renamed.ttf");
+  }
+
+  @Test
+  public void followsRenamedDirectory() throws Exception {
+    assertFonts("fonts/MyIcons.ttf");
+    Testing.runInWriteAction(() -> pkg.findChild("fonts").rename(this, "assets"));
+    assertFonts("assets/MyIcons.ttf");
+  }
+
+  @Test
+  public void addsCopiedFont() throws Exception {
+    assertFonts("fonts/MyIcons.ttf");
+    final VirtualFile fonts = pkg.findChild("fonts");
+    Testing.runInWriteAction(() -> fonts.findChild("MyIcons.ttf").copy(this, fonts, "Copy.ttf"));
+    assertFonts("fonts/Copy.ttf", "fonts/MyIcons.ttf");
+  }
+
+  @Test
+  public void forgetsDeletedPackage() throws Exception {
+    assertFonts("fonts/MyIcons.ttf");
+    tmp.deleteFile("pkg");
+    pkg = tmp.ensureDir("pkg");
+    assertFonts();
+  }
+
+  @Test
+  public void ranksFontsByFamily() throws Exception {
+    tmp.writeFile("pkg/fonts/OtherIcons.ttf", "");
+    assertEquals("OtherIcons.ttf", index.getFonts(pkg, "OtherIcons").get(0).getName());
+    assertEquals("MyIcons.ttf", index.getFonts(pkg, "MyIcons").get(0).getName());
+
+    // A better match added later is ranked first.
+    tmp.writeFile("pkg/fonts/MyIconsV2.ttf", "");
+    assertEquals("MyIconsV2.ttf", index.getFonts(pkg, "MyIconsV2").get(0).getName());
+  }
+
+  @Test
+  public void remembersCodepointsInEachFont() throws Exception {
+    final VirtualFile font = pkg.findFileByRelativePath("fonts/MyIcons.ttf");
+    assertTrue(index.containsCodepoint(font, 0xe000));
+    assertFalse(index.containsCodepoint(font, 0xe001));
+    assertTrue(index.containsCodepoint(font, 0xe000));
+    assertFalse(index.containsCodepoint(font, 0xe001));
+    assertEquals(List.of("MyIcons.ttf 57344", "MyIcons.ttf 57345"), codepointReads);
+
+    // A changed font is read again.
+    Testing.runInWriteAction(() -> VfsUtil.saveText(font, "changed"));
+    assertTrue(index.containsCodepoint(font, 0xe000));
+    assertEquals(3, codepointReads.size());
+  }
+
+  private void assertFonts(String... expected) {
+    final List<String> actual = index.getFonts(pkg, null).stream()
+      .map((file) -> file.getPath().substring(pkg.getPath().length() + 1))
+      .sorted()
+      .toList();
+    assertEquals(List.of(expected), actual);
+  }
+}
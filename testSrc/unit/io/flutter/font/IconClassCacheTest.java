@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.font;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class IconClassCacheTest {
+  private Path tempDir;
+  private Path cacheFile;
+  private Path lib;
+  private String iconsPath;
+
+  @Before
+  public void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("icon-class-cache");
+    cacheFile = tempDir.resolve("cache").resolve("icon-classes.json");
+    lib = Files.createDirectories(tempDir.resolve("my_icons-1.0.0").resolve("lib"));
+    iconsPath = Files.writeString(lib.resolve("my_icons.dart"), "class MyIcons {}").toString();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> walk = Files.walk(tempDir)) {
+      for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Test
+  public void restoresSavedClasses() {
+    final String hash = IconClassCache.hashContents(lib);
+    assertNotNull(hash);
+
+    final IconClassCache cache = new IconClassCache(cacheFile);
+    cache.put(lib.toString(), hash, Map.of("MyIcons", Set.of(iconsPath)));
+    cache.save();
+
+    final IconClassCache restored = new IconClassCache(cacheFile);
+    assertEquals(Map.of("MyIcons", List.of(iconsPath)), restored.get(lib.toString(), hash));
+    assertNull(restored.get(lib.toString(), "another hash"));
+    assertNull(restored.get(tempDir.resolve("other").toString(), hash));
+  }
+
+  @Test
+  public void hashChangesWithContents() throws IOException {
+    final String hash = IconClassCache.hashContents(lib);
+    assertEquals(hash, IconClassCache.hashContents(lib));
+
+    Files.writeString(lib.resolve("my_icons.dart"), "class MyIcons { static const x = 1; }");
+    assertNotEquals(hash, IconClassCache.hashContents(lib));
+
+    final String edited = IconClassCache.hashContents(lib);
+    Files.writeString(lib.resolve("README.md"), "Not Dart");
+    assertEquals(edited, IconClassCache.hashContents(lib));
+
+    assertNull(IconClassCache.hashContents(tempDir.resolve("missing")));
+  }
+
+  @Test
+  public void hostedPackagesAreNotRead() throws IOException {
+    final Path hostedLib = Files.createDirectories(tempDir.resolve("hosted").resolve("pub.dev").resolve("my_icons-1.0.0").resolve("lib"));
+    Files.writeString(hostedLib.resolve("my_icons.dart"), "class MyIcons {}");
+    assertTrue(IconClassCache.isHostedPackage(hostedLib));
+    assertEquals(IconClassCache.HOSTED_CONTENT_VERSION, IconClassCache.getContentVersion(hostedLib));
+
+    // Other packages are identified by their contents.
+    assertFalse(IconClassCache.isHostedPackage(lib));
+    assertEquals(IconClassCache.hashContents(lib), IconClassCache.getContentVersion(lib));
+    assertNull(IconClassCache.getContentVersion(tempDir.resolve("hosted").resolve("pub.dev").resolve("gone-1.0.0").resolve("lib")));
+  }
+
+  @Test
+  public void restoresPackageWithNoClasses() {
+    final IconClassCache cache = new IconClassCache(cacheFile);
+    cache.put(lib.toString(), "hash", Map.of());
+    cache.save();
+
+    assertEquals(Map.of(), new IconClassCache(cacheFile).get(lib.toString(), "hash"));
+  }
+
+  @Test
+  public void ignoresClassesInMissingFiles() throws IOException {
+    final String hash = IconClassCache.hashContents(lib);
+    final IconClassCache cache = new IconClassCache(cacheFile);
+    cache.put(lib.toString(), hash, Map.of("MyIcons", Set.of(iconsPath), "Gone", Set.of(lib.resolve("gone.dart").toString())));
+
+    assertNull(cache.get(lib.toString(), hash));
+  }
+
+  @Test
+  public void ignoresUnreadableFile() throws IOException {
+    Files.createDirectories(cacheFile.getParent());
+    Files.writeString(cacheFile, "{not json");
+
+    final IconClassCache cache = new IconClassCache(cacheFile);
+    assertNull(cache.get(lib.toString(), "hash"));
+
+    cache.put(lib.toString(), "hash", Map.of("MyIcons", Set.of(iconsPath)));
+    cache.save();
+    assertNotNull(new IconClassCache(cacheFile).get(lib.toString(), "hash"));
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class ConsoleEventQueueTest {
+  private final Queue<Runnable> executor = new ArrayDeque<>();
+  private final List<String> printed = new ArrayList<>();
+
+  @Test
+  public void runsTasksInOrder() {
+    final ConsoleEventQueue queue = createQueue(10, ConsoleEventQueue.DropPolicy.KEEP_FIRST);
+    queue.offer(() -> printed.add("error 1"));
+    queue.add(() -> printed.add("log"));
+    queue.offer(() -> printed.add("error 2"));
+    runExecutor();
+
+    assertEquals(List.of("error 1", "log", "error 2"), printed);
+    assertEquals(3, queue.getStats().processed());
+    assertEquals(0, queue.getStats().depth());
+  }
+
+  @Test
+  public void keepFirstDropsNewTasks() {
+    final ConsoleEventQueue queue = createQueue(2, ConsoleEventQueue.DropPolicy.KEEP_FIRST);
+    assertTrue(queue.offer(() -> printed.add("error 1")));
+    assertTrue(queue.offer(() -> printed.add("error 2")));
+    assertFalse(queue.offer(() -> printed.add("error 3")));
+    queue.add(() -> printed.add("log"));
+    runExecutor();
+
+    assertEquals(List.of("error 1", "error 2", "dropped 1", "log"), printed);
+    assertEquals(1, queue.getStats().dropped());
+    assertEquals(3, queue.getStats().maxDepth());
+  }
+
+  @Test
+  public void keepLatestDropsOldestTask() {
+    final ConsoleEventQueue queue = createQueue(2, ConsoleEventQueue.DropPolicy.KEEP_LATEST);
+    queue.offer(() -> printed.add("error 1"));
+    queue.add(() -> printed.add("log"));
+    queue.offer(() -> printed.add("error 2"));
+    queue.offer(() -> printed.add("error 3"));
+    runExecutor();
+
+    assertEquals(List.of("log", "error 2", "dropped 1", "error 3"), printed);
+  }
+
+  @Test
+  public void reportsDroppedTasksDuringStorm() {
+    final ConsoleEventQueue queue = createQueue(2, ConsoleEventQueue.DropPolicy.KEEP_FIRST);
+    final int[] next = {1};
+    final Runnable[] error = new Runnable[1];
+    error[0] = () -> {
+      printed.add("error");
+      // Each error printed is followed by two more arriving, so the queue never empties until the storm ends.
+      for (int i = 0; i < 2 && next[0] < 20; i++, next[0]++) {
+        queue.offer(error[0]);
+      }
+    };
+    queue.offer(error[0]);
+    runExecutor();
+
+    final List<String> reports = printed.stream().filter((line) -> line.startsWith("dropped ")).toList();
+    assertTrue(reports.size() > 1);
+    assertTrue(printed.indexOf(reports.get(0)) < printed.lastIndexOf("error"));
+    assertEquals(queue.getStats().dropped(), reports.stream().mapToInt((line) -> Integer.parseInt(line.substring(8))).sum());
+  }
+
+  @Test
+  public void flushCompletesAfterEarlierTasks() {
+    final ConsoleEventQueue queue = createQueue(10, ConsoleEventQueue.DropPolicy.KEEP_FIRST);
+    queue.offer(() -> printed.add("error 1"));
+    final CompletableFuture<Void> flushed = queue.flush();
+    assertFalse(flushed.isDone());
+
+    runExecutor();
+    assertTrue(flushed.isDone());
+    assertEquals(List.of("error 1"), printed);
+  }
+
+  @Test
+  public void reservedSlotHoldsLaterTasks() {
+    final ConsoleEventQueue queue = createQueue(10, ConsoleEventQueue.DropPolicy.KEEP_FIRST);
+    queue.add(() -> printed.add("log 1"));
+    final ConsoleEventQueue.Slot slot = queue.reserve();
+    queue.offer(() -> printed.add("error"));
+    final CompletableFuture<Void> flushed = queue.flush();
+    runExecutor();
+
+    assertEquals(List.of("log 1"), printed);
+    assertFalse(flushed.isDone());
+
+    slot.fill(() -> printed.add("log 2"));
+    slot.fill(() -> printed.add("log 2 again"));
+    runExecutor();
+    assertEquals(List.of("log 1", "log 2", "error"), printed);
+    assertTrue(flushed.isDone());
+  }
+
+  private ConsoleEventQueue createQueue(int capacity, ConsoleEventQueue.DropPolicy dropPolicy) {
+    return new ConsoleEventQueue(capacity, dropPolicy, (count) -> printed.add("dropped " + count), executor::add);
+  }
+
+  private void runExecutor() {
+    Runnable task;
+    while ((task = executor.poll()) != null) {
+      task.run();
+    }
+  }
+}
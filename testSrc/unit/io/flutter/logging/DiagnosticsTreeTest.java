@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DiagnosticsTreeTest {
+  private static final String ERROR_JSON = """
+    {
+      "description": "Exception caught by rendering library",
+      "type": "_FlutterErrorDetailsNode",
+      "objectId": "inspector-0",
+      "properties": [
+        {
+          "description": "A RenderFlex overflowed by 42 pixels on the right.",
+          "type": "ErrorSummary",
+          "level": "summary",
+          "showName": false,
+          "objectId": "inspector-1"
+        },
+        {
+          "name": "The relevant error-causing widget was",
+          "description": "Row",
+          "style": "flat",
+          "hasChildren": true,
+          "objectId": "inspector-2",
+          "children": [
+            {"description": "Text", "hasChildren": true, "objectId": "inspector-3"},
+            {"description": "Icon", "objectId": "inspector-4"}
+          ]
+        },
+        {"description": "unknown style", "style": "notAStyle", "level": "notALevel", "showSeparator": false}
+      ]
+    }""";
+
+  @Test
+  public void decodesNodesAndRanges() {
+    final DiagnosticsTree tree = DiagnosticsTree.decode(parse(ERROR_JSON), null);
+    final int root = DiagnosticsTree.ROOT;
+
+    assertEquals(6, tree.size());
+    assertEquals("Exception caught by rendering library", tree.getText(root));
+    assertEquals(3, tree.propertiesEnd(root) - tree.firstProperty(root));
+    assertEquals(tree.childrenEnd(root), tree.firstChild(root));
+
+    final int summary = tree.firstProperty(root);
+    assertEquals(DiagnosticLevel.summary, tree.getLevel(summary));
+    assertEquals("ErrorSummary", tree.getType(summary));
+    assertFalse(tree.getShowName(summary));
+    assertFalse(tree.hasProperties(summary));
+
+    final int widget = summary + 1;
+    assertEquals("The relevant error-causing widget was: Row", tree.getText(widget));
+    assertEquals(DiagnosticsTreeStyle.flat, tree.getStyle(widget));
+    assertTrue(tree.hasChildren(widget));
+    assertTrue(tree.hasGrandchildren(widget));
+    assertEquals("Text", tree.getDescription(tree.firstChild(widget)));
+    assertEquals("Icon", tree.getDescription(tree.childrenEnd(widget) - 1));
+
+    final int unknown = widget + 1;
+    assertEquals(DiagnosticsTreeStyle.sparse, tree.getStyle(unknown));
+    assertEquals(DiagnosticLevel.info, tree.getLevel(unknown));
+    assertEquals("", tree.getSeparator(unknown));
+  }
+
+  @Test
+  public void sharesIdenticalTrees() {
+    final DiagnosticsTree first = DiagnosticsTree.decode(parse(ERROR_JSON), null);
+    final String sameError = ERROR_JSON.replace("inspector-", "inspector-9");
+
+    assertSame(first, DiagnosticsTree.decode(parse(sameError), first));
+  }
+
+  @Test
+  public void doesNotShareDifferentTrees() {
+    final DiagnosticsTree first = DiagnosticsTree.decode(parse(ERROR_JSON), null);
+
+    assertNotSame(first, DiagnosticsTree.decode(parse(ERROR_JSON.replace("42 pixels", "43 pixels")), first));
+    assertNotSame(first, DiagnosticsTree.decode(parse(ERROR_JSON.replace("{\"description\": \"Icon\", ", "{")), first));
+  }
+
+  private static JsonObject parse(String json) {
+    return JsonParser.parseString(json).getAsJsonObject();
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OrderedRenderQueueTest {
+  private final Map<String, CompletableFuture<String>> renderings = new HashMap<>();
+  private final List<String> emitted = new ArrayList<>();
+
+  @Test
+  public void emitsInOrderWhenRenderingsFinishOutOfOrder() {
+    final OrderedRenderQueue<String, String> queue = createQueue(10, 10000);
+    queue.add("a");
+    queue.add("b");
+    queue.add("c");
+
+    renderings.get("c").complete("C");
+    renderings.get("b").complete("B");
+    assertTrue(emitted.isEmpty());
+
+    renderings.get("a").complete("A");
+    assertEquals(List.of("A", "B", "C"), emitted);
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void limitsLookahead() {
+    final OrderedRenderQueue<String, String> queue = createQueue(2, 10000);
+    queue.add("a");
+    queue.add("b");
+    queue.add("c");
+
+    assertEquals(2, renderings.size());
+    assertEquals(3, queue.size());
+
+    renderings.get("a").complete("A");
+    assertTrue(renderings.containsKey("c"));
+    assertEquals(List.of("A"), emitted);
+  }
+
+  @Test
+  public void usesFallbackRightAwayWhenTooManyAreWaiting() {
+    final OrderedRenderQueue<String, String> queue = createQueue(1, 1, 10000);
+    queue.add("a");
+    queue.add("b");
+    queue.add("c");
+
+    assertEquals(List.of("fallback c"), emitted);
+    assertEquals(2, queue.size());
+
+    renderings.get("a").complete("A");
+    renderings.get("b").complete("B");
+    assertEquals(List.of("fallback c", "A", "B"), emitted);
+  }
+
+  @Test
+  public void usesFallbackOnFailure() {
+    final OrderedRenderQueue<String, String> queue = createQueue(10, 10000);
+    queue.add("a");
+    queue.add("b");
+
+    renderings.get("a").completeExceptionally(new RuntimeException("expected"));
+    renderings.get("b").complete("B");
+
+    assertEquals(List.of("fallback a", "B"), emitted);
+  }
+
+  @Test
+  public void usesFallbackOnTimeout() throws Exception {
+    final OrderedRenderQueue<String, String> queue = createQueue(10, 10);
+    queue.add("a");
+
+    for (int i = 0; i < 500 && emitted.isEmpty(); i++) {
+      Thread.sleep(10);
+    }
+    synchronized (emitted) {
+      assertEquals(List.of("fallback a"), emitted);
+    }
+  }
+
+  private OrderedRenderQueue<String, String> createQueue(int maxLookahead, long timeoutMillis) {
+    return createQueue(maxLookahead, 100, timeoutMillis);
+  }
+
+  private OrderedRenderQueue<String, String> createQueue(int maxLookahead, int maxWaiting, long timeoutMillis) {
+    return new OrderedRenderQueue<>(
+      maxLookahead, maxWaiting, timeoutMillis,
+      (item) -> renderings.computeIfAbsent(item, (k) -> new CompletableFuture<>()),
+      (item) -> "fallback " + item,
+      (item, result) -> {
+        synchronized (emitted) {
+          emitted.add(result);
+        }
+      });
+  }
+}
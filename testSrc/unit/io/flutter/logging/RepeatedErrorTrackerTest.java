@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.logging;
+
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RepeatedErrorTrackerTest {
+  private static final long QUIET_MILLIS = 1000;
+
+  private final DiagnosticsTree error =
+    DiagnosticsTree.decode(JsonParser.parseString("{\"description\": \"A RenderFlex overflowed\"}").getAsJsonObject(), null);
+
+  private long nowNanos;
+  private final List<Long> scheduled = new ArrayList<>();
+  private final RepeatedErrorTracker tracker = new RepeatedErrorTracker(QUIET_MILLIS, () -> nowNanos, scheduled::add);
+
+  @Test
+  public void recognizesLastPrintedError() {
+    assertFalse(tracker.isLastError(error, false));
+    assertFalse(tracker.isLastError("overflow"));
+
+    tracker.printed(error, false, "overflow");
+    assertTrue(tracker.isLastError(error, false));
+    assertFalse(tracker.isLastError(error, true));
+    assertTrue(tracker.isLastError("overflow"));
+    assertFalse(tracker.isLastError("another error"));
+  }
+
+  @Test
+  public void countsRepeatsUntilTaken() {
+    tracker.printed(error, false, "overflow");
+    tracker.repeated();
+    tracker.repeated();
+    tracker.repeated();
+
+    assertEquals(3, tracker.takeCount());
+    assertEquals(0, tracker.takeCount());
+    // The next occurrence is printed in full.
+    assertFalse(tracker.isLastError(error, false));
+    assertFalse(tracker.isLastError("overflow"));
+  }
+
+  @Test
+  public void schedulesOneQuietCheckAtATime() {
+    tracker.printed(error, false, "overflow");
+    for (int i = 0; i < 60; i++) {
+      tracker.repeated();
+      advanceMillis(16);
+    }
+    assertEquals(List.of(QUIET_MILLIS), scheduled);
+  }
+
+  @Test
+  public void quietCheckReschedulesWhileErrorsContinue() {
+    tracker.printed(error, false, "overflow");
+    tracker.repeated();
+    advanceMillis(600);
+    tracker.repeated();
+    advanceMillis(400);
+
+    // The check scheduled by the first repeat finds the second one was 400ms ago.
+    assertEquals(0, tracker.takeCountIfQuiet());
+    assertEquals(List.of(QUIET_MILLIS, 600L), scheduled);
+
+    advanceMillis(600);
+    assertEquals(2, tracker.takeCountIfQuiet());
+    assertEquals(2, scheduled.size());
+  }
+
+  @Test
+  public void quietCheckAfterCountTakenDoesNothing() {
+    tracker.printed(error, false, "overflow");
+    tracker.repeated();
+    assertEquals(1, tracker.takeCount());
+
+    advanceMillis(QUIET_MILLIS);
+    assertEquals(0, tracker.takeCountIfQuiet());
+    assertEquals(1, scheduled.size());
+
+    // A new run of repeats schedules a new check.
+    tracker.printed(error, false, "overflow");
+    tracker.repeated();
+    assertEquals(2, scheduled.size());
+  }
+
+  private void advanceMillis(long millis) {
+    nowNanos += TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.dartlang.vm.service.element.Script;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ObservatoryFileCacheTest {
+  private final List<String> downloads = new ArrayList<>();
+
+  @Test
+  public void shouldDownloadEachScriptOnce() {
+    final ObservatoryFileCache cache = new ObservatoryFileCache(this::download);
+
+    final ObservatoryFile first = cache.downloadOrGet("isolates/1", "scripts/1", false);
+    final ObservatoryFile second = cache.downloadOrGet("isolates/1", "scripts/1", false);
+
+    assertNotNull(first);
+    assertSame(first, second);
+    assertEquals(List.of("isolates/1 scripts/1"), downloads);
+    assertEquals(1, cache.getStats().hits());
+    assertEquals(1, cache.getStats().misses());
+  }
+
+  @Test
+  public void shouldKeepIsolatesSeparate() {
+    final ObservatoryFileCache cache = new ObservatoryFileCache(this::download);
+
+    cache.downloadOrGet("isolates/1", "scripts/1", false);
+    cache.downloadOrGet("isolates/2", "scripts/1", false);
+
+    assertEquals(List.of("isolates/1 scripts/1", "isolates/2 scripts/1"), downloads);
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedWhenOverWeight() {
+    final long fileWeight = new ObservatoryFile(createScript("scripts/0"), false).getWeight();
+    final ObservatoryFileCache cache = new ObservatoryFileCache(this::download, fileWeight * 2);
+
+    cache.downloadOrGet("isolates/1", "scripts/1", false);
+    cache.downloadOrGet("isolates/1", "scripts/2", false);
+    cache.downloadOrGet("isolates/1", "scripts/1", false);
+    cache.downloadOrGet("isolates/1", "scripts/3", false);
+
+    assertEquals(1, cache.getStats().evictions());
+    assertEquals(2, cache.getStats().size());
+
+    // scripts/2 was the least recently used, so it has to be downloaded again.
+    cache.downloadOrGet("isolates/1", "scripts/1", false);
+    cache.downloadOrGet("isolates/1", "scripts/2", false);
+    assertEquals(List.of("isolates/1 scripts/1", "isolates/1 scripts/2", "isolates/1 scripts/3", "isolates/1 scripts/2"), downloads);
+  }
+
+  @Test
+  public void shouldDropIsolateOnExit() {
+    final ObservatoryFileCache cache = new ObservatoryFileCache(this::download);
+
+    cache.downloadOrGet("isolates/1", "scripts/1", false);
+    cache.downloadOrGet("isolates/2", "scripts/1", false);
+    cache.removeIsolate("isolates/1");
+
+    assertEquals(1, cache.getStats().size());
+    assertEquals(1, cache.getStats().evictions());
+  }
+
+  @Test
+  public void shouldDropEverythingOnClear() {
+    final ObservatoryFileCache cache = new ObservatoryFileCache(this::download);
+
+    cache.downloadOrGet("isolates/1", "scripts/1", false);
+    cache.downloadOrGet("isolates/2", "scripts/1", false);
+    cache.clear();
+
+    assertEquals(0, cache.getStats().size());
+    assertEquals(0, cache.getStats().weight());
+    assertEquals(2, cache.getStats().evictions());
+  }
+
+  @Test
+  public void shouldDownloadAsynchronously() throws Exception {
+    final ObservatoryFileCache cache = new ObservatoryFileCache(this::download);
+
+    final ObservatoryFile file = cache.downloadOrGetAsync("isolates/1", "scripts/1", false).get();
+
+    assertNotNull(file);
+    assertSame(file, cache.downloadOrGet("isolates/1", "scripts/1", false));
+    assertEquals(1, downloads.size());
+  }
+
+  private Script download(String isolateId, String scriptId) {
+    synchronized (downloads) {
+      downloads.add(isolateId + " " + scriptId);
+    }
+    return createScript(scriptId);
+  }
+
+  private static Script createScript(String scriptId) {
+    final JsonArray line = new JsonArray();
+    line.add(1);
+    line.add(10);
+    line.add(1);
+    final JsonArray tokenPosTable = new JsonArray();
+    tokenPosTable.add(line);
+
+    final JsonObject json = new JsonObject();
+    json.addProperty("id", scriptId);
+    json.addProperty("uri", "file:///" + scriptId + ".dart");
+    json.add("tokenPosTable", tokenPosTable);
+    return new Script(json);
+  }
+}
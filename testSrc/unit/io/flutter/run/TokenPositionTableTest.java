@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run;
+
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TokenPositionTableTest {
+
+  @Test
+  public void shouldMapTokensToZeroBasedLinesAndColumns() {
+    final TokenPositionTable table = decode("[[1, 10, 1, 12, 5], [3, 20, 7]]");
+    assertEquals(3, table.size());
+
+    final int index = table.indexOf(12);
+    assertEquals(0, table.getLine(index));
+    assertEquals(4, table.getColumn(index));
+
+    final int last = table.indexOf(20);
+    assertEquals(2, table.getLine(last));
+    assertEquals(6, table.getColumn(last));
+  }
+
+  @Test
+  public void shouldReturnMinusOneForUnknownTokens() {
+    final TokenPositionTable table = decode("[[1, 10, 1]]");
+    assertEquals(-1, table.indexOf(11));
+  }
+
+  @Test
+  public void shouldSortUnorderedTablesKeepingTheLastDuplicate() {
+    final TokenPositionTable table = decode("[[5, 30, 1], [2, 10, 3, 30, 9]]");
+    assertEquals(2, table.size());
+
+    final int index = table.indexOf(30);
+    assertEquals(1, table.getLine(index));
+    assertEquals(8, table.getColumn(index));
+    assertEquals(1, table.getLine(table.indexOf(10)));
+  }
+
+  @Test
+  public void shouldIgnoreMissingTables() {
+    assertNull(TokenPositionTable.decode(null));
+  }
+
+  private static TokenPositionTable decode(String json) {
+    return TokenPositionTable.decode(JsonParser.parseString(json));
+  }
+}
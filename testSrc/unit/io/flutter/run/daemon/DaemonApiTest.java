@@ -15,7 +15,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static io.flutter.testing.JsonTesting.curly;
 import static org.junit.Assert.*;
@@ -110,6 +114,71 @@ public class DaemonApiTest {
     assertNull(result);
   }
 
+  @Test
+  public void recordsRestartMetrics() throws Exception {
+    final Future<DaemonApi.RestartResult> result = api.restartApp("foo", false, false, "manual");
+    final DaemonCommandMetrics.CommandMetrics metrics = api.getMetrics().getCommandMetrics("app.restart (reload)");
+    assertNotNull(metrics);
+    assertEquals(1, metrics.getInFlightCount());
+
+    replyWithResult(result, curly("code:0", "message:\"ok\""));
+    assertEquals(0, metrics.getInFlightCount());
+    assertEquals(1, metrics.getCount());
+    assertTrue(metrics.getLatencyPercentileMillis(99) >= 0);
+  }
+
+  @Test
+  public void commandTimesOut() throws Exception {
+    api.setCommandTimeout("app.stop", 10);
+    final Future<Boolean> result = api.stopApp("foo");
+    try {
+      result.get(5, TimeUnit.SECONDS);
+      fail("expected a timeout");
+    }
+    catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+    assertEquals(1, api.getMetrics().getCommandMetrics("app.stop").getTimeoutCount());
+    assertEquals(0, api.getMetrics().getCommandMetrics("app.stop").getInFlightCount());
+  }
+
+  @Test
+  public void cancelledCommandIsNoLongerPending() {
+    final Future<Boolean> result = api.stopApp("foo");
+    result.cancel(false);
+    assertEquals(0, api.getMetrics().getCommandMetrics("app.stop").getInFlightCount());
+
+    // A late response is ignored.
+    api.dispatch(JsonUtils.parseString("{id: \"0\", result: true}").getAsJsonObject(), null);
+    assertTrue(result.isCancelled());
+  }
+
+  @Test
+  public void abandonedCommandIsRecordedOnce() {
+    final Future<Boolean> result = api.stopApp("foo");
+    api.cancelPending();
+    assertEquals(0, api.getMetrics().getCommandMetrics("app.stop").getInFlightCount());
+
+    // The caller giving up afterwards doesn't count it again.
+    result.cancel(false);
+    assertEquals(0, api.getMetrics().getCommandMetrics("app.stop").getInFlightCount());
+  }
+
+  @Test
+  public void rejectedCommandFailsRightAway() throws Exception {
+    api = new DaemonApi((json) -> false);
+    final Future<Boolean> result = api.stopApp("foo");
+    assertTrue(result.isDone());
+    try {
+      result.get();
+      fail("expected the command to be rejected");
+    }
+    catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+    assertEquals(0, api.getMetrics().getCommandMetrics("app.stop").getInFlightCount());
+  }
+
   // helpers
 
   private void checkSent(Future<?> result, String expectedMethod, String expectedParamsJson) {
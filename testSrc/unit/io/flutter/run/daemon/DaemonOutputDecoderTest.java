@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies that stdout is split into lines and daemon messages are decoded once.
+ */
+public class DaemonOutputDecoderTest {
+  @Test
+  public void decodesDaemonMessages() {
+    final DaemonOutputDecoder decoder = new DaemonOutputDecoder();
+    final List<DaemonOutputDecoder.Line> lines =
+      decoder.decode("hello\n[{\"event\":\"app.log\",\"params\":{\"log\":\"hi\"}}]\nbye\n");
+
+    assertEquals(3, lines.size());
+    assertEquals("hello\n", lines.get(0).text());
+    assertNull(lines.get(0).message());
+    assertNotNull(lines.get(1).message());
+    assertEquals("app.log", lines.get(1).message().get("event").getAsString());
+    assertNull(lines.get(2).message());
+  }
+
+  @Test
+  public void decodesMessageSplitAcrossChunks() {
+    final DaemonOutputDecoder decoder = new DaemonOutputDecoder();
+    assertTrue(decoder.decode("[{\"id\":1,").isEmpty());
+
+    final List<DaemonOutputDecoder.Line> lines = decoder.decode("\"result\":true}]\n");
+    assertEquals(1, lines.size());
+    assertEquals(1, lines.get(0).message().get("id").getAsInt());
+  }
+
+  @Test
+  public void identicalChunksAreEachDecoded() {
+    final DaemonOutputDecoder decoder = new DaemonOutputDecoder();
+    final String end = "\"result\":true}]";
+
+    assertTrue(decoder.decode("[{\"id\":1,").isEmpty());
+    assertEquals(1, decoder.decode(end).get(0).message().get("id").getAsInt());
+
+    // The same String instance again is new output, not a repeat of the response.
+    final List<DaemonOutputDecoder.Line> lines = decoder.decode(end);
+    assertEquals(1, lines.size());
+    assertEquals(end, lines.get(0).text());
+    assertNull(lines.get(0).message());
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import com.google.common.collect.ImmutableList;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeviceDaemonPoolTest {
+  private final DeviceDaemonPool pool = new DeviceDaemonPool();
+
+  @After
+  public void tearDown() {
+    pool.dispose();
+  }
+
+  @Test
+  public void countsLeases() {
+    final FakeCommand command = new FakeCommand("/sdk");
+    final DeviceDaemonPool.Lease first = acquire(command);
+    final DeviceDaemonPool.Lease second = acquire(command);
+    assertEquals(2, pool.getLeaseCount(command));
+    assertEquals(1, command.starts.size());
+
+    second.release();
+    assertEquals(1, pool.getLeaseCount(command));
+
+    // Releasing twice doesn't count twice.
+    second.release();
+    assertEquals(1, pool.getLeaseCount(command));
+    assertFalse(command.starts.get(0).isCancelled());
+
+    first.release();
+    assertEquals(0, pool.getLeaseCount(command));
+  }
+
+  @Test
+  public void shutsDownOnLastRelease() {
+    final FakeCommand command = new FakeCommand("/sdk");
+    final DeviceDaemonPool.Lease first = acquire(command);
+    final DeviceDaemonPool.Lease second = acquire(command);
+    assertTrue(first.isStarting());
+
+    first.release();
+    assertFalse(command.starts.get(0).isCancelled());
+    assertTrue(second.isStarting());
+
+    second.release();
+    assertTrue(command.starts.get(0).isCancelled());
+
+    // The next lease starts a new daemon.
+    acquire(command);
+    assertEquals(2, command.starts.size());
+  }
+
+  @Test
+  public void sharesDaemonAcrossProjectsWithSameCommand() {
+    final FakeCommand project1 = new FakeCommand("/sdk");
+    final FakeCommand project2 = new FakeCommand("/sdk");
+    final FakeCommand project3 = new FakeCommand("/other-sdk");
+
+    acquire(project1);
+    acquire(project2);
+    acquire(project3);
+    assertEquals(2, pool.getLeaseCount(project1));
+    assertEquals(1, pool.getLeaseCount(project3));
+    assertEquals(1, project1.starts.size());
+    assertEquals(0, project2.starts.size());
+    assertEquals(1, project3.starts.size());
+  }
+
+  @Test
+  public void keepsReplacedDaemonUntilNewOneStarts() {
+    final FakeCommand oldSdk = new FakeCommand("/old-sdk");
+    final FakeCommand newSdk = new FakeCommand("/new-sdk");
+    final DeviceDaemonPool.Lease previous = acquire(oldSdk);
+    final DeviceDaemonPool.Lease next = pool.acquire(newSdk, () -> {}, (details) -> {}, previous);
+
+    // Released when the new lease is published, but the new daemon isn't running yet.
+    previous.release();
+    assertEquals(1, pool.getLeaseCount(oldSdk));
+    assertFalse(oldSdk.starts.get(0).isCancelled());
+
+    newSdk.starts.get(0).complete(null);
+    assertEquals(0, pool.getLeaseCount(oldSdk));
+    assertTrue(oldSdk.starts.get(0).isCancelled());
+    assertEquals(1, pool.getLeaseCount(newSdk));
+    next.release();
+  }
+
+  @Test
+  public void discardedReplacementDoesNotReleasePreviousLease() {
+    final FakeCommand oldSdk = new FakeCommand("/old-sdk");
+    final FakeCommand newSdk = new FakeCommand("/new-sdk");
+    final DeviceDaemonPool.Lease previous = acquire(oldSdk);
+    final DeviceDaemonPool.Lease next = pool.acquire(newSdk, () -> {}, (details) -> {}, previous);
+
+    next.release();
+    assertEquals(1, pool.getLeaseCount(oldSdk));
+    assertEquals(0, pool.getLeaseCount(newSdk));
+    assertFalse(oldSdk.starts.get(0).isCancelled());
+    previous.release();
+  }
+
+  @NotNull
+  private DeviceDaemonPool.Lease acquire(@NotNull DeviceDaemon.Command command) {
+    return pool.acquire(command, () -> {}, (details) -> {}, null);
+  }
+
+  /**
+   * A command that records each start instead of launching a process.
+   */
+  private static class FakeCommand extends DeviceDaemon.Command {
+    final List<CompletableFuture<DeviceDaemon>> starts = new ArrayList<>();
+
+    FakeCommand(@NotNull String sdk) {
+      super(sdk, sdk + "/bin/flutter", ImmutableList.of("daemon"), null);
+    }
+
+    @NotNull
+    @Override
+    CompletableFuture<DeviceDaemon> start(@NotNull Runnable deviceChanged, @NotNull Consumer<String> processStopped) {
+      final CompletableFuture<DeviceDaemon> result = new CompletableFuture<>();
+      starts.add(result);
+      return result;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.run.daemon;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class DeviceDaemonTest {
+  @Test
+  public void retryDelayGrowsExponentiallyWithJitter() {
+    for (int i = 0; i < 100; i++) {
+      final long first = DeviceDaemon.retryDelayMillis(1);
+      assertTrue(first >= DeviceDaemon.INITIAL_RETRY_DELAY_MILLIS / 2 && first <= DeviceDaemon.INITIAL_RETRY_DELAY_MILLIS);
+
+      final long third = DeviceDaemon.retryDelayMillis(3);
+      assertTrue(third >= DeviceDaemon.INITIAL_RETRY_DELAY_MILLIS * 2 && third <= DeviceDaemon.INITIAL_RETRY_DELAY_MILLIS * 4);
+    }
+  }
+
+  @Test
+  public void retryDelayIsCapped() {
+    for (int failures = 1; failures < 100; failures++) {
+      assertTrue(DeviceDaemon.retryDelayMillis(failures) <= DeviceDaemon.MAX_RETRY_DELAY_MILLIS);
+    }
+  }
+}
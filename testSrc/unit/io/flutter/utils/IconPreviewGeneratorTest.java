@@ -14,8 +14,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import javax.swing.*;
+
+import static org.junit.Assert.*;
 
 public class IconPreviewGeneratorTest {
 
@@ -49,4 +50,27 @@ public class IconPreviewGeneratorTest {
     }
     preview.delete();
   }
+
+  @Test
+  public void reusesRenderedGlyphs() {
+    final String fontPath = "testData/utils/CupertinoIcons.ttf";
+    final Icon icon = new IconPreviewGenerator(fontPath, 16, 16, Color.black).convert(0xf489);
+    assertNotNull(icon);
+    assertSame(icon, new IconPreviewGenerator(fontPath, 16, 16, Color.black).convert(0xf489));
+    assertNotSame(icon, new IconPreviewGenerator(fontPath, 16, 16, Color.gray).convert(0xf489));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedGlyphs() {
+    // Room for two 16x16 glyphs.
+    final IconPreviewCache cache = new IconPreviewCache(IconPreviewCache.MAX_FONTS, 2 * 16 * 16 * 4);
+    final Icon first = new ImageIcon();
+    cache.getGlyph("font.ttf", 1, 16, 16, Color.black, () -> first);
+    cache.getGlyph("font.ttf", 2, 16, 16, Color.black, ImageIcon::new);
+    cache.getGlyph("font.ttf", 1, 16, 16, Color.black, ImageIcon::new);
+    cache.getGlyph("font.ttf", 3, 16, 16, Color.black, ImageIcon::new);
+
+    assertEquals(2, cache.getGlyphCount());
+    assertSame(first, cache.getGlyph("font.ttf", 1, 16, 16, Color.black, ImageIcon::new));
+  }
 }
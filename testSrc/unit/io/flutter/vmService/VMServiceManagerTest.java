@@ -0,0 +1,24 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.vmService;
+
+import org.dartlang.vm.service.VmService;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VMServiceManagerTest {
+  @Test
+  public void handlesStreamsItListensTo() {
+    assertTrue(VMServiceManager.handlesStream(VmService.EXTENSION_STREAM_ID));
+    assertTrue(VMServiceManager.handlesStream(VmService.ISOLATE_STREAM_ID));
+    assertTrue(VMServiceManager.handlesStream(VmService.LOGGING_STREAM_ID));
+    assertTrue(VMServiceManager.handlesStream(VmService.SERVICE_STREAM_ID));
+    assertFalse(VMServiceManager.handlesStream(VmService.GC_STREAM_ID));
+    assertFalse(VMServiceManager.handlesStream(null));
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package io.flutter.vmService;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.dartlang.vm.service.element.ClassObj;
+import org.dartlang.vm.service.element.Instance;
+import org.dartlang.vm.service.element.Script;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VmServiceObjectCacheTest {
+  private static final String ISOLATE = "isolates/1";
+
+  private final VmServiceObjectCache cache = new VmServiceObjectCache();
+
+  @Test
+  public void dropsMutableObjectsOnResume() {
+    final long generation = cache.getGeneration(ISOLATE);
+    final ClassObj cls = new ClassObj(json("{\"type\":\"Class\",\"id\":\"classes/1\"}"));
+    final Instance instance = new Instance(json("{\"type\":\"Instance\",\"id\":\"objects/1\"}"));
+    cache.put(ISOLATE, generation, "classes/1", null, null, cls);
+    cache.put(ISOLATE, generation, "objects/1", null, null, instance);
+    assertSame(instance, cache.get(ISOLATE, "objects/1", null, null));
+
+    cache.invalidateMutableObjects(ISOLATE);
+    assertSame(cls, cache.get(ISOLATE, "classes/1", null, null));
+    assertNull(cache.get(ISOLATE, "objects/1", null, null));
+  }
+
+  @Test
+  public void ignoresResponsesFromBeforeAnInvalidation() {
+    final long generation = cache.getGeneration(ISOLATE);
+    cache.invalidate(ISOLATE);
+    cache.put(ISOLATE, generation, "classes/1", null, null, new ClassObj(json("{\"type\":\"Class\",\"id\":\"classes/1\"}")));
+    assertNull(cache.get(ISOLATE, "classes/1", null, null));
+  }
+
+  @Test
+  public void doesNotCacheScripts() {
+    final long generation = cache.getGeneration(ISOLATE);
+    cache.put(ISOLATE, generation, "scripts/1", null, null,
+              new Script(json("{\"type\":\"Script\",\"id\":\"scripts/1\",\"source\":\"void main() {}\"}")));
+    assertNull(cache.get(ISOLATE, "scripts/1", null, null));
+    assertEquals(0, cache.getWeight(ISOLATE));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedObjectsOverTheWeightLimit() {
+    final long generation = cache.getGeneration(ISOLATE);
+    // Each string is about a quarter of the limit.
+    final String value = "x".repeat((int)(VmServiceObjectCache.MAX_WEIGHT_PER_ISOLATE / 8));
+    for (int i = 0; i < 5; i++) {
+      final JsonObject json = json("{\"type\":\"Instance\",\"id\":\"objects/" + i + "\"}");
+      json.addProperty("valueAsString", value);
+      cache.put(ISOLATE, generation, "objects/" + i, null, null, new Instance(json));
+      if (i == 2) {
+        // Using the first object makes the second the least recently used.
+        assertNotNull(cache.get(ISOLATE, "objects/0", null, null));
+      }
+    }
+
+    assertNotNull(cache.get(ISOLATE, "objects/0", null, null));
+    assertNull(cache.get(ISOLATE, "objects/1", null, null));
+    assertNotNull(cache.get(ISOLATE, "objects/4", null, null));
+    assertTrue(cache.getWeight(ISOLATE) <= VmServiceObjectCache.MAX_WEIGHT_PER_ISOLATE);
+  }
+
+  @Test
+  public void forgetsExitedIsolatesWhenCleared() {
+    cache.getGeneration(ISOLATE);
+    cache.removeIsolate(ISOLATE);
+    assertEquals(-1, cache.getGeneration(ISOLATE));
+
+    cache.clear();
+    assertEquals(0, cache.getGeneration(ISOLATE));
+  }
+
+  private static JsonObject json(String text) {
+    return JsonParser.parseString(text).getAsJsonObject();
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package org.dartlang.vm.service;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencySamplesTest {
+  private final LatencySamples samples = new LatencySamples();
+
+  @Test
+  public void reportsNoPercentileWithoutSamples() {
+    assertEquals(0, samples.getCount());
+    assertEquals(-1.0, samples.getPercentileMillis(50), 0);
+  }
+
+  @Test
+  public void computesPercentilesInMillis() {
+    for (int millis = 100; millis >= 1; millis--) {
+      samples.add(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+    assertEquals(100, samples.getCount());
+    assertEquals(1.0, samples.getPercentileMillis(0), 0);
+    assertEquals(50.0, samples.getPercentileMillis(50), 0);
+    assertEquals(99.0, samples.getPercentileMillis(99), 0);
+    assertEquals(100.0, samples.getPercentileMillis(100), 0);
+  }
+
+  @Test
+  public void keepsOnlyTheMostRecentSamples() {
+    for (int i = 0; i < LatencySamples.SAMPLE_COUNT; i++) {
+      samples.add(TimeUnit.SECONDS.toNanos(1));
+    }
+    for (int i = 0; i < LatencySamples.SAMPLE_COUNT; i++) {
+      samples.add(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    assertEquals(2L * LatencySamples.SAMPLE_COUNT, samples.getCount());
+    assertEquals(1.0, samples.getPercentileMillis(100), 0);
+  }
+}
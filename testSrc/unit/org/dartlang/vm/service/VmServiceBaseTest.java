@@ -0,0 +1,186 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package org.dartlang.vm.service;
+
+import com.google.gson.JsonObject;
+import io.flutter.utils.VmServiceListenerAdapter;
+import io.flutter.vmService.VMServiceManager;
+import org.dartlang.vm.service.consumer.EvaluateConsumer;
+import org.dartlang.vm.service.consumer.GetObjectConsumer;
+import org.dartlang.vm.service.consumer.VersionConsumer;
+import org.dartlang.vm.service.element.*;
+import org.dartlang.vm.service.internal.RequestSink;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VmServiceBaseTest {
+  private static final String RESUME_EVENT = "{\"type\":\"Event\",\"kind\":\"Resume\",\"timestamp\":1}";
+
+  private final VmService vmService = new VmService();
+  private final List<String> received = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    vmService.addVmServiceListener(new VmServiceListener() {
+      @Override
+      public void connectionOpened() {
+      }
+
+      @Override
+      public void received(String streamId, Event event) {
+        received.add(streamId + " " + event.getKind());
+      }
+
+      @Override
+      public boolean isInterestedIn(String streamId) {
+        return VmService.DEBUG_STREAM_ID.equals(streamId);
+      }
+
+      @Override
+      public void connectionClosed() {
+      }
+    });
+  }
+
+  @Test
+  public void deliversEventsForInterestingStreams() {
+    vmService.processMessage(streamNotify("Debug", RESUME_EVENT));
+    assertEquals(List.of("Debug " + EventKind.Resume), received);
+  }
+
+  @Test
+  public void dropsEventsForOtherStreams() {
+    vmService.processMessage(streamNotify("GC", RESUME_EVENT));
+    assertEquals(List.of(), received);
+  }
+
+  @Test
+  public void decodesMembersInAnyOrder() {
+    vmService.processMessage("{\"params\":{\"event\":" + RESUME_EVENT + ",\"streamId\":\"Debug\"},\"method\":\"streamNotify\"," +
+                             "\"jsonrpc\":\"2.0\"}");
+    vmService.processMessage("{\"method\":\"streamNotify\",\"params\":{\"event\":" + RESUME_EVENT + ",\"streamId\":\"Debug\"}}");
+    assertEquals(List.of("Debug " + EventKind.Resume, "Debug " + EventKind.Resume), received);
+
+    vmService.processMessage("{\"params\":{\"event\":" + RESUME_EVENT + ",\"streamId\":\"GC\"},\"method\":\"streamNotify\"}");
+    vmService.processMessage("{\"method\":\"streamNotify\",\"params\":{\"event\":" + RESUME_EVENT + ",\"streamId\":\"GC\"}}");
+    assertEquals(2, received.size());
+  }
+
+  @Test
+  public void deliversServiceEventsToTheServiceManager() {
+    final List<Event> events = new ArrayList<>();
+    vmService.addVmServiceListener(new VmServiceListenerAdapter() {
+      @Override
+      public boolean isInterestedIn(String streamId) {
+        return VMServiceManager.handlesStream(streamId);
+      }
+
+      @Override
+      public void received(String streamId, Event event) {
+        events.add(event);
+      }
+    });
+
+    vmService.processMessage(streamNotify("Service", "{\"type\":\"Event\",\"kind\":\"ServiceRegistered\",\"timestamp\":1," +
+                                                     "\"service\":\"reloadSources\",\"method\":\"s0.reloadSources\"}"));
+    assertEquals(1, events.size());
+    assertEquals(EventKind.ServiceRegistered, events.get(0).getKind());
+    assertEquals("reloadSources", events.get(0).getService());
+  }
+
+  @Test
+  public void deliversResponsesByType() {
+    final List<JsonObject> sent = new ArrayList<>();
+    vmService.requestSink = new RecordingSink(sent);
+    final List<String> responses = new ArrayList<>();
+    vmService.getObject("isolates/1", "classes/1", new GetObjectConsumer() {
+      @Override
+      public void received(Obj response) {
+        responses.add(response.getClass().getSimpleName());
+      }
+
+      @Override
+      public void received(Sentinel response) {
+        responses.add("Sentinel");
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        responses.add("error");
+      }
+    });
+    final String id = sent.get(0).get("id").getAsString();
+    vmService.processMessage("{\"jsonrpc\":\"2.0\",\"id\":\"" + id + "\",\"result\":{\"type\":\"Class\",\"id\":\"classes/1\"}}");
+    assertEquals(List.of("ClassObj"), responses);
+  }
+
+  @Test
+  public void onlyTimesOutRequestsWithDeadlines() throws InterruptedException {
+    vmService.requestSink = new RecordingSink(new ArrayList<>());
+    vmService.setRequestTimeout("getVersion", 10);
+
+    final List<String> errors = new CopyOnWriteArrayList<>();
+    final CountDownLatch timedOut = new CountDownLatch(1);
+    vmService.getVersion(new VersionConsumer() {
+      @Override
+      public void received(Version response) {
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        errors.add("getVersion " + error.getCode());
+        timedOut.countDown();
+      }
+    });
+    vmService.evaluate("isolates/1", "objects/1", "1 + 1", new EvaluateConsumer() {
+      @Override
+      public void received(ErrorRef response) {
+      }
+
+      @Override
+      public void received(InstanceRef response) {
+      }
+
+      @Override
+      public void received(Sentinel response) {
+      }
+
+      @Override
+      public void onError(RPCError error) {
+        errors.add("evaluate " + error.getCode());
+      }
+    });
+
+    assertTrue(timedOut.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of("getVersion " + RPCError.REQUEST_TIMEOUT), errors);
+    // The evaluation waits for as long as it takes.
+    assertEquals(1, vmService.getRequestMetrics().getInFlightCount());
+  }
+
+  private record RecordingSink(List<JsonObject> sent) implements RequestSink {
+    @Override
+    public void add(JsonObject request) {
+      sent.add(request);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static String streamNotify(String streamId, String event) {
+    return "{\"jsonrpc\":\"2.0\",\"method\":\"streamNotify\",\"params\":{\"streamId\":\"" + streamId + "\",\"event\":" + event + "}}";
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 The Chromium Authors. All rights reserved.
+ * Use of this source code is governed by a BSD-style license that can be
+ * found in the LICENSE file.
+ */
+package org.dartlang.vm.service.internal;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PendingRequestsTest {
+  private final PendingRequests pending = new PendingRequests();
+
+  @Test
+  public void tracksRequestsWithDeadlines() {
+    pending.add(request(1, Long.MAX_VALUE));
+    assertFalse(pending.hasDeadlines());
+
+    pending.add(request(2, 100));
+    pending.add(request(3, 200));
+    assertTrue(pending.hasDeadlines());
+    assertEquals(3, pending.size());
+
+    assertEquals(2, pending.remove(2).id);
+    assertTrue(pending.hasDeadlines());
+
+    final List<PendingRequests.Request> expired = pending.removeExpired(200);
+    assertEquals(1, expired.size());
+    assertEquals(3, expired.get(0).id);
+    assertFalse(pending.hasDeadlines());
+    assertEquals(1, pending.size());
+  }
+
+  @Test
+  public void replacingRequestUpdatesDeadlines() {
+    pending.add(request(1, 100));
+    pending.add(request(1, Long.MAX_VALUE));
+    assertFalse(pending.hasDeadlines());
+    assertEquals(1, pending.size());
+
+    pending.add(request(2, 100));
+    assertEquals(2, pending.removeAll().size());
+    assertFalse(pending.hasDeadlines());
+    assertEquals(0, pending.size());
+  }
+
+  private static PendingRequests.Request request(int id, long deadlineNanos) {
+    return new PendingRequests.Request(id, "getVersion", null, 0, deadlineNanos);
+  }
+}
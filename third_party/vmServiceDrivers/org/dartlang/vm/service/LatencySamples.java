@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The most recent round-trip times of one kind of request, kept in a ring buffer for computing
+ * latency percentiles.
+ */
+public class LatencySamples {
+  /**
+   * The number of most recent round-trip times kept.
+   */
+  public static final int SAMPLE_COUNT = 256;
+
+  private final long[] samples = new long[SAMPLE_COUNT];
+  private long count;
+
+  /**
+   * Record the round-trip time of a request that was answered.
+   */
+  public synchronized void add(long elapsedNanos) {
+    samples[(int)(count % SAMPLE_COUNT)] = elapsedNanos;
+    count++;
+  }
+
+  /**
+   * Return the number of round-trip times recorded, including those no longer kept.
+   */
+  public synchronized long getCount() {
+    return count;
+  }
+
+  /**
+   * Return the given percentile (0 - 100) of the most recent round-trip times in milliseconds, or
+   * -1 if none have been recorded.
+   */
+  public double getPercentileMillis(double percentile) {
+    final long[] sorted;
+    synchronized (this) {
+      if (count == 0) {
+        return -1;
+      }
+      sorted = Arrays.copyOf(samples, (int)Math.min(count, SAMPLE_COUNT));
+    }
+    Arrays.sort(sorted);
+    final int index = (int)Math.ceil(percentile / 100.0 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / (double)TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
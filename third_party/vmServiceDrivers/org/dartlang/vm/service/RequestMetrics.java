@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Round-trip statistics for the requests sent through a {@link VmService}.
+ */
+public class RequestMetrics {
+  /**
+   * Statistics for a single RPC method.
+   */
+  public static class MethodMetrics {
+    private final LatencySamples latencies = new LatencySamples();
+    private long timeoutCount;
+
+    void recordResponse(long elapsedNanos) {
+      latencies.add(elapsedNanos);
+    }
+
+    synchronized void recordTimeout() {
+      timeoutCount++;
+    }
+
+    /**
+     * Return the number of responses received for this method.
+     */
+    public long getCount() {
+      return latencies.getCount();
+    }
+
+    /**
+     * Return the number of requests for this method that timed out.
+     */
+    public synchronized long getTimeoutCount() {
+      return timeoutCount;
+    }
+
+    /**
+     * Return the given percentile (0 - 100) of the most recent round-trip times in milliseconds, or
+     * -1 if no responses have been received.
+     */
+    public double getLatencyPercentileMillis(double percentile) {
+      return latencies.getPercentileMillis(percentile);
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + getCount() +
+             ", p50=" + getLatencyPercentileMillis(50) + "ms" +
+             ", p99=" + getLatencyPercentileMillis(99) + "ms" +
+             ", timeouts=" + getTimeoutCount();
+    }
+  }
+
+  private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+  private final AtomicLong timeoutCount = new AtomicLong();
+  private final IntSupplier inFlightCount;
+
+  RequestMetrics(IntSupplier inFlightCount) {
+    this.inFlightCount = inFlightCount;
+  }
+
+  void recordResponse(String method, long elapsedNanos) {
+    getOrCreate(method).recordResponse(elapsedNanos);
+  }
+
+  void recordTimeout(String method) {
+    timeoutCount.incrementAndGet();
+    getOrCreate(method).recordTimeout();
+  }
+
+  /**
+   * Return the number of requests that have been sent but not yet answered.
+   */
+  public int getInFlightCount() {
+    return inFlightCount.getAsInt();
+  }
+
+  /**
+   * Return the total number of requests that timed out.
+   */
+  public long getTimeoutCount() {
+    return timeoutCount.get();
+  }
+
+  /**
+   * Return the statistics for the given method, or {@code null} if no request for that method has
+   * completed.
+   */
+  public MethodMetrics getMethodMetrics(String method) {
+    return methods.get(method);
+  }
+
+  /**
+   * Return a snapshot of the statistics for every method, sorted by method name.
+   */
+  public Map<String, MethodMetrics> getAllMethodMetrics() {
+    return new TreeMap<>(methods);
+  }
+
+  private MethodMetrics getOrCreate(String method) {
+    return methods.computeIfAbsent(method, (key) -> new MethodMetrics());
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder();
+    builder.append("inFlight=").append(getInFlightCount()).append(", timeouts=").append(getTimeoutCount());
+    for (Map.Entry<String, MethodMetrics> entry : getAllMethodMetrics().entrySet()) {
+      builder.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+    }
+    return builder.toString();
+  }
+}
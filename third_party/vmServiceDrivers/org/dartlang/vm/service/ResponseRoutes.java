@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service;
+
+import com.google.gson.JsonObject;
+import org.dartlang.vm.service.consumer.*;
+import org.dartlang.vm.service.element.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Delivers responses to consumers through a table computed once per consumer class, rather than the
+ * chain of {@code instanceof} and type comparisons in the generated
+ * {@link VmService#forwardResponse}, which is walked for every response.
+ * <p>
+ * This is hand-written so that {@link VmService} can be regenerated unchanged. The routes mirror the
+ * generated chain, in the same order; responses it doesn't know, such as types added to the protocol
+ * later, fall back to the generated code.
+ */
+final class ResponseRoutes {
+  /**
+   * Delivers a typed response element to a consumer.
+   */
+  private interface ResponseHandler {
+    void handle(Consumer consumer, Element response);
+  }
+
+  /**
+   * Associates a consumer interface and response type with the handler that delivers that response.
+   */
+  private record ResponseRoute(Class<? extends Consumer> consumerType, String responseType, ResponseHandler handler) {
+  }
+
+  /**
+   * Factories for the typed element of each response type.
+   */
+  private static final Map<String, Function<JsonObject, Element>> RESPONSE_FACTORIES = new HashMap<>();
+
+  static {
+    RESPONSE_FACTORIES.put("@Error", ErrorRef::new);
+    RESPONSE_FACTORIES.put("@Instance", InstanceRef::new);
+    RESPONSE_FACTORIES.put("@Null", NullRef::new);
+    RESPONSE_FACTORIES.put("AllocationProfile", AllocationProfile::new);
+    RESPONSE_FACTORIES.put("Breakpoint", Breakpoint::new);
+    RESPONSE_FACTORIES.put("Class", ClassObj::new);
+    RESPONSE_FACTORIES.put("ClassList", ClassList::new);
+    RESPONSE_FACTORIES.put("Code", Code::new);
+    RESPONSE_FACTORIES.put("Context", Context::new);
+    RESPONSE_FACTORIES.put("CpuSamples", CpuSamples::new);
+    RESPONSE_FACTORIES.put("Error", ErrorObj::new);
+    RESPONSE_FACTORIES.put("Field", Field::new);
+    RESPONSE_FACTORIES.put("FlagList", FlagList::new);
+    RESPONSE_FACTORIES.put("Function", Func::new);
+    RESPONSE_FACTORIES.put("InboundReferences", InboundReferences::new);
+    RESPONSE_FACTORIES.put("Instance", Instance::new);
+    RESPONSE_FACTORIES.put("InstanceSet", InstanceSet::new);
+    RESPONSE_FACTORIES.put("Isolate", Isolate::new);
+    RESPONSE_FACTORIES.put("IsolateGroup", IsolateGroup::new);
+    RESPONSE_FACTORIES.put("Library", Library::new);
+    RESPONSE_FACTORIES.put("MemoryUsage", MemoryUsage::new);
+    RESPONSE_FACTORIES.put("Null", Null::new);
+    RESPONSE_FACTORIES.put("Object", Obj::new);
+    RESPONSE_FACTORIES.put("PortList", PortList::new);
+    RESPONSE_FACTORIES.put("ProcessMemoryUsage", ProcessMemoryUsage::new);
+    RESPONSE_FACTORIES.put("ProtocolList", ProtocolList::new);
+    RESPONSE_FACTORIES.put("ReloadReport", ReloadReport::new);
+    RESPONSE_FACTORIES.put("RetainingPath", RetainingPath::new);
+    RESPONSE_FACTORIES.put("Script", Script::new);
+    RESPONSE_FACTORIES.put("ScriptList", ScriptList::new);
+    RESPONSE_FACTORIES.put("Sentinel", Sentinel::new);
+    RESPONSE_FACTORIES.put("SourceReport", SourceReport::new);
+    RESPONSE_FACTORIES.put("Stack", Stack::new);
+    RESPONSE_FACTORIES.put("Success", Success::new);
+    RESPONSE_FACTORIES.put("Timeline", Timeline::new);
+    RESPONSE_FACTORIES.put("TimelineFlags", TimelineFlags::new);
+    RESPONSE_FACTORIES.put("Timestamp", Timestamp::new);
+    RESPONSE_FACTORIES.put("TypeArguments", TypeArguments::new);
+    RESPONSE_FACTORIES.put("UriList", UriList::new);
+    RESPONSE_FACTORIES.put("VM", VM::new);
+    RESPONSE_FACTORIES.put("Version", Version::new);
+  }
+
+  /**
+   * The consumer interface and response type pairs, in order of precedence.
+   */
+  private static final ResponseRoute[] RESPONSE_ROUTES = {
+    new ResponseRoute(AddBreakpointAtEntryConsumer.class, "Breakpoint",
+                      (consumer, response) -> ((AddBreakpointAtEntryConsumer) consumer).received((Breakpoint) response)),
+    new ResponseRoute(AddBreakpointAtEntryConsumer.class, "Sentinel",
+                      (consumer, response) -> ((AddBreakpointAtEntryConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(AddBreakpointConsumer.class, "Breakpoint",
+                      (consumer, response) -> ((AddBreakpointConsumer) consumer).received((Breakpoint) response)),
+    new ResponseRoute(AddBreakpointConsumer.class, "Sentinel",
+                      (consumer, response) -> ((AddBreakpointConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(AddBreakpointWithScriptUriConsumer.class, "Breakpoint",
+                      (consumer, response) -> ((AddBreakpointWithScriptUriConsumer) consumer).received((Breakpoint) response)),
+    new ResponseRoute(AddBreakpointWithScriptUriConsumer.class, "Sentinel",
+                      (consumer, response) -> ((AddBreakpointWithScriptUriConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(BreakpointConsumer.class, "Breakpoint",
+                      (consumer, response) -> ((BreakpointConsumer) consumer).received((Breakpoint) response)),
+    new ResponseRoute(ClearCpuSamplesConsumer.class, "Sentinel",
+                      (consumer, response) -> ((ClearCpuSamplesConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(ClearCpuSamplesConsumer.class, "Success",
+                      (consumer, response) -> ((ClearCpuSamplesConsumer) consumer).received((Success) response)),
+    new ResponseRoute(CpuSamplesConsumer.class, "CpuSamples",
+                      (consumer, response) -> ((CpuSamplesConsumer) consumer).received((CpuSamples) response)),
+    new ResponseRoute(EvaluateConsumer.class, "@Error",
+                      (consumer, response) -> ((EvaluateConsumer) consumer).received((ErrorRef) response)),
+    new ResponseRoute(EvaluateConsumer.class, "@Instance",
+                      (consumer, response) -> ((EvaluateConsumer) consumer).received((InstanceRef) response)),
+    new ResponseRoute(EvaluateConsumer.class, "@Null",
+                      (consumer, response) -> ((EvaluateConsumer) consumer).received((NullRef) response)),
+    new ResponseRoute(EvaluateConsumer.class, "Sentinel",
+                      (consumer, response) -> ((EvaluateConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(EvaluateInFrameConsumer.class, "@Error",
+                      (consumer, response) -> ((EvaluateInFrameConsumer) consumer).received((ErrorRef) response)),
+    new ResponseRoute(EvaluateInFrameConsumer.class, "@Instance",
+                      (consumer, response) -> ((EvaluateInFrameConsumer) consumer).received((InstanceRef) response)),
+    new ResponseRoute(EvaluateInFrameConsumer.class, "@Null",
+                      (consumer, response) -> ((EvaluateInFrameConsumer) consumer).received((NullRef) response)),
+    new ResponseRoute(EvaluateInFrameConsumer.class, "Sentinel",
+                      (consumer, response) -> ((EvaluateInFrameConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(FlagListConsumer.class, "FlagList",
+                      (consumer, response) -> ((FlagListConsumer) consumer).received((FlagList) response)),
+    new ResponseRoute(GetAllocationProfileConsumer.class, "AllocationProfile",
+                      (consumer, response) -> ((GetAllocationProfileConsumer) consumer).received((AllocationProfile) response)),
+    new ResponseRoute(GetAllocationProfileConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetAllocationProfileConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetClassListConsumer.class, "ClassList",
+                      (consumer, response) -> ((GetClassListConsumer) consumer).received((ClassList) response)),
+    new ResponseRoute(GetClassListConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetClassListConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetCpuSamplesConsumer.class, "CpuSamples",
+                      (consumer, response) -> ((GetCpuSamplesConsumer) consumer).received((CpuSamples) response)),
+    new ResponseRoute(GetCpuSamplesConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetCpuSamplesConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetInboundReferencesConsumer.class, "InboundReferences",
+                      (consumer, response) -> ((GetInboundReferencesConsumer) consumer).received((InboundReferences) response)),
+    new ResponseRoute(GetInboundReferencesConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetInboundReferencesConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetInstancesAsListConsumer.class, "@Instance",
+                      (consumer, response) -> ((GetInstancesAsListConsumer) consumer).received((InstanceRef) response)),
+    new ResponseRoute(GetInstancesAsListConsumer.class, "@Null",
+                      (consumer, response) -> ((GetInstancesAsListConsumer) consumer).received((NullRef) response)),
+    new ResponseRoute(GetInstancesAsListConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetInstancesAsListConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetInstancesConsumer.class, "InstanceSet",
+                      (consumer, response) -> ((GetInstancesConsumer) consumer).received((InstanceSet) response)),
+    new ResponseRoute(GetInstancesConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetInstancesConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetIsolateConsumer.class, "Isolate",
+                      (consumer, response) -> ((GetIsolateConsumer) consumer).received((Isolate) response)),
+    new ResponseRoute(GetIsolateConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetIsolateConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetIsolateGroupConsumer.class, "IsolateGroup",
+                      (consumer, response) -> ((GetIsolateGroupConsumer) consumer).received((IsolateGroup) response)),
+    new ResponseRoute(GetIsolateGroupConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetIsolateGroupConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetIsolateGroupMemoryUsageConsumer.class, "MemoryUsage",
+                      (consumer, response) -> ((GetIsolateGroupMemoryUsageConsumer) consumer).received((MemoryUsage) response)),
+    new ResponseRoute(GetIsolateGroupMemoryUsageConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetIsolateGroupMemoryUsageConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetMemoryUsageConsumer.class, "MemoryUsage",
+                      (consumer, response) -> ((GetMemoryUsageConsumer) consumer).received((MemoryUsage) response)),
+    new ResponseRoute(GetMemoryUsageConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetMemoryUsageConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Breakpoint",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((Breakpoint) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Class",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((ClassObj) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Code",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((Code) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Context",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((Context) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Error",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((ErrorObj) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Field",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((Field) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Function",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((Func) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Instance",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((Instance) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Library",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((Library) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Null",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((Null) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Object",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((Obj) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Script",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((Script) response)),
+    new ResponseRoute(GetObjectConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetObjectConsumer.class, "TypeArguments",
+                      (consumer, response) -> ((GetObjectConsumer) consumer).received((TypeArguments) response)),
+    new ResponseRoute(GetRetainingPathConsumer.class, "RetainingPath",
+                      (consumer, response) -> ((GetRetainingPathConsumer) consumer).received((RetainingPath) response)),
+    new ResponseRoute(GetRetainingPathConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetRetainingPathConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetScriptsConsumer.class, "ScriptList",
+                      (consumer, response) -> ((GetScriptsConsumer) consumer).received((ScriptList) response)),
+    new ResponseRoute(GetScriptsConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetScriptsConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetSourceReportConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetSourceReportConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetSourceReportConsumer.class, "SourceReport",
+                      (consumer, response) -> ((GetSourceReportConsumer) consumer).received((SourceReport) response)),
+    new ResponseRoute(GetStackConsumer.class, "Sentinel",
+                      (consumer, response) -> ((GetStackConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(GetStackConsumer.class, "Stack",
+                      (consumer, response) -> ((GetStackConsumer) consumer).received((Stack) response)),
+    new ResponseRoute(InvokeConsumer.class, "@Error",
+                      (consumer, response) -> ((InvokeConsumer) consumer).received((ErrorRef) response)),
+    new ResponseRoute(InvokeConsumer.class, "@Instance",
+                      (consumer, response) -> ((InvokeConsumer) consumer).received((InstanceRef) response)),
+    new ResponseRoute(InvokeConsumer.class, "@Null",
+                      (consumer, response) -> ((InvokeConsumer) consumer).received((NullRef) response)),
+    new ResponseRoute(InvokeConsumer.class, "Sentinel",
+                      (consumer, response) -> ((InvokeConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(KillConsumer.class, "Sentinel",
+                      (consumer, response) -> ((KillConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(KillConsumer.class, "Success",
+                      (consumer, response) -> ((KillConsumer) consumer).received((Success) response)),
+    new ResponseRoute(PauseConsumer.class, "Sentinel",
+                      (consumer, response) -> ((PauseConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(PauseConsumer.class, "Success",
+                      (consumer, response) -> ((PauseConsumer) consumer).received((Success) response)),
+    new ResponseRoute(PortListConsumer.class, "PortList",
+                      (consumer, response) -> ((PortListConsumer) consumer).received((PortList) response)),
+    new ResponseRoute(ProcessMemoryUsageConsumer.class, "ProcessMemoryUsage",
+                      (consumer, response) -> ((ProcessMemoryUsageConsumer) consumer).received((ProcessMemoryUsage) response)),
+    new ResponseRoute(ProtocolListConsumer.class, "ProtocolList",
+                      (consumer, response) -> ((ProtocolListConsumer) consumer).received((ProtocolList) response)),
+    new ResponseRoute(ReloadSourcesConsumer.class, "ReloadReport",
+                      (consumer, response) -> ((ReloadSourcesConsumer) consumer).received((ReloadReport) response)),
+    new ResponseRoute(ReloadSourcesConsumer.class, "Sentinel",
+                      (consumer, response) -> ((ReloadSourcesConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(RemoveBreakpointConsumer.class, "Sentinel",
+                      (consumer, response) -> ((RemoveBreakpointConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(RemoveBreakpointConsumer.class, "Success",
+                      (consumer, response) -> ((RemoveBreakpointConsumer) consumer).received((Success) response)),
+    new ResponseRoute(RequestHeapSnapshotConsumer.class, "Sentinel",
+                      (consumer, response) -> ((RequestHeapSnapshotConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(RequestHeapSnapshotConsumer.class, "Success",
+                      (consumer, response) -> ((RequestHeapSnapshotConsumer) consumer).received((Success) response)),
+    new ResponseRoute(ResumeConsumer.class, "Sentinel",
+                      (consumer, response) -> ((ResumeConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(ResumeConsumer.class, "Success",
+                      (consumer, response) -> ((ResumeConsumer) consumer).received((Success) response)),
+    new ResponseRoute(SetExceptionPauseModeConsumer.class, "Sentinel",
+                      (consumer, response) -> ((SetExceptionPauseModeConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(SetExceptionPauseModeConsumer.class, "Success",
+                      (consumer, response) -> ((SetExceptionPauseModeConsumer) consumer).received((Success) response)),
+    new ResponseRoute(SetFlagConsumer.class, "Error",
+                      (consumer, response) -> ((SetFlagConsumer) consumer).received((ErrorObj) response)),
+    new ResponseRoute(SetFlagConsumer.class, "Success",
+                      (consumer, response) -> ((SetFlagConsumer) consumer).received((Success) response)),
+    new ResponseRoute(SetIsolatePauseModeConsumer.class, "Sentinel",
+                      (consumer, response) -> ((SetIsolatePauseModeConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(SetIsolatePauseModeConsumer.class, "Success",
+                      (consumer, response) -> ((SetIsolatePauseModeConsumer) consumer).received((Success) response)),
+    new ResponseRoute(SetLibraryDebuggableConsumer.class, "Sentinel",
+                      (consumer, response) -> ((SetLibraryDebuggableConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(SetLibraryDebuggableConsumer.class, "Success",
+                      (consumer, response) -> ((SetLibraryDebuggableConsumer) consumer).received((Success) response)),
+    new ResponseRoute(SetNameConsumer.class, "Sentinel",
+                      (consumer, response) -> ((SetNameConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(SetNameConsumer.class, "Success",
+                      (consumer, response) -> ((SetNameConsumer) consumer).received((Success) response)),
+    new ResponseRoute(SetTraceClassAllocationConsumer.class, "Sentinel",
+                      (consumer, response) -> ((SetTraceClassAllocationConsumer) consumer).received((Sentinel) response)),
+    new ResponseRoute(SetTraceClassAllocationConsumer.class, "Success",
+                      (consumer, response) -> ((SetTraceClassAllocationConsumer) consumer).received((Success) response)),
+    new ResponseRoute(SuccessConsumer.class, "Success",
+                      (consumer, response) -> ((SuccessConsumer) consumer).received((Success) response)),
+    new ResponseRoute(TimelineConsumer.class, "Timeline",
+                      (consumer, response) -> ((TimelineConsumer) consumer).received((Timeline) response)),
+    new ResponseRoute(TimelineFlagsConsumer.class, "TimelineFlags",
+                      (consumer, response) -> ((TimelineFlagsConsumer) consumer).received((TimelineFlags) response)),
+    new ResponseRoute(TimestampConsumer.class, "Timestamp",
+                      (consumer, response) -> ((TimestampConsumer) consumer).received((Timestamp) response)),
+    new ResponseRoute(UriListConsumer.class, "UriList",
+                      (consumer, response) -> ((UriListConsumer) consumer).received((UriList) response)),
+    new ResponseRoute(VMConsumer.class, "VM",
+                      (consumer, response) -> ((VMConsumer) consumer).received((VM) response)),
+    new ResponseRoute(VersionConsumer.class, "Version",
+                      (consumer, response) -> ((VersionConsumer) consumer).received((Version) response))
+  };
+
+  /**
+   * The response handlers for each concrete consumer class by response type. When a consumer
+   * implements several interfaces accepting the same response type, the earliest route wins. The
+   * handlers for a class are computed on first use and then shared.
+   */
+  private static final ClassValue<Map<String, ResponseHandler>> RESPONSE_HANDLERS = new ClassValue<>() {
+    @Override
+    protected Map<String, ResponseHandler> computeValue(Class<?> consumerClass) {
+      final Map<String, ResponseHandler> handlers = new HashMap<>();
+      for (ResponseRoute route : RESPONSE_ROUTES) {
+        if (route.consumerType().isAssignableFrom(consumerClass)) {
+          handlers.putIfAbsent(route.responseType(), route.handler());
+        }
+      }
+      return handlers;
+    }
+  };
+
+  private ResponseRoutes() {
+  }
+
+  /**
+   * Deliver the response to the consumer if there is a route for it.
+   *
+   * @return {@code false} if there is no route, so the generated code should handle the response
+   */
+  static boolean forward(Consumer consumer, String responseType, JsonObject json) {
+    final ResponseHandler handler = RESPONSE_HANDLERS.get(consumer.getClass()).get(responseType);
+    if (handler == null) {
+      return false;
+    }
+    handler.handle(consumer, RESPONSE_FACTORIES.get(responseType).apply(json));
+    return true;
+  }
+}
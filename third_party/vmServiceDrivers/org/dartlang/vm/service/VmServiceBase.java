@@ -17,24 +17,34 @@ import com.google.common.collect.Maps;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import de.roderick.weberknecht.WebSocket;
 import de.roderick.weberknecht.WebSocketEventHandler;
 import de.roderick.weberknecht.WebSocketException;
 import de.roderick.weberknecht.WebSocketMessage;
 import org.dartlang.vm.service.consumer.*;
 import org.dartlang.vm.service.element.*;
+import org.dartlang.vm.service.internal.PendingRequests;
 import org.dartlang.vm.service.internal.RequestSink;
 import org.dartlang.vm.service.internal.VmServiceConst;
 import org.dartlang.vm.service.internal.WebSocketRequestSink;
 import org.dartlang.vm.service.logging.Logging;
+import org.dartlang.vm.service.logging.WireTap;
 
 import java.io.IOException;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -83,9 +93,11 @@ abstract class VmServiceBase implements VmServiceConst {
 
       @Override
       public void onMessage(WebSocketMessage message) {
-        Logging.getLogger().logInformation("VM message: " + message.getText());
+        final String text = message.getText();
+        vmService.wireTap.received(text);
+        Logging.getLogger().logInformation(() -> "VM message: " + text);
         try {
-          vmService.processMessage(message.getText());
+          vmService.processMessage(text);
         }
         catch (Exception e) {
           Logging.getLogger().logError(e.getMessage(), e);
@@ -120,7 +132,7 @@ abstract class VmServiceBase implements VmServiceConst {
       // (de.roderick.weberknecht.WebSocket.connect, WebSocket.java:126).
       throw new IOException("Failed to connect: " + url, e);
     }
-    vmService.requestSink = new WebSocketRequestSink(webSocket);
+    vmService.requestSink = new WebSocketRequestSink(webSocket, vmService.wireTap);
 
     // Check protocol version
     final CountDownLatch latch = new CountDownLatch(1);
@@ -169,15 +181,72 @@ abstract class VmServiceBase implements VmServiceConst {
   }
 
   /**
-   * A mapping between {@link String} ids' and the associated {@link Consumer} that was passed when
-   * the request was made. Synchronize against {@link #consumerMapLock} before accessing this field.
+   * The number of milliseconds to wait for a response to a request in {@link #TIMED_METHODS}
+   * before it fails with {@link RPCError#REQUEST_TIMEOUT}.
    */
-  private final Map<String, Consumer> consumerMap = Maps.newHashMap();
+  public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 60000;
 
   /**
-   * The object used to synchronize access to {@link #consumerMap}.
+   * The methods that time out unless configured otherwise. They only read or update VM state and
+   * are answered promptly by a healthy VM. Other requests, such as evaluations, invocations,
+   * reloads and heap snapshots, can legitimately take much longer and wait indefinitely unless a
+   * timeout is set for them.
    */
-  private final Object consumerMapLock = new Object();
+  private static final Set<String> TIMED_METHODS = Set.of(
+    "addBreakpoint",
+    "addBreakpointAtEntry",
+    "addBreakpointWithScriptUri",
+    "getIsolate",
+    "getIsolateGroup",
+    "getVM",
+    "getVersion",
+    "lookupPackageUris",
+    "lookupResolvedPackageUris",
+    "removeBreakpoint",
+    "setExceptionPauseMode",
+    "setIsolatePauseMode",
+    "streamCancel",
+    "streamListen"
+  );
+
+  /**
+   * How often pending requests are checked for expired deadlines.
+   */
+  private static final long TIMEOUT_CHECK_INTERVAL_MILLIS = 500;
+
+  /**
+   * The scheduler shared by all connections for expiring pending requests.
+   */
+  private static final ScheduledExecutorService timeoutScheduler = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+    final Thread thread = new Thread(runnable, "VM service request timeouts");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * The requests that have been sent but not yet answered, keyed by request id.
+   */
+  private final PendingRequests pendingRequests = new PendingRequests();
+
+  private final RequestMetrics requestMetrics = new RequestMetrics(pendingRequests::size);
+
+  /**
+   * The timeout of methods without a method specific timeout; zero, so they wait indefinitely,
+   * unless set by {@link #setDefaultRequestTimeout(long)}.
+   */
+  private volatile long defaultRequestTimeoutMillis;
+
+  /**
+   * Per-method overrides of {@link #defaultRequestTimeoutMillis}.
+   */
+  private final Map<String, Long> requestTimeoutMillis =
+    new ConcurrentHashMap<>(Maps.asMap(TIMED_METHODS, (method) -> DEFAULT_REQUEST_TIMEOUT_MILLIS));
+
+  /**
+   * The periodic task expiring pending requests, or {@code null} if no pending request has a
+   * deadline. Synchronize against {@link #pendingRequests} before accessing this field.
+   */
+  private ScheduledFuture<?> timeoutCheck;
 
   /**
    * The unique ID for the next request.
@@ -199,6 +268,11 @@ abstract class VmServiceBase implements VmServiceConst {
    */
   RequestSink requestSink;
 
+  /**
+   * The most recent messages exchanged with the VM.
+   */
+  final WireTap wireTap = new WireTap();
+
   Version runtimeVersion;
 
   /**
@@ -236,11 +310,57 @@ abstract class VmServiceBase implements VmServiceConst {
     return runtimeVersion;
   }
 
+  /**
+   * Return the buffer of the most recent messages exchanged with the VM.
+   */
+  public WireTap getWireTap() {
+    return wireTap;
+  }
+
+  /**
+   * Return the round-trip statistics for requests made through this connection.
+   */
+  public RequestMetrics getRequestMetrics() {
+    return requestMetrics;
+  }
+
+  /**
+   * Set the number of milliseconds to wait for a response to any request that does not have a
+   * method specific timeout. A value of zero or less, the default, disables the timeout.
+   */
+  public void setDefaultRequestTimeout(long timeoutMillis) {
+    defaultRequestTimeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Set the number of milliseconds to wait for a response to requests for the given method. A value
+   * of zero or less disables the timeout for that method.
+   */
+  public void setRequestTimeout(String method, long timeoutMillis) {
+    requestTimeoutMillis.put(method, timeoutMillis);
+  }
+
+  /**
+   * Cancel the request with the given id. The request's consumer is notified with an
+   * {@link RPCError#REQUEST_CANCELLED} error and any later response is ignored.
+   *
+   * @return {@code true} if the request was still waiting for a response
+   */
+  public boolean cancelRequest(int id) {
+    final PendingRequests.Request request = pendingRequests.remove(id);
+    if (request == null) {
+      return false;
+    }
+    notifyError(request, RPCError.cancelled(request.method, "cancelled by client"));
+    return true;
+  }
+
   /**
    * Disconnect from the VM observatory service.
    */
   public void disconnect() {
     requestSink.close();
+    cancelPendingRequests("disconnected");
   }
 
   /**
@@ -324,25 +444,83 @@ abstract class VmServiceBase implements VmServiceConst {
 
   /**
    * Sends the request and associates the request with the passed {@link Consumer}.
+   *
+   * @return the id of the request, which can be passed to {@link #cancelRequest(int)}
    */
-  protected void request(String method, JsonObject params, Consumer consumer) {
+  protected int request(String method, JsonObject params, Consumer consumer) {
 
     // Assemble the request
-    String id = Integer.toString(nextId.incrementAndGet());
+    final int id = nextId.incrementAndGet();
     JsonObject request = new JsonObject();
 
     request.addProperty(JSONRPC, JSONRPC_VERSION);
-    request.addProperty(ID, id);
+    request.addProperty(ID, Integer.toString(id));
     request.addProperty(METHOD, method);
     request.add(PARAMS, params);
 
     // Cache the consumer to receive the response
-    synchronized (consumerMapLock) {
-      consumerMap.put(id, consumer);
+    final long now = System.nanoTime();
+    final long timeoutMillis = requestTimeoutMillis.getOrDefault(method, defaultRequestTimeoutMillis);
+    final long deadline = timeoutMillis > 0 ? now + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : Long.MAX_VALUE;
+    pendingRequests.add(new PendingRequests.Request(id, method, consumer, now, deadline));
+    if (deadline != Long.MAX_VALUE) {
+      startTimeoutCheck();
     }
 
     // Send the request
     requestSink.add(request);
+    return id;
+  }
+
+  private void startTimeoutCheck() {
+    synchronized (pendingRequests) {
+      if (timeoutCheck == null) {
+        timeoutCheck = timeoutScheduler.scheduleWithFixedDelay(
+          this::expirePendingRequests, TIMEOUT_CHECK_INTERVAL_MILLIS, TIMEOUT_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  private void stopTimeoutCheck() {
+    synchronized (pendingRequests) {
+      if (timeoutCheck != null) {
+        timeoutCheck.cancel(false);
+        timeoutCheck = null;
+      }
+    }
+  }
+
+  private void expirePendingRequests() {
+    for (PendingRequests.Request request : pendingRequests.removeExpired(System.nanoTime())) {
+      requestMetrics.recordTimeout(request.method);
+      final long timeoutMillis = TimeUnit.NANOSECONDS.toMillis(request.deadlineNanos - request.startNanos);
+      notifyError(request, RPCError.timeout(request.method, timeoutMillis));
+    }
+    synchronized (pendingRequests) {
+      // A request added after this check restarts the sweep, since it synchronizes on the same lock.
+      if (!pendingRequests.hasDeadlines()) {
+        stopTimeoutCheck();
+      }
+    }
+  }
+
+  /**
+   * Fail every request that is still waiting for a response.
+   */
+  private void cancelPendingRequests(String reason) {
+    stopTimeoutCheck();
+    for (PendingRequests.Request request : pendingRequests.removeAll()) {
+      notifyError(request, RPCError.cancelled(request.method, reason));
+    }
+  }
+
+  private static void notifyError(PendingRequests.Request request, RPCError error) {
+    try {
+      request.consumer.onError(error);
+    }
+    catch (Exception e) {
+      Logging.getLogger().logError("Exception notifying consumer of " + request.method, e);
+    }
   }
 
   public void connectionOpened() {
@@ -368,6 +546,8 @@ abstract class VmServiceBase implements VmServiceConst {
   }
 
   public void connectionClosed() {
+    cancelPendingRequests("connection closed");
+
     for (VmServiceListener listener : new ArrayList<>(vmListeners)) {
       try {
         listener.connectionClosed();
@@ -403,12 +583,16 @@ abstract class VmServiceBase implements VmServiceConst {
     // Decode the JSON
     JsonObject json;
     try {
-      json = (JsonObject)JsonParser.parseString(jsonText);
+      json = decodeMessage(jsonText);
     }
     catch (Exception e) {
       Logging.getLogger().logError("Parse message failed: " + jsonText, e);
       return;
     }
+    if (json == null) {
+      // An event for a stream that no listener is interested in.
+      return;
+    }
 
     if (json.has("method")) {
       if (!json.has(PARAMS)) {
@@ -438,6 +622,101 @@ abstract class VmServiceBase implements VmServiceConst {
     }
   }
 
+  /**
+   * Decode the top level of a message with a pull parser, building a {@link JsonObject} that only
+   * contains the members needed to route it. The payload of a stream event is skipped when no
+   * listener is interested in the stream, and the result of a response is skipped when the request
+   * is no longer pending.
+   * <p>
+   * Members may arrive in any order. A payload is only skipped once the members that decide whether
+   * it's needed have been read, which is the case for messages sent by the VM; otherwise it's
+   * decoded, and an event for a stream nobody listens to is dropped once the whole message is read.
+   *
+   * @return the decoded message, or {@code null} if the message is an event that nobody listens to
+   */
+  private JsonObject decodeMessage(String jsonText) throws IOException {
+    final JsonReader reader = new JsonReader(new StringReader(jsonText));
+    reader.setLenient(true);
+
+    final JsonObject json = new JsonObject();
+    boolean skippedEvent = false;
+    reader.beginObject();
+    while (reader.hasNext()) {
+      final String name = reader.nextName();
+      if (JSONRPC.equals(name)) {
+        reader.skipValue();
+      }
+      else if (PARAMS.equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT && isStreamNotify(json)) {
+        final JsonObject params = new JsonObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+          final String paramName = reader.nextName();
+          if (EVENT.equals(paramName) && params.has(STREAM_ID) && !hasInterestedListener(params.get(STREAM_ID))) {
+            reader.skipValue();
+            skippedEvent = true;
+          }
+          else {
+            params.add(paramName, JsonParser.parseReader(reader));
+          }
+        }
+        reader.endObject();
+        json.add(PARAMS, params);
+      }
+      else if (RESULT.equals(name) && !isPending(json.get(ID))) {
+        // Keep a placeholder so the message is still recognized as a response.
+        reader.skipValue();
+        json.add(RESULT, new JsonObject());
+      }
+      else {
+        json.add(name, JsonParser.parseReader(reader));
+      }
+    }
+    reader.endObject();
+    if (skippedEvent || isStreamNotify(json) && !hasInterestedListener(getStreamId(json))) {
+      return null;
+    }
+    return json;
+  }
+
+  private static JsonElement getStreamId(JsonObject json) {
+    final JsonElement params = json.get(PARAMS);
+    return params != null && params.isJsonObject() ? params.getAsJsonObject().get(STREAM_ID) : null;
+  }
+
+  private static boolean isStreamNotify(JsonObject json) {
+    final JsonElement method = json.get(METHOD);
+    return method != null && method.isJsonPrimitive() && "streamNotify".equals(method.getAsString());
+  }
+
+  private boolean hasInterestedListener(JsonElement streamIdElem) {
+    if (streamIdElem == null || !streamIdElem.isJsonPrimitive()) {
+      // The stream is not known yet; decode the event.
+      return true;
+    }
+    final String streamId = streamIdElem.getAsString();
+    for (VmServiceListener listener : new ArrayList<>(vmListeners)) {
+      if (listener.isInterestedIn(streamId)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Return {@code false} if the given id is known and no request with that id is pending.
+   */
+  private boolean isPending(JsonElement idElem) {
+    if (idElem == null) {
+      return true;
+    }
+    try {
+      return pendingRequests.contains(idElem.getAsInt());
+    }
+    catch (Exception e) {
+      return true;
+    }
+  }
+
   void processRequest(JsonObject json) {
     final JsonObject response = new JsonObject();
     response.addProperty(JSONRPC, JSONRPC_VERSION);
@@ -607,19 +886,22 @@ abstract class VmServiceBase implements VmServiceConst {
     }
 
     // Get the consumer associated with this response
-    String id;
+    int id;
     try {
-      id = idElem.getAsString();
+      id = idElem.getAsInt();
     }
     catch (Exception e) {
       Logging.getLogger().logError("Response missing " + ID, e);
       return;
     }
-    Consumer consumer = consumerMap.remove(id);
-    if (consumer == null) {
-      Logging.getLogger().logError("No consumer associated with " + ID + ": " + id);
+    final PendingRequests.Request request = pendingRequests.remove(id);
+    if (request == null) {
+      // The request may have timed out or been cancelled.
+      Logging.getLogger().logInformation("No consumer associated with " + ID + ": " + id);
       return;
     }
+    requestMetrics.recordResponse(request.method, System.nanoTime() - request.startNanos);
+    Consumer consumer = request.consumer;
 
     // Forward the response if the request was successfully executed
     JsonElement resultElem = json.get(RESULT);
@@ -641,7 +923,9 @@ abstract class VmServiceBase implements VmServiceConst {
         Logging.getLogger().logError("Response missing " + TYPE + ": " + result);
         return;
       }
-      forwardResponse(consumer, responseType, result);
+      if (!ResponseRoutes.forward(consumer, responseType, result)) {
+        forwardResponse(consumer, responseType, result);
+      }
       return;
     }
 
@@ -29,5 +29,13 @@ public interface VmServiceListener {
    */
   void received(String streamId, Event event);
 
+  /**
+   * Return {@code false} if this listener ignores all events from the given stream. Events from
+   * streams that no listener is interested in are skipped without being decoded.
+   */
+  default boolean isInterestedIn(String streamId) {
+    return true;
+  }
+
   void connectionClosed();
 }
@@ -59,6 +59,36 @@ public class RPCError extends Element implements VmServiceConst {
    */
   public static final int UNEXPECTED_RESPONSE = 5;
 
+  /**
+   * The response code used by the client when the server did not respond to a request before the
+   * request's deadline expired.
+   */
+  public static final int REQUEST_TIMEOUT = 6;
+
+  /**
+   * The response code used by the client when a request was cancelled before a response arrived,
+   * either explicitly or because the connection to the server was closed.
+   */
+  public static final int REQUEST_CANCELLED = 7;
+
+  public static RPCError timeout(String method, long timeoutMillis) {
+    return clientError(REQUEST_TIMEOUT, "Request " + method + " timed out after " + timeoutMillis + "ms");
+  }
+
+  public static RPCError cancelled(String method, String reason) {
+    return clientError(REQUEST_CANCELLED, "Request " + method + " cancelled: " + reason);
+  }
+
+  private static RPCError clientError(int code, String errMsg) {
+    JsonObject json = new JsonObject();
+    json.addProperty("code", code);
+    json.addProperty("message", errMsg);
+    JsonObject data = new JsonObject();
+    data.addProperty("details", errMsg);
+    json.add("data", data);
+    return new RPCError(json);
+  }
+
   public static RPCError unexpected(String expectedType, Response response) {
     String errMsg = "Expected type " + expectedType + " but received " + response.getType();
     if (response instanceof Sentinel) {
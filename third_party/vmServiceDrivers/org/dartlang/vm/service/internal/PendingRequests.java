@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.internal;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMaps;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import org.dartlang.vm.service.consumer.Consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A table of requests that have been sent to the VM but not yet answered, keyed by the integer
+ * request id.
+ * <p>
+ * The table is split into a fixed number of stripes, each guarded by its own monitor, so that the
+ * thread sending requests and the thread receiving responses rarely contend for the same lock.
+ */
+public class PendingRequests {
+  /**
+   * A request that is waiting for a response.
+   */
+  public static final class Request {
+    public final int id;
+    public final String method;
+    public final Consumer consumer;
+    public final long startNanos;
+
+    /**
+     * The {@link System#nanoTime()} after which the request is considered timed out, or
+     * {@link Long#MAX_VALUE} if the request never times out.
+     */
+    public final long deadlineNanos;
+
+    public Request(int id, String method, Consumer consumer, long startNanos, long deadlineNanos) {
+      this.id = id;
+      this.method = method;
+      this.consumer = consumer;
+      this.startNanos = startNanos;
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    public boolean hasDeadline() {
+      return deadlineNanos != Long.MAX_VALUE;
+    }
+
+    public boolean isExpired(long nowNanos) {
+      return hasDeadline() && deadlineNanos - nowNanos <= 0;
+    }
+  }
+
+  private static final int STRIPE_COUNT = 16;
+
+  private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * The number of requests in the table that have a deadline.
+   */
+  private final AtomicInteger deadlineCount = new AtomicInteger();
+
+  public PendingRequests() {
+    for (int i = 0; i < STRIPE_COUNT; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  /**
+   * Add the given request to the table, replacing any request with the same id.
+   */
+  public void add(Request request) {
+    final Stripe stripe = stripeFor(request.id);
+    synchronized (stripe) {
+      final Request replaced = stripe.requests.put(request.id, request);
+      if (replaced == null) {
+        size.incrementAndGet();
+      }
+      else if (replaced.hasDeadline()) {
+        deadlineCount.decrementAndGet();
+      }
+      if (request.hasDeadline()) {
+        deadlineCount.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Remove and return the request with the given id, or {@code null} if there is no such request
+   * (for example because it already timed out or was cancelled).
+   */
+  public Request remove(int id) {
+    final Stripe stripe = stripeFor(id);
+    synchronized (stripe) {
+      final Request request = stripe.requests.remove(id);
+      if (request != null) {
+        removed(request);
+      }
+      return request;
+    }
+  }
+
+  /**
+   * Return {@code true} if a request with the given id is waiting for a response.
+   */
+  public boolean contains(int id) {
+    final Stripe stripe = stripeFor(id);
+    synchronized (stripe) {
+      return stripe.requests.containsKey(id);
+    }
+  }
+
+  /**
+   * Remove and return all requests whose deadline is at or before the given time.
+   */
+  public List<Request> removeExpired(long nowNanos) {
+    final List<Request> expired = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        final ObjectIterator<Int2ObjectMap.Entry<Request>> it = Int2ObjectMaps.fastIterator(stripe.requests);
+        while (it.hasNext()) {
+          final Request request = it.next().getValue();
+          if (request.isExpired(nowNanos)) {
+            it.remove();
+            removed(request);
+            expired.add(request);
+          }
+        }
+      }
+    }
+    return expired;
+  }
+
+  /**
+   * Remove and return all pending requests.
+   */
+  public List<Request> removeAll() {
+    final List<Request> removed = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        for (Request request : stripe.requests.values()) {
+          removed(request);
+          removed.add(request);
+        }
+        stripe.requests.clear();
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Return the number of requests waiting for a response.
+   */
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Return {@code true} if any request waiting for a response has a deadline.
+   */
+  public boolean hasDeadlines() {
+    return deadlineCount.get() > 0;
+  }
+
+  private void removed(Request request) {
+    size.decrementAndGet();
+    if (request.hasDeadline()) {
+      deadlineCount.decrementAndGet();
+    }
+  }
+
+  private Stripe stripeFor(int id) {
+    return stripes[id & (STRIPE_COUNT - 1)];
+  }
+
+  private static final class Stripe {
+    final Int2ObjectMap<Request> requests = new Int2ObjectOpenHashMap<>();
+  }
+}
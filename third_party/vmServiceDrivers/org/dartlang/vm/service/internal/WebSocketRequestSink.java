@@ -17,6 +17,7 @@ import com.google.gson.JsonObject;
 import de.roderick.weberknecht.WebSocket;
 import de.roderick.weberknecht.WebSocketException;
 import org.dartlang.vm.service.logging.Logging;
+import org.dartlang.vm.service.logging.WireTap;
 
 /**
  * An {@link WebSocket} based implementation of {@link RequestSink}.
@@ -25,18 +26,26 @@ public class WebSocketRequestSink implements RequestSink {
 
   private WebSocket webSocket;
 
+  private final WireTap wireTap;
+
   public WebSocketRequestSink(WebSocket webSocket) {
+    this(webSocket, new WireTap(0, 0));
+  }
+
+  public WebSocketRequestSink(WebSocket webSocket, WireTap wireTap) {
     this.webSocket = webSocket;
+    this.wireTap = wireTap;
   }
 
   @Override
   public void add(JsonObject json) {
     String request = json.toString();
     if (webSocket == null) {
-      Logging.getLogger().logInformation("Dropped: " + request);
+      Logging.getLogger().logInformation(() -> "Dropped: " + request);
       return;
     }
-    Logging.getLogger().logInformation("Sent: " + request);
+    wireTap.sent(request);
+    Logging.getLogger().logInformation(() -> "Sent: " + request);
     try {
       webSocket.send(request);
     } catch (WebSocketException e) {
@@ -13,6 +13,8 @@
  */
 package org.dartlang.vm.service.logging;
 
+import java.util.function.Supplier;
+
 /**
  * The interface {@code Logger} defines the behavior of objects that can be used to receive
  * information about errors. Implementations usually write this information to a file, but can also
@@ -20,10 +22,23 @@ package org.dartlang.vm.service.logging;
  */
 public interface Logger {
 
+  /**
+   * The severity of a logged message.
+   */
+  enum Level {
+    ERROR,
+    INFORMATION
+  }
+
   /**
    * Implementation of {@link Logger} that does nothing.
    */
   class NullLogger implements Logger {
+    @Override
+    public boolean isEnabled(Level level) {
+      return false;
+    }
+
     @Override
     public void logError(String message) {
     }
@@ -43,6 +58,14 @@ public interface Logger {
 
   Logger NULL = new NullLogger();
 
+  /**
+   * Return {@code true} if messages of the given level are recorded. Callers should check this
+   * before building expensive messages, or use the {@link Supplier} based methods.
+   */
+  default boolean isEnabled(Level level) {
+    return true;
+  }
+
   /**
    * Log the given message as an error.
    *
@@ -72,4 +95,27 @@ public interface Logger {
    * @param exception the exception being logged
    */
   void logInformation(String message, Throwable exception);
+
+  /**
+   * Log the given informational message, building it only if informational messages are enabled.
+   *
+   * @param message a supplier of an explanation of why the error occurred or what it means
+   */
+  default void logInformation(Supplier<String> message) {
+    if (isEnabled(Level.INFORMATION)) {
+      logInformation(message.get());
+    }
+  }
+
+  /**
+   * Log the given message as an error, building it only if errors are enabled.
+   *
+   * @param message   a supplier of an explanation of why the error occurred or what it means
+   * @param exception the exception being logged
+   */
+  default void logError(Supplier<String> message, Throwable exception) {
+    if (isEnabled(Level.ERROR)) {
+      logError(message.get(), exception);
+    }
+  }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.dartlang.vm.service.logging;
+
+/**
+ * A bounded ring buffer of the most recent messages sent to and received from the VM, which can be
+ * dumped on demand when diagnosing a problem.
+ * <p>
+ * Recording a message only stores a reference to it; messages are formatted when the buffer is
+ * dumped. The oldest messages are dropped when either the message or character limit is exceeded.
+ * Nothing is recorded until the tap is enabled.
+ */
+public class WireTap {
+  public static final int DEFAULT_MAX_MESSAGES = 200;
+  public static final int DEFAULT_MAX_CHARS = 1 << 20;
+
+  private final int maxMessages;
+  private final long maxChars;
+
+  private final String[] messages;
+  private final boolean[] outbound;
+  private final long[] timestamps;
+
+  /**
+   * The index of the oldest message.
+   */
+  private int head;
+  private int count;
+  private long chars;
+
+  private volatile boolean enabled;
+
+  public WireTap() {
+    this(DEFAULT_MAX_MESSAGES, DEFAULT_MAX_CHARS);
+  }
+
+  public WireTap(int maxMessages, long maxChars) {
+    this.maxMessages = maxMessages;
+    this.maxChars = maxChars;
+    messages = new String[maxMessages];
+    outbound = new boolean[maxMessages];
+    timestamps = new long[maxMessages];
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    if (!enabled) {
+      clear();
+    }
+  }
+
+  /**
+   * Record a message sent to the VM.
+   */
+  public void sent(String message) {
+    record(message, true);
+  }
+
+  /**
+   * Record a message received from the VM.
+   */
+  public void received(String message) {
+    record(message, false);
+  }
+
+  private synchronized void record(String message, boolean isOutbound) {
+    if (!enabled || maxMessages == 0 || message == null || message.length() > maxChars) {
+      return;
+    }
+    if (count == maxMessages) {
+      removeOldest();
+    }
+    final int index = (head + count) % maxMessages;
+    messages[index] = message;
+    outbound[index] = isOutbound;
+    timestamps[index] = System.currentTimeMillis();
+    count++;
+    chars += message.length();
+    while (chars > maxChars) {
+      removeOldest();
+    }
+  }
+
+  private void removeOldest() {
+    chars -= messages[head].length();
+    messages[head] = null;
+    head = (head + 1) % maxMessages;
+    count--;
+  }
+
+  public synchronized void clear() {
+    while (count > 0) {
+      removeOldest();
+    }
+  }
+
+  /**
+   * Return the recorded messages, oldest first, one per line.
+   */
+  public String dump() {
+    final StringBuilder builder = new StringBuilder();
+    synchronized (this) {
+      for (int i = 0; i < count; i++) {
+        final int index = (head + i) % maxMessages;
+        builder.append(timestamps[index])
+          .append(outbound[index] ? " Sent: " : " VM message: ")
+          .append(messages[index])
+          .append('\n');
+      }
+    }
+    return builder.toString();
+  }
+}